@@ -0,0 +1,108 @@
+package com.github.bderancourt.springboot.isolatedrunner.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A spring-boot app exploded in a temporary directory, like the target/classes dir of an app project: the
+ * {@link MinimalApp} class and a manifest whose Class-Path references jars of this JVM classpath.
+ *
+ * @author bderancourt
+ */
+public class AppDirectory {
+
+  private final Path directory;
+
+  private AppDirectory(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * @param jarFilter
+   *          selects the jars of this JVM classpath referenced by the manifest, by file name
+   * @return the app directory
+   * @throws IOException
+   *           if the app directory can't be written
+   */
+  public static AppDirectory create(Predicate<String> jarFilter) throws IOException {
+    return create(getJvmJars().stream()
+        .filter(jarFilter)
+        .collect(Collectors.joining(" ")));
+  }
+
+  /**
+   * @param manifestClassPath
+   *          the Class-Path of the app manifest
+   * @return the app directory
+   * @throws IOException
+   *           if the app directory can't be written
+   */
+  public static AppDirectory create(String manifestClassPath) throws IOException {
+    Path directory = Files.createTempDirectory("isolated-app");
+
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes()
+        .put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes()
+        .put(Attributes.Name.CLASS_PATH, manifestClassPath);
+    Path manifestPath = directory.resolve("META-INF/MANIFEST.MF");
+    Files.createDirectories(manifestPath.getParent());
+    try (OutputStream os = Files.newOutputStream(manifestPath)) {
+      manifest.write(os);
+    }
+
+    String appClass = MinimalApp.class.getName()
+        .replace('.', '/') + ".class";
+    Path appClassPath = directory.resolve(appClass);
+    Files.createDirectories(appClassPath.getParent());
+    try (InputStream is = MinimalApp.class.getClassLoader()
+        .getResourceAsStream(appClass)) {
+      Files.copy(is, appClassPath);
+    }
+    return new AppDirectory(directory);
+  }
+
+  /**
+   * @return the file names of the jars of this JVM classpath
+   */
+  public static List<String> getJvmJars() {
+    return Arrays.stream(System.getProperty("java.class.path")
+        .split(File.pathSeparator))
+        .map(entry -> Paths.get(entry)
+            .getFileName()
+            .toString())
+        .filter(fileName -> fileName.endsWith(".jar"))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @return the URL of the app directory, ending with a slash like the classpath dirs
+   */
+  public URL getUrl() throws IOException {
+    return directory.toUri()
+        .toURL();
+  }
+
+  public void delete() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder())
+          .forEach(path -> path.toFile()
+              .delete());
+    }
+  }
+
+}
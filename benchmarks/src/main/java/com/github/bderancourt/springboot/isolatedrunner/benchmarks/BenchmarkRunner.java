@@ -0,0 +1,27 @@
+package com.github.bderancourt.springboot.isolatedrunner.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the allocation profiler, so that the garbage produced per operation is reported next to its
+ * duration. The arguments are the usual JMH command line options.
+ *
+ * @author bderancourt
+ */
+public class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+  };
+
+  public static void main(String[] args) throws Exception {
+    Options options = new OptionsBuilder().parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class)
+        .build();
+    new Runner(options).run();
+  }
+
+}
@@ -0,0 +1,13 @@
+package com.github.bderancourt.springboot.isolatedrunner.benchmarks;
+
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The smallest spring-boot app: no auto-configuration, no web server.
+ *
+ * @author bderancourt
+ */
+@Configuration
+public class MinimalApp {
+
+}
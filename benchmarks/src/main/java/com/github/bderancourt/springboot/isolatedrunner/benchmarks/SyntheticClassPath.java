@@ -0,0 +1,79 @@
+package com.github.bderancourt.springboot.isolatedrunner.benchmarks;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Generates classpaths looking like the ones of a maven build, and the manifest Class-Path of an app depending on part
+ * of them.
+ *
+ * @author bderancourt
+ */
+public class SyntheticClassPath {
+
+  private final List<URL> urls;
+
+  private final String manifestClassPath;
+
+  private SyntheticClassPath(List<URL> urls, String manifestClassPath) {
+    this.urls = urls;
+    this.manifestClassPath = manifestClassPath;
+  }
+
+  /**
+   * The manifest references one jar out of two: most with the classpath version, one out of ten with another version
+   * and a few as eclipse related projects (target/classes dirs of the classpath).
+   *
+   * @param size
+   *          the number of URLs of the classpath
+   * @return the generated classpath
+   */
+  public static SyntheticClassPath generate(int size) {
+    List<URL> urls = new ArrayList<>(size);
+    StringJoiner manifestJars = new StringJoiner(" ");
+    try {
+      for (int i = 0; i < size; i++) {
+        String artifactId = artifactId(i);
+        String version = version(i);
+        if (i % 50 == 8) {
+          urls.add(new URL("file:/workspace/" + artifactId + "/target/classes/"));
+        } else {
+          urls.add(new URL("file:/home/user/.m2/repository/org/example/group" + (i % 20) + "/" + artifactId + "/"
+              + version + "/" + artifactId + "-" + version + ".jar"));
+        }
+        if (i % 2 == 0) {
+          String manifestVersion = i % 10 == 4 ? "9." + version : version;
+          manifestJars.add(artifactId + "-" + manifestVersion + ".jar");
+        }
+      }
+    } catch (MalformedURLException e) {
+      throw new IllegalStateException(e);
+    }
+    return new SyntheticClassPath(urls, manifestJars.toString());
+  }
+
+  /**
+   * @param i
+   *          the index of an URL of the classpath
+   * @return the artifactId of this URL, some of them being prefixes of others like in real classpaths
+   */
+  public static String artifactId(int i) {
+    return (i % 3 == 0 ? "spring-" : "lib-") + "module" + (i / 3) + (i % 3 == 2 ? "-core" : "");
+  }
+
+  private static String version(int i) {
+    return "1." + (i % 7) + "." + (i % 13) + (i % 5 == 0 ? "-SNAPSHOT" : ".RELEASE");
+  }
+
+  public List<URL> getUrls() {
+    return urls;
+  }
+
+  public String getManifestClassPath() {
+    return manifestClassPath;
+  }
+
+}
@@ -0,0 +1,67 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.bderancourt.springboot.isolatedrunner.benchmarks.SyntheticClassPath;
+
+/**
+ * The matching phases of DirDependency.constructClassPath between a generated manifest and a synthetic JVM classpath.
+ *
+ * @author bderancourt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassPathMatcherBenchmark {
+
+  @Param({ "100", "1000", "5000" })
+  int classPathSize;
+
+  private List<URL> classPath;
+
+  private List<String> manifestJars;
+
+  @Setup
+  public void setUp() {
+    SyntheticClassPath syntheticClassPath = SyntheticClassPath.generate(classPathSize);
+    classPath = syntheticClassPath.getUrls();
+    manifestJars = Arrays.asList(syntheticClassPath.getManifestClassPath()
+        .split(" "));
+  }
+
+  @Benchmark
+  public List<URL> matchAllPhases() throws Exception {
+    ClassPathMatcher matcher = new ClassPathMatcher(classPath, manifestJars);
+    List<URL> urls = new ArrayList<>(matcher.exactMatch()
+        .values());
+    urls.addAll(matcher.matchesButNotTheVersion()
+        .values());
+    urls.addAll(matcher.matchesEclipseRelatedProject()
+        .values());
+    if (!matcher.getRemainingJars()
+        .isEmpty()) {
+      throw new IllegalStateException(matcher.getRemainingJars() + " not matched");
+    }
+    return urls;
+  }
+
+}
@@ -0,0 +1,96 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.bderancourt.springboot.isolatedrunner.benchmarks.AppDirectory;
+import com.github.bderancourt.springboot.isolatedrunner.util.CacheUtils;
+
+/**
+ * Resolution of an app classpath against the real JVM classpath, with a manifest referencing all its jars.
+ *
+ * @author bderancourt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConstructClassPathBenchmark {
+
+  /**
+   * true to change the version of one manifest jar out of five, matched by the second phase
+   */
+  @Param({ "false", "true" })
+  boolean versionMismatch;
+
+  private String manifestClassPath;
+
+  private AppDirectory appDirectory;
+
+  private URL appUrl;
+
+  private Path cacheDir;
+
+  @Setup
+  public void setUp() throws IOException {
+    List<String> jars = AppDirectory.getJvmJars();
+    manifestClassPath = IntStream.range(0, jars.size())
+        .mapToObj(i -> versionMismatch && i % 5 == 0 ? changeVersion(jars.get(i)) : jars.get(i))
+        .collect(Collectors.joining(" "));
+    appDirectory = AppDirectory.create(manifestClassPath);
+    appUrl = appDirectory.getUrl();
+    cacheDir = Files.createTempDirectory("classpath-cache");
+    System.setProperty(CacheUtils.CACHE_DIR_PROPERTY, cacheDir.toString());
+  }
+
+  private static String changeVersion(String jar) {
+    Matcher matcher = DirDependency.JAR_WITH_VERSION_PATTERN.matcher(jar);
+    return matcher.matches() ? matcher.group(1) + "-0." + matcher.group(2) + matcher.group(3) : jar;
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    System.clearProperty(CacheUtils.CACHE_DIR_PROPERTY);
+    appDirectory.delete();
+    try (Stream<Path> paths = Files.walk(cacheDir)) {
+      paths.sorted(Comparator.reverseOrder())
+          .forEach(path -> path.toFile()
+              .delete());
+    }
+  }
+
+  @Benchmark
+  public URL[] constructClassPath() throws Exception {
+    return new DirDependency(appUrl, "benchmark", "none").constructClassPath(manifestClassPath, appUrl);
+  }
+
+  @Benchmark
+  public URL[] cachedClassPath() throws Exception {
+    return new DirDependency(appUrl, "benchmark", "none").getClassPath();
+  }
+
+}
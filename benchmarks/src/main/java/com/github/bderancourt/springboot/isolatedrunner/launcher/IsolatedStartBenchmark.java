@@ -0,0 +1,85 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.bderancourt.springboot.isolatedrunner.benchmarks.AppDirectory;
+import com.github.bderancourt.springboot.isolatedrunner.benchmarks.MinimalApp;
+import com.github.bderancourt.springboot.isolatedrunner.util.CacheUtils;
+import com.github.bderancourt.springboot.isolatedrunner.util.ClassPathCache;
+
+/**
+ * End to end start of a minimal spring-boot app in its isolated classloader, until ApplicationReadyEvent, then stop.
+ *
+ * @author bderancourt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class IsolatedStartBenchmark {
+
+  private static final List<String> APP_JARS = Arrays.asList("spring-boot-2", "spring-context-", "spring-core-",
+      "spring-beans-", "spring-aop-", "spring-expression-", "spring-jcl-");
+
+  private static final String[] ARGS = { "--spring.main.banner-mode=off", "--logging.level.root=WARN" };
+
+  @Param({ "true", "false" })
+  boolean classPathCache;
+
+  private AppDirectory appDirectory;
+
+  private Path cacheDir;
+
+  @Setup
+  public void setUp() throws IOException {
+    appDirectory = AppDirectory.create(jar -> APP_JARS.stream()
+        .anyMatch(jar::startsWith));
+    cacheDir = Files.createTempDirectory("classpath-cache");
+    System.setProperty(CacheUtils.CACHE_DIR_PROPERTY, cacheDir.toString());
+    System.setProperty(ClassPathCache.ENABLED_PROPERTY, String.valueOf(classPathCache));
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    System.clearProperty(CacheUtils.CACHE_DIR_PROPERTY);
+    System.clearProperty(ClassPathCache.ENABLED_PROPERTY);
+    appDirectory.delete();
+    try (Stream<Path> paths = Files.walk(cacheDir)) {
+      paths.sorted(Comparator.reverseOrder())
+          .forEach(path -> path.toFile()
+              .delete());
+    }
+  }
+
+  @Benchmark
+  public IsolatedAppHandle startAndStop() throws Exception {
+    DirDependency dependency = new DirDependency(appDirectory.getUrl(), "minimal-app", MinimalApp.class.getName());
+    IsolatedAppHandle handle = dependency.start(ARGS, IsolatedAppHandle.newThreadExecutor("minimal-app"), null)
+        .awaitReady();
+    handle.stop();
+    return handle;
+  }
+
+}
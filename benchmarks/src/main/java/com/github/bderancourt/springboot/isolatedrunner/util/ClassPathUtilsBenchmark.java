@@ -0,0 +1,74 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.bderancourt.springboot.isolatedrunner.benchmarks.SyntheticClassPath;
+
+/**
+ * Lookup of the app URL in the JVM classpath, as done by SpringBootIsolatedRunner for each app.
+ *
+ * @author bderancourt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassPathUtilsBenchmark {
+
+  @Param({ "100", "1000", "5000" })
+  int classPathSize;
+
+  private List<URL> classPath;
+
+  private List<URL> candidates;
+
+  @Setup
+  public void setUp() throws Exception {
+    classPath = new ArrayList<>(SyntheticClassPath.generate(classPathSize)
+        .getUrls());
+    // the app jar and its integration tests project, both containing "my-app"
+    URL appUrl = new URL("file:/home/user/.m2/repository/com/acme/my-app/1.0/my-app-1.0.jar");
+    URL itUrl = new URL("file:/workspace/my-app-it/target/classes/");
+    classPath.add(classPath.size() / 2, appUrl);
+    classPath.add(itUrl);
+    candidates = new ArrayList<>();
+    candidates.add(appUrl);
+    candidates.add(itUrl);
+    candidates.add(appUrl);
+  }
+
+  @Benchmark
+  public URL findUniqueDependency() {
+    return ClassPathUtils.findDependencyURL(classPath, "com/acme/", "my-app/");
+  }
+
+  @Benchmark
+  public URL findDependencyByMaxScore() {
+    return ClassPathUtils.findDependencyURL(classPath, "my-app");
+  }
+
+  @Benchmark
+  public URL findMaxScore() {
+    // the score of the duplicated candidates, on their own index
+    return ClassPathIndex.of(candidates)
+        .findDependencyURL("my-app");
+  }
+
+}
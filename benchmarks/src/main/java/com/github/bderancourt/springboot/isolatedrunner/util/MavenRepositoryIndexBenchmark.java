@@ -0,0 +1,113 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.bderancourt.springboot.isolatedrunner.benchmarks.SyntheticClassPath;
+
+/**
+ * Lookup of the jars missing from the JVM classpath in a fake maven local repository: first scan, load of the
+ * persisted index by a next JVM and lookup in the index already loaded.
+ *
+ * @author bderancourt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MavenRepositoryIndexBenchmark {
+
+  @Param({ "1000", "10000" })
+  int repositorySize;
+
+  private Path workDir;
+
+  private Path repository;
+
+  private Path cacheDir;
+
+  private String lastJar;
+
+  private MavenRepositoryIndex loadedIndex;
+
+  @Setup
+  public void setUp() throws IOException {
+    workDir = Files.createTempDirectory("maven-repository-benchmark");
+    repository = workDir.resolve("repository");
+    cacheDir = workDir.resolve("cache");
+    System.setProperty(CacheUtils.CACHE_DIR_PROPERTY, cacheDir.toString());
+    for (int i = 0; i < repositorySize; i++) {
+      String artifactId = SyntheticClassPath.artifactId(i);
+      Path versionDir = repository.resolve("org/example/group" + (i % 20))
+          .resolve(artifactId)
+          .resolve("1.0." + i);
+      Files.createDirectories(versionDir);
+      lastJar = artifactId + "-1.0." + i + ".jar";
+      Files.createFile(versionDir.resolve(lastJar));
+      Files.createFile(versionDir.resolve(artifactId + "-1.0." + i + ".pom"));
+    }
+    loadedIndex = new MavenRepositoryIndex(repository);
+    loadedIndex.find(lastJar);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    System.clearProperty(CacheUtils.CACHE_DIR_PROPERTY);
+    try (Stream<Path> paths = Files.walk(workDir)) {
+      paths.sorted(Comparator.reverseOrder())
+          .forEach(path -> path.toFile()
+              .delete());
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class NoPersistedIndex {
+
+    @Setup(Level.Invocation)
+    public void deletePersistedIndex(MavenRepositoryIndexBenchmark benchmark) throws IOException {
+      try (Stream<Path> files = Files.list(benchmark.cacheDir)) {
+        for (Path file : (Iterable<Path>) files::iterator) {
+          Files.delete(file);
+        }
+      }
+    }
+
+  }
+
+  @Benchmark
+  public Optional<Path> scan(NoPersistedIndex noPersistedIndex) {
+    return new MavenRepositoryIndex(repository).find(lastJar);
+  }
+
+  @Benchmark
+  public Optional<Path> loadPersistedIndex() {
+    return new MavenRepositoryIndex(repository).find(lastJar);
+  }
+
+  @Benchmark
+  public Optional<Path> lookup() {
+    return loadedIndex.find(lastJar);
+  }
+
+}
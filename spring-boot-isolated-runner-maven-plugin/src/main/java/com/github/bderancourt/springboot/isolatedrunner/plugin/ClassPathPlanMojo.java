@@ -0,0 +1,122 @@
+package com.github.bderancourt.springboot.isolatedrunner.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Write the runtime classpath of the app, as resolved by maven, in META-INF/isolated-runner/classpath.plan of
+ * target/classes. The spring-boot-isolated-runner then loads the app with this classpath instead of matching the
+ * manifest Class-Path against the JVM classpath. Each line of the plan is a dependency: its SHA-256, its size, its
+ * coordinates and its absolute path. A directory, the target/classes of a reactor module, has "-" as SHA-256 and size.
+ * The header records the last modification time and the path of the pom of the app and of its parents: the plan is
+ * stale once one of them changes, the dependencies may have changed too.
+ *
+ * @author bderancourt
+ */
+@Mojo(name = "classpath-plan", defaultPhase = LifecyclePhase.PROCESS_CLASSES, requiresDependencyResolution = ResolutionScope.RUNTIME, threadSafe = true)
+public class ClassPathPlanMojo extends AbstractMojo {
+
+  static final String LOCATION = "META-INF/isolated-runner/classpath.plan";
+
+  static final String POM = "# pom ";
+
+  private static final String NONE = "-";
+
+  @Parameter(defaultValue = "${project}", readonly = true, required = true)
+  MavenProject project;
+
+  @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+  File outputDirectory;
+
+  @Parameter(property = "isolatedrunner.plan.skip", defaultValue = "false")
+  boolean skip;
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (skip) {
+      getLog().info("classpath plan skipped");
+      return;
+    }
+    List<String> lines = new ArrayList<>();
+    lines.add("# classpath plan of " + project.getId());
+    for (MavenProject pomProject = project; pomProject != null; pomProject = pomProject.getParent()) {
+      File pom = pomProject.getFile();
+      if (pom != null && pom.isFile()) {
+        lines.add(POM + pom.lastModified() + " " + pom.getAbsolutePath());
+      }
+    }
+    try {
+      for (Artifact artifact : project.getArtifacts()) {
+        if (!isRuntime(artifact)) {
+          continue;
+        }
+        Path file = artifact.getFile()
+            .toPath()
+            .toAbsolutePath();
+        if (Files.isDirectory(file)) {
+          lines.add(NONE + " " + NONE + " " + artifact.getId() + " " + file);
+        } else {
+          lines.add(sha256(file) + " " + Files.size(file) + " " + artifact.getId() + " " + file);
+        }
+      }
+      Path planFile = outputDirectory.toPath()
+          .resolve(LOCATION);
+      Files.createDirectories(planFile.getParent());
+      Path tmpFile = Files.createTempFile(planFile.getParent(), "classpath", ".tmp");
+      Files.write(tmpFile, lines, StandardCharsets.UTF_8);
+      Files.move(tmpFile, planFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      getLog().info("classpath plan of " + lines.stream()
+          .filter(line -> !line.startsWith("#"))
+          .count() + " dependencies written in " + planFile);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Unable to write the classpath plan", e);
+    }
+  }
+
+  private static boolean isRuntime(Artifact artifact) {
+    return artifact.getFile() != null && artifact.getArtifactHandler()
+        .isAddedToClasspath() && (Artifact.SCOPE_COMPILE.equals(artifact.getScope()) || Artifact.SCOPE_RUNTIME
+            .equals(artifact.getScope()));
+  }
+
+  private static String sha256(Path file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    try (InputStream is = new DigestInputStream(Files.newInputStream(file), digest)) {
+      byte[] buffer = new byte[65536];
+      while (is.read(buffer) != -1) {
+        // the digest is updated by the stream
+      }
+    }
+    StringBuilder sb = new StringBuilder();
+    for (byte b : digest.digest()) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16))
+          .append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,76 @@
+package com.github.bderancourt.springboot.isolatedrunner.plugin;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ClassPathPlanMojoTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void writeTheRuntimeClassPath() throws Exception {
+    Path pom = Files.write(tempDir.resolve("pom.xml"), new byte[] { 1 });
+    Path jar = Files.write(tempDir.resolve("jsr305-3.0.2.jar"), new byte[] { 1, 2, 3 });
+    Path module = Files.createDirectories(tempDir.resolve("module/target/classes"));
+    Path testJar = Files.write(tempDir.resolve("junit-4.12.jar"), new byte[] { 1 });
+
+    MavenProject project = new MavenProject();
+    project.setGroupId("com.example");
+    project.setArtifactId("app");
+    project.setVersion("1.0");
+    project.setFile(pom.toFile());
+    Set<Artifact> artifacts = new LinkedHashSet<>();
+    artifacts.add(artifact("com.google.code.findbugs", "jsr305", "3.0.2", Artifact.SCOPE_COMPILE, jar));
+    artifacts.add(artifact("com.example", "module", "1.0", Artifact.SCOPE_RUNTIME, module));
+    artifacts.add(artifact("junit", "junit", "4.12", Artifact.SCOPE_TEST, testJar));
+    project.setArtifacts(artifacts);
+
+    ClassPathPlanMojo mojo = new ClassPathPlanMojo();
+    mojo.project = project;
+    mojo.outputDirectory = tempDir.resolve("target/classes")
+        .toFile();
+    mojo.execute();
+
+    List<String> lines = Files.readAllLines(mojo.outputDirectory.toPath()
+        .resolve(ClassPathPlanMojo.LOCATION), StandardCharsets.UTF_8);
+    assertEquals(Arrays.asList("# classpath plan of com.example:app:jar:1.0", ClassPathPlanMojo.POM + pom.toFile()
+        .lastModified() + " " + pom.toAbsolutePath(),
+        "039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81 3 com.google.code.findbugs:jsr305:jar:3.0.2 "
+            + jar.toAbsolutePath(), "- - com.example:module:jar:1.0 " + module.toAbsolutePath()), lines);
+  }
+
+  @Test
+  void skipThePlan() throws Exception {
+    ClassPathPlanMojo mojo = new ClassPathPlanMojo();
+    mojo.skip = true;
+    mojo.outputDirectory = tempDir.toFile();
+    mojo.execute();
+
+    assertFalse(Files.exists(tempDir.resolve(ClassPathPlanMojo.LOCATION)));
+  }
+
+  private static Artifact artifact(String groupId, String artifactId, String version, String scope, Path file) {
+    DefaultArtifactHandler artifactHandler = new DefaultArtifactHandler("jar");
+    artifactHandler.setAddedToClasspath(true);
+    Artifact artifact = new DefaultArtifact(groupId, artifactId, version, scope, "jar", null, artifactHandler);
+    artifact.setFile(new File(file.toString()));
+    return artifact;
+  }
+
+}
@@ -0,0 +1,43 @@
+package com.github.bderancourt.springboot.isolatedrunner;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The classpath resolved once for all the runners: the URLs in which the spring-boot apps are searched and the URLs
+ * used to build their isolated classpath.
+ * 
+ * @author bderancourt
+ */
+class RunnerClassPath {
+
+  private final List<URL> searchClassPath;
+
+  private final List<URL> classPath;
+
+  private final Duration resolutionDuration;
+
+  RunnerClassPath(List<URL> searchClassPath, List<URL> classPath, Duration resolutionDuration) {
+    this.searchClassPath = Collections.unmodifiableList(searchClassPath);
+    this.classPath = Collections.unmodifiableList(classPath);
+    this.resolutionDuration = resolutionDuration;
+  }
+
+  List<URL> getSearchClassPath() {
+    return searchClassPath;
+  }
+
+  List<URL> getClassPath() {
+    return classPath;
+  }
+
+  /**
+   * @return the duration of the classpath resolution, shared by the runners using it
+   */
+  Duration getResolutionDuration() {
+    return resolutionDuration;
+  }
+
+}
@@ -1,21 +1,32 @@
 package com.github.bderancourt.springboot.isolatedrunner;
 
+import java.io.File;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.StringJoiner;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.io.FileUtils;
 import org.springframework.boot.loader.archive.JarFileArchive;
 
+import com.github.bderancourt.springboot.isolatedrunner.launcher.AppResources;
+import com.github.bderancourt.springboot.isolatedrunner.launcher.ArchiveMode;
 import com.github.bderancourt.springboot.isolatedrunner.launcher.Dependency;
 import com.github.bderancourt.springboot.isolatedrunner.launcher.DirDependency;
+import com.github.bderancourt.springboot.isolatedrunner.launcher.IsolatedAppHandle;
 import com.github.bderancourt.springboot.isolatedrunner.launcher.JarDependency;
+import com.github.bderancourt.springboot.isolatedrunner.launcher.MappedJarFileArchive;
+import com.github.bderancourt.springboot.isolatedrunner.launcher.ProcessDependency;
+import com.github.bderancourt.springboot.isolatedrunner.launcher.StartupReport;
+import com.github.bderancourt.springboot.isolatedrunner.launcher.ThreadFactories;
+import com.github.bderancourt.springboot.isolatedrunner.util.CanonicalPaths;
 import com.github.bderancourt.springboot.isolatedrunner.util.ClassPathUtils;
 
 import lombok.extern.slf4j.Slf4j;
@@ -32,6 +43,20 @@ public class SpringBootIsolatedRunner {
 
   private String mainClass;
 
+  private Duration timeout;
+
+  private Executor executor;
+
+  private boolean process;
+
+  private boolean watch;
+
+  private final List<String> portProperties = new ArrayList<>();
+
+  private final List<String> tempDirectoryProperties = new ArrayList<>();
+
+  private ThreadFactory threadFactory;
+
   /**
    * Constructor
    * 
@@ -46,12 +71,128 @@ public class SpringBootIsolatedRunner {
   }
 
   /**
+   * @param timeout
+   *          the maximum duration of the spring-boot app startup, none by default. An app not ready in time is stopped.
+   * @return this runner
+   */
+  public SpringBootIsolatedRunner timeout(Duration timeout) {
+    this.timeout = timeout;
+    return this;
+  }
+
+  /**
+   * @param executor
+   *          runs the spring-boot app startup, by default a new thread named after the app
+   * @return this runner
+   */
+  public SpringBootIsolatedRunner executor(Executor executor) {
+    this.executor = executor;
+    return this;
+  }
+
+  /**
+   * @param threadFactory
+   *          creates the thread running the spring-boot app startup when no executor is set, by default the factory
+   *          of the isolatedrunner.threads system property
+   * @return this runner
+   * @see ThreadFactories
+   */
+  public SpringBootIsolatedRunner threadFactory(ThreadFactory threadFactory) {
+    this.threadFactory = threadFactory;
+    return this;
+  }
+
+  /**
+   * @param process
+   *          true to run the spring-boot app in a child JVM instead of an isolated classloader of this JVM, false by
+   *          default
+   * @return this runner
+   * @see ProcessDependency
+   */
+  public SpringBootIsolatedRunner process(boolean process) {
+    this.process = process;
+    return this;
+  }
+
+  /**
+   * @param watch
+   *          true to reload the application classes of an app run from its target/classes directory when they change,
+   *          false by default
+   * @return this runner
+   * @see DirDependency#watch(boolean)
+   */
+  public SpringBootIsolatedRunner watch(boolean watch) {
+    this.watch = watch;
+    return this;
+  }
+
+  /**
+   * Allocate a free port to a property of the app before its start, e.g. server.port or management.server.port. The
+   * port is reserved for the apps of all the JVMs of the host until the app stops, and given to the app as a
+   * --property=port arg, unless the args already set the property.
+   *
+   * @param property
+   *          the port property
+   * @return this runner
+   * @see IsolatedAppHandle#getResources()
+   */
+  public SpringBootIsolatedRunner allocatePort(String property) {
+    portProperties.add(property);
+    return this;
+  }
+
+  /**
+   * Allocate a new temporary directory to a property of the app before its start, e.g. server.tomcat.basedir. The
+   * directory is given to the app as a --property=directory arg, unless the args already set the property, and deleted
+   * when the app stops.
+   *
+   * @param property
+   *          the directory property
+   * @return this runner
+   * @see IsolatedAppHandle#getResources()
+   */
+  public SpringBootIsolatedRunner allocateTempDir(String property) {
+    tempDirectoryProperties.add(property);
+    return this;
+  }
+
+  /**
+   * Start the spring-boot app and wait until it's ready.
+   * 
    * @param args
    *          to be passed to your spring-boot app
+   * @return the handle of the started app
    * @throws Exception
    *           hmm, problem !
    */
-  public void start(String[] args) throws Exception {
+  public IsolatedAppHandle start(String[] args) throws Exception {
+    return startAsync(args).awaitReady();
+  }
+
+  /**
+   * Start the spring-boot app without waiting for it. The app classpath is resolved in the calling thread, then the
+   * app is started by the executor.
+   * 
+   * @param args
+   *          to be passed to your spring-boot app
+   * @return the handle of the app, its application context future is completed when the app is ready
+   * @throws Exception
+   *           hmm, problem !
+   */
+  public IsolatedAppHandle startAsync(String[] args) throws Exception {
+    return start(args, resolveClassPath());
+  }
+
+  /**
+   * Resolve the classpath in which the spring-boot apps are searched. This work is the same for all the runners of
+   * this JVM.
+   * 
+   * @return the classpath
+   * @throws Exception
+   *           if the surefire classpath can't be read
+   */
+  static RunnerClassPath resolveClassPath() throws Exception {
+    long startNanos = System.nanoTime();
     // Firstly, print current program classpath
     log.debug("##### Current classpath #####");
     Arrays.asList(((URLClassLoader) Thread.currentThread().getContextClassLoader()).getURLs())
@@ -60,9 +201,6 @@ public class SpringBootIsolatedRunner {
         .forEach(log::debug);
     log.debug("##### Current classpath #####");
 
-    URL dependencyUrl;
-    List<URL> classpath = null;
-
     // Check if we are in a surefire or failsafe test with useSystemClassLoader=true configuration
     // https://maven.apache.org/surefire/maven-surefire-plugin/examples/class-loading.html
     URL surefire = null;
@@ -87,43 +225,126 @@ public class SpringBootIsolatedRunner {
       log.debug("surefire jar path: {}", surefireDir);
 
       // In this list, we store the jars found in the spring-boot app manifest.
-      classpath = new ArrayList<>();
-      for (String jar : surefireManifestClassPath.split(" ")) {
-        URL url = Paths.get(surefireDir.toString(), jar)
-            .toFile()
-            .getCanonicalFile()
-            .toURI()
-            .toURL();
-        classpath.add(url);
-      }
+      List<URL> classpath = CanonicalPaths.toCanonicalURLs(surefireDir, surefireManifestClassPath);
       log.info("##### Surefire override classpath #####");
       classpath.stream()
           .map(Objects::toString)
           .forEach(log::debug);
       log.info("##### Surefire override classpath #####");
-      dependencyUrl = ClassPathUtils.findDependencyURL(classpath, dependencyInfos);
+      return new RunnerClassPath(classpath, classpath, Duration.ofNanos(System.nanoTime() - startNanos));
 
       // not in surefire mode
     } else {
-      dependencyUrl = ClassPathUtils.findDependencyURL(dependencyInfos);
-      classpath = Arrays.asList(((URLClassLoader) ClassLoader.getSystemClassLoader()).getURLs());
+      return new RunnerClassPath(
+          Arrays.asList(((URLClassLoader) Thread.currentThread().getContextClassLoader()).getURLs()),
+          Arrays.asList(((URLClassLoader) ClassLoader.getSystemClassLoader()).getURLs()),
+          Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+  }
+
+  /**
+   * @param args
+   *          to be passed to your spring-boot app
+   * @param runnerClassPath
+   *          the already resolved classpath
+   * @throws Exception
+   *           hmm, problem !
+   */
+  IsolatedAppHandle start(String[] args, RunnerClassPath runnerClassPath) throws Exception {
+    return start(createDependency(runnerClassPath), args, getExecutor());
+  }
+
+  /**
+   * Allocate the resources of the app, then start it with their properties.
+   *
+   * @param dependency
+   *          the app to start
+   * @param args
+   *          to be passed to your spring-boot app
+   * @param executor
+   *          runs the spring-boot app startup
+   * @return the handle of the app, with its resources
+   * @throws Exception
+   *           if the resources can't be allocated or the app can't be started
+   */
+  IsolatedAppHandle start(Dependency dependency, String[] args, Executor executor) throws Exception {
+    if (portProperties.isEmpty() && tempDirectoryProperties.isEmpty()) {
+      return dependency.start(args, executor, timeout);
     }
+    AppResources resources = AppResources.allocate(getName(), args, portProperties, tempDirectoryProperties);
+    IsolatedAppHandle handle;
+    try {
+      handle = dependency.start(resources.apply(args), executor, timeout);
+    } catch (Exception e) {
+      resources.close();
+      throw e;
+    }
+    resources.attach(handle);
+    return handle;
+  }
+
+  /**
+   * @return the executor which runs the spring-boot app startup
+   */
+  Executor getExecutor() {
+    if (executor != null) {
+      return executor;
+    }
+    return IsolatedAppHandle.newThreadExecutor(getName(), threadFactory != null ? threadFactory
+        : ThreadFactories.current());
+  }
+
+  /**
+   * @return the maximum duration of the spring-boot app startup, null for none
+   */
+  Duration getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * @param runnerClassPath
+   *          the already resolved classpath
+   * @return the dependency to start, depending on the way the spring-boot app is found in the classpath
+   * @throws Exception
+   *           if the spring-boot app is not found
+   */
+  Dependency createDependency(RunnerClassPath runnerClassPath) throws Exception {
+    long startNanos = System.nanoTime();
+    URL dependencyUrl = ClassPathUtils.findDependencyURL(runnerClassPath.getSearchClassPath(), dependencyInfos);
+    List<URL> classpath = runnerClassPath.getClassPath();
     log.info("dependencyUrl found " + dependencyUrl.toString());
 
-    StringJoiner stringJoiner = new StringJoiner("-");
-    Arrays.asList(dependencyInfos)
-        .stream()
-        .forEach(stringJoiner::add);
-    String name = stringJoiner.toString();
+    String name = getName();
 
+    Dependency dependency;
     if (dependencyUrl.getFile()
         .endsWith("/")) {
       // This case is dedicated to eclipse launch
-      new DirDependency(dependencyUrl, name, mainClass).start(args);
+      dependency = new DirDependency(dependencyUrl, name, mainClass).watch(watch && !process);
     } else {
-      JarFileArchive springBootJar = new JarFileArchive(FileUtils.toFile(dependencyUrl));
-      new JarDependency(classpath, springBootJar, name, mainClass).start(args);
+      File springBootFile = FileUtils.toFile(dependencyUrl);
+      JarFileArchive springBootJar = ArchiveMode.current() == ArchiveMode.MAPPED ? MappedJarFileArchive.open(
+          springBootFile) : new JarFileArchive(springBootFile);
+      dependency = new JarDependency(classpath, springBootJar, name, mainClass);
+    }
+    if (watch && (process || !(dependency instanceof DirDependency))) {
+      log.warn("{} is not watched, only an app run from its target/classes directory in this JVM can be", name);
     }
+    if (process) {
+      dependency = new ProcessDependency(dependency, name, mainClass);
+    }
+    StartupReport startupReport = dependency.getStartupReport();
+    startupReport.record(StartupReport.CLASSPATH_RESOLUTION, runnerClassPath.getResolutionDuration(), classpath.size());
+    startupReport.record(StartupReport.DEPENDENCY_LOOKUP, startNanos, runnerClassPath.getSearchClassPath()
+        .size());
+    return dependency;
+  }
+
+  /**
+   * @return the name of the spring-boot app, built from its dependency infos
+   */
+  public String getName() {
+    return String.join("-", dependencyInfos);
   }
 
 }
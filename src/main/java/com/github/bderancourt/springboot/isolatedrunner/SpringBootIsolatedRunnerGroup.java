@@ -0,0 +1,325 @@
+package com.github.bderancourt.springboot.isolatedrunner;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.bderancourt.springboot.isolatedrunner.launcher.Dependency;
+import com.github.bderancourt.springboot.isolatedrunner.launcher.IsolatedAppHandle;
+import com.github.bderancourt.springboot.isolatedrunner.launcher.SharedClassLoaderLayer;
+import com.github.bderancourt.springboot.isolatedrunner.launcher.ThreadFactories;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Start several spring-boot apps concurrently, each in its own isolated classpath and thread. An app can be declared
+ * to start after other apps of the group, the independent ones are started at the same time.
+ *
+ * <pre>
+ * Map&lt;String, IsolatedAppHandle&gt; handles = new SpringBootIsolatedRunnerGroup()
+ *     .add("config", configRunner, new String[] { "--server.port=8888" })
+ *     .add("gateway", gatewayRunner, new String[] { "--server.port=8080" }, "config")
+ *     .start()
+ *     .get();
+ * </pre>
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class SpringBootIsolatedRunnerGroup {
+
+  private static class App {
+
+    private final SpringBootIsolatedRunner runner;
+
+    private final String[] args;
+
+    private final Set<String> startsAfter;
+
+    private App(SpringBootIsolatedRunner runner, String[] args, String... startsAfter) {
+      this.runner = runner;
+      this.args = args;
+      this.startsAfter = new LinkedHashSet<>(Arrays.asList(startsAfter));
+    }
+  }
+
+  private final Map<String, App> apps = new LinkedHashMap<>();
+
+  private int parallelism = Runtime.getRuntime()
+      .availableProcessors();
+
+  private boolean sharedLayer;
+
+  private List<String> sharedPackages = Collections.emptyList();
+
+  private List<String> isolatedPackages = SharedClassLoaderLayer.DEFAULT_ISOLATED_PACKAGES;
+
+  private volatile SharedClassLoaderLayer layer;
+
+  private ThreadFactory threadFactory;
+
+  /**
+   * @param id
+   *          the app identifier in this group
+   * @param runner
+   *          the runner of the app
+   * @param args
+   *          to be passed to the spring-boot app
+   * @param startsAfter
+   *          the identifiers of the apps that must be started before this one
+   * @return this group
+   */
+  public SpringBootIsolatedRunnerGroup add(String id, SpringBootIsolatedRunner runner, String[] args,
+      String... startsAfter) {
+    if (apps.containsKey(id)) {
+      throw new IllegalArgumentException("An app is already registered with the id " + id);
+    }
+    apps.put(id, new App(runner, args, startsAfter));
+    return this;
+  }
+
+  /**
+   * @param parallelism
+   *          the maximum number of apps starting at the same time, default to the number of processors
+   * @return this group
+   */
+  public SpringBootIsolatedRunnerGroup parallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive");
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * @param threadFactory
+   *          creates the threads of the group, which resolve the classpaths and run the apps startup, by default the
+   *          factory of the isolatedrunner.threads system property
+   * @return this group
+   * @see ThreadFactories
+   */
+  public SpringBootIsolatedRunnerGroup threadFactory(ThreadFactory threadFactory) {
+    this.threadFactory = threadFactory;
+    return this;
+  }
+
+  /**
+   * Load the jars identical in all the apps of the group only once, in a classloader shared by all the apps.
+   *
+   * @param sharedLayer
+   *          true to enable the shared layer, disabled by default
+   * @return this group
+   * @see SharedClassLoaderLayer
+   */
+  public SpringBootIsolatedRunnerGroup sharedLayer(boolean sharedLayer) {
+    this.sharedLayer = sharedLayer;
+    return this;
+  }
+
+  /**
+   * @param sharedPackages
+   *          if not empty, only the jars whose classes all belong to these packages can be shared
+   * @return this group
+   */
+  public SpringBootIsolatedRunnerGroup sharedPackages(String... sharedPackages) {
+    this.sharedPackages = Arrays.asList(sharedPackages);
+    return this;
+  }
+
+  /**
+   * @param isolatedPackages
+   *          the jars containing a class of these packages are never shared, default to
+   *          {@link SharedClassLoaderLayer#DEFAULT_ISOLATED_PACKAGES}
+   * @return this group
+   */
+  public SpringBootIsolatedRunnerGroup isolatedPackages(String... isolatedPackages) {
+    this.isolatedPackages = Arrays.asList(isolatedPackages);
+    return this;
+  }
+
+  /**
+   * @return the shared layer built by the last start, if enabled
+   */
+  public Optional<SharedClassLoaderLayer> getSharedLayer() {
+    return Optional.ofNullable(layer);
+  }
+
+  /**
+   * Start all the apps of the group. The classpath in which the apps are searched is resolved only once for the whole
+   * group.
+   *
+   * @return a future completed when all the apps are ready, with the handle of each app which gives its startup
+   *         duration. If an app fails to start, the apps starting after it are not started, the apps already started are
+   *         stopped and the future completes exceptionally.
+   */
+  public CompletableFuture<Map<String, IsolatedAppHandle>> start() {
+    List<String> startOrder = sortApps();
+    layer = null;
+
+    ClassLoader contextClassLoader = Thread.currentThread()
+        .getContextClassLoader();
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadFactory groupThreadFactory = threadFactory != null ? threadFactory : ThreadFactories.current();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, apps.size())),
+        runnable -> {
+          Thread thread = groupThreadFactory.newThread(runnable);
+          thread.setName("isolated-runner-group-" + threadCount.incrementAndGet());
+          thread.setContextClassLoader(contextClassLoader);
+          return thread;
+        });
+
+    CompletableFuture<RunnerClassPath> runnerClassPath = CompletableFuture.supplyAsync(() -> {
+      try {
+        return SpringBootIsolatedRunner.resolveClassPath();
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+
+    Map<String, CompletableFuture<Dependency>> dependencies = new LinkedHashMap<>();
+    for (String id : startOrder) {
+      dependencies.put(id, runnerClassPath.thenApplyAsync(classPath -> {
+        try {
+          Dependency dependency = apps.get(id).runner.createDependency(classPath);
+          if (sharedLayer) {
+            dependency.getClassPath();
+          }
+          return dependency;
+        } catch (Exception e) {
+          throw new CompletionException("Unable to resolve " + id, e);
+        }
+      }, executor));
+    }
+
+    // When enabled, the shared layer needs the classpath of all the apps before any app starts
+    CompletableFuture<Void> layerReady = CompletableFuture.completedFuture(null);
+    if (sharedLayer) {
+      layerReady = CompletableFuture.allOf(dependencies.values()
+          .toArray(new CompletableFuture<?>[0]))
+          .thenRun(() -> {
+            List<URL[]> appsClassPaths = new ArrayList<>();
+            try {
+              for (CompletableFuture<Dependency> dependency : dependencies.values()) {
+                appsClassPaths.add(dependency.join()
+                    .getClassPath());
+              }
+            } catch (Exception e) {
+              throw new CompletionException(e);
+            }
+            layer = SharedClassLoaderLayer.create(appsClassPaths, sharedPackages, isolatedPackages);
+            dependencies.values()
+                .forEach(dependency -> dependency.join()
+                    .setSharedLayer(layer));
+          });
+    }
+
+    Map<String, CompletableFuture<IsolatedAppHandle>> futures = new LinkedHashMap<>();
+    for (String id : startOrder) {
+      App app = apps.get(id);
+      List<CompletableFuture<?>> prerequisites = new ArrayList<>();
+      prerequisites.add(dependencies.get(id));
+      prerequisites.add(layerReady);
+      app.startsAfter.forEach(previousId -> prerequisites.add(futures.get(previousId)));
+      // the group executor is shut down once the group is started, the later restarts run in threads of the app
+      Executor restartExecutor = IsolatedAppHandle.newThreadExecutor(app.runner.getName(), groupThreadFactory);
+      Executor appExecutor = runnable -> {
+        try {
+          executor.execute(runnable);
+        } catch (RejectedExecutionException e) {
+          restartExecutor.execute(runnable);
+        }
+      };
+
+      // the app startup runs on the group executor, no thread is blocked waiting for it
+      futures.put(id, CompletableFuture.allOf(prerequisites.toArray(new CompletableFuture<?>[0]))
+          .thenComposeAsync(v -> {
+            log.info("starting {}", id);
+            try {
+              IsolatedAppHandle handle = app.runner.start(dependencies.get(id)
+                  .join(), app.args, appExecutor);
+              return handle.getApplicationContext()
+                  .thenApply(context -> handle);
+            } catch (Exception e) {
+              throw new CompletionException("Unable to start " + id, e);
+            }
+          }, executor));
+    }
+
+    return CompletableFuture.allOf(futures.values()
+        .toArray(new CompletableFuture<?>[0]))
+        .whenComplete((v, e) -> {
+          executor.shutdown();
+          if (e != null) {
+            stopStarted(futures);
+          }
+        })
+        .thenApply(v -> {
+          if (layer != null) {
+            layer.report();
+          }
+          Map<String, IsolatedAppHandle> handles = new LinkedHashMap<>();
+          futures.forEach((id, future) -> handles.put(id, future.join()));
+          return Collections.unmodifiableMap(handles);
+        });
+  }
+
+  /**
+   * Stop the apps started by a group whose start failed, the caller only gets the failure
+   */
+  private static void stopStarted(Map<String, CompletableFuture<IsolatedAppHandle>> futures) {
+    futures.forEach((id, future) -> {
+      if (future.isDone() && !future.isCompletedExceptionally()) {
+        try {
+          future.join()
+              .stop();
+        } catch (Exception e) {
+          log.warn("Unable to stop {} after the failed start of the group", id, e);
+        }
+      }
+    });
+  }
+
+  /**
+   * @return the app ids sorted so that each app comes after the apps it starts after
+   */
+  List<String> sortApps() {
+    List<String> sorted = new ArrayList<>();
+    Set<String> visiting = new LinkedHashSet<>();
+    apps.keySet()
+        .forEach(id -> visit(id, visiting, sorted));
+    return sorted;
+  }
+
+  private void visit(String id, Set<String> visiting, List<String> sorted) {
+    if (sorted.contains(id)) {
+      return;
+    }
+    if (!visiting.add(id)) {
+      throw new IllegalStateException("Cyclic start order between apps " + visiting);
+    }
+    for (String previousId : apps.get(id).startsAfter) {
+      if (!apps.containsKey(previousId)) {
+        throw new IllegalStateException(id + " starts after the unknown app " + previousId);
+      }
+      visit(previousId, visiting, sorted);
+    }
+    visiting.remove(id);
+    sorted.add(id);
+  }
+
+}
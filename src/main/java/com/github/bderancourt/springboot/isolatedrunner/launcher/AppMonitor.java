@@ -0,0 +1,252 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resources used by a spring-boot app sharing the JVM with other apps: the threads owned by its classloader, their CPU
+ * time and allocated bytes measured by the ThreadMXBean, and the classes loaded by the classloader. The usage of the
+ * threads which ended or left the app is kept, so the totals only grow.<br>
+ * The threads are listed as by {@link ClassLoaderCleaner}: the virtual threads created by the app are not seen.
+ * <p>
+ * The resources are sampled on demand with {@link #sample()}, or every isolatedrunner.monitor.interval milliseconds
+ * when this system property is set.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class AppMonitor implements AppMonitorMXBean {
+
+  /**
+   * System property with the sampling interval of the app resources in milliseconds, sampled on demand if not set
+   */
+  public static final String INTERVAL_PROPERTY = "isolatedrunner.monitor.interval";
+
+  // created by the launch thread of the first monitored app, the sampler thread must not inherit its classloader nor
+  // the protection domains of its classes on the stack
+  private static final ScheduledThreadPoolExecutor SAMPLER = new ScheduledThreadPoolExecutor(1,
+      runnable -> AccessController.doPrivileged((PrivilegedAction<Thread>) () -> {
+        Thread thread = new Thread(runnable, "isolated-runner-monitor");
+        thread.setDaemon(true);
+        thread.setContextClassLoader(AppMonitor.class.getClassLoader());
+        return thread;
+      }));
+
+  static {
+    SAMPLER.setRemoveOnCancelPolicy(true);
+  }
+
+  private final String name;
+
+  // released by close(), not to pin the classloader of the stopped app
+  private ClassLoader classLoader;
+
+  // the CPU time and allocated bytes of the live threads of the app, by thread id
+  private Map<Long, long[]> threadUsages = new HashMap<>();
+
+  private long leftCpuNanos;
+
+  private long leftAllocatedBytes;
+
+  private long lastSampleNanos;
+
+  private long lastCpuNanos;
+
+  private volatile ResourceSnapshot lastSnapshot;
+
+  private ScheduledFuture<?> sampling;
+
+  private ObjectName objectName;
+
+  AppMonitor(String name, ClassLoader classLoader) {
+    this.name = name;
+    this.classLoader = classLoader;
+  }
+
+  /**
+   * @return the sampling interval of the isolatedrunner.monitor.interval system property, 0 if not set
+   */
+  public static long getInterval() {
+    return Long.getLong(INTERVAL_PROPERTY, 0);
+  }
+
+  /**
+   * Take a first sample, then schedule the next ones and register the MXBean, if configured.
+   */
+  synchronized void start() {
+    sample();
+    long interval = getInterval();
+    if (interval > 0 && sampling == null) {
+      sampling = SAMPLER.scheduleAtFixedRate(this::sample, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    registerMBean();
+  }
+
+  /**
+   * Sample the resources used by the app now.
+   *
+   * @return the snapshot, the last one once the app is stopped
+   */
+  public synchronized ResourceSnapshot sample() {
+    if (classLoader == null) {
+      return lastSnapshot;
+    }
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    boolean cpuTimeMeasured = threadMXBean.isThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+    com.sun.management.ThreadMXBean allocationMXBean = getAllocationMXBean(threadMXBean);
+
+    Map<Long, long[]> usages = new HashMap<>();
+    for (Thread thread : ClassLoaderCleaner.withLaunchThreads(Arrays.asList(getAllThreads()))) {
+      if (thread.isAlive() && ClassLoaderCleaner.isOwnedBy(thread, classLoader)) {
+        long cpuNanos = cpuTimeMeasured ? threadMXBean.getThreadCpuTime(thread.getId()) : 0;
+        long allocatedBytes = allocationMXBean != null ? allocationMXBean.getThreadAllocatedBytes(thread.getId()) : 0;
+        usages.put(thread.getId(), new long[] { Math.max(cpuNanos, 0), Math.max(allocatedBytes, 0) });
+      }
+    }
+    threadUsages.forEach((id, usage) -> {
+      if (!usages.containsKey(id)) {
+        leftCpuNanos += usage[0];
+        leftAllocatedBytes += usage[1];
+      }
+    });
+    threadUsages = usages;
+
+    long cpuNanos = leftCpuNanos;
+    long allocatedBytes = leftAllocatedBytes;
+    for (long[] usage : usages.values()) {
+      cpuNanos += usage[0];
+      allocatedBytes += usage[1];
+    }
+    long sampleNanos = System.nanoTime();
+    double cpuLoad = lastSnapshot == null || !cpuTimeMeasured || sampleNanos == lastSampleNanos ? -1
+        : (double) (cpuNanos - lastCpuNanos) / (sampleNanos - lastSampleNanos);
+    lastSampleNanos = sampleNanos;
+    lastCpuNanos = cpuNanos;
+    lastSnapshot = new ResourceSnapshot(name, System.currentTimeMillis(), usages.size(), Duration.ofNanos(cpuNanos),
+        allocationMXBean != null ? allocatedBytes : -1, CountingClassLoader.getLoadedClassCount(classLoader), cpuLoad);
+    return lastSnapshot;
+  }
+
+  private static com.sun.management.ThreadMXBean getAllocationMXBean(ThreadMXBean threadMXBean) {
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+      if (allocationMXBean.isThreadAllocatedMemorySupported() && allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+        return allocationMXBean;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the threads of the root thread group, cheaper than Thread.getAllStackTraces() for a periodic sampling
+   */
+  private static Thread[] getAllThreads() {
+    ThreadGroup root = Thread.currentThread()
+        .getThreadGroup();
+    while (root.getParent() != null) {
+      root = root.getParent();
+    }
+    Thread[] threads = new Thread[root.activeCount() * 2 + 16];
+    root.enumerate(threads, true);
+    return threads;
+  }
+
+  /**
+   * @return the last snapshot, sampled on demand if the resources are not sampled periodically
+   */
+  public ResourceSnapshot getSnapshot() {
+    ResourceSnapshot snapshot = lastSnapshot;
+    return snapshot != null && getInterval() > 0 ? snapshot : sample();
+  }
+
+  /**
+   * Take a last sample, stop the periodic sampling and release the classloader.
+   */
+  synchronized void close() {
+    sample();
+    if (sampling != null) {
+      sampling.cancel(false);
+      sampling = null;
+    }
+    unregisterMBean();
+    classLoader = null;
+    threadUsages.clear();
+  }
+
+  private void registerMBean() {
+    if (!Boolean.getBoolean(StartupReport.JMX_PROPERTY) || objectName != null) {
+      return;
+    }
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName candidate = new ObjectName(
+          "com.github.bderancourt.springboot.isolatedrunner:type=AppMonitor,name=" + ObjectName.quote(name));
+      if (!server.isRegistered(candidate)) {
+        server.registerMBean(this, candidate);
+        objectName = candidate;
+      }
+    } catch (JMException e) {
+      log.warn("Unable to register the monitor of {}", name, e);
+    }
+  }
+
+  private void unregisterMBean() {
+    if (objectName == null) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer()
+          .unregisterMBean(objectName);
+    } catch (JMException e) {
+      log.warn("Unable to unregister the monitor of {}", name, e);
+    }
+    objectName = null;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public int getThreadCount() {
+    return getSnapshot().getThreadCount();
+  }
+
+  @Override
+  public long getCpuTimeMillis() {
+    return getSnapshot().getCpuTime()
+        .toMillis();
+  }
+
+  @Override
+  public long getAllocatedBytes() {
+    return getSnapshot().getAllocatedBytes();
+  }
+
+  @Override
+  public int getLoadedClassCount() {
+    return getSnapshot().getLoadedClassCount();
+  }
+
+  @Override
+  public double getCpuLoad() {
+    return getSnapshot().getCpuLoad();
+  }
+
+}
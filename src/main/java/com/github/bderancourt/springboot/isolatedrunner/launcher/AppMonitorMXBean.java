@@ -0,0 +1,28 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+/**
+ * JMX view of an {@link AppMonitor}, registered when the isolatedrunner.jmx system property is true.
+ *
+ * @author bderancourt
+ */
+public interface AppMonitorMXBean {
+
+  String getName();
+
+  int getThreadCount();
+
+  long getCpuTimeMillis();
+
+  /**
+   * @return the bytes allocated by the app threads since the app start, -1 if the JVM doesn't measure them
+   */
+  long getAllocatedBytes();
+
+  int getLoadedClassCount();
+
+  /**
+   * @return the CPU time of the app threads between the two last samples divided by the elapsed time, -1 if unknown
+   */
+  double getCpuLoad();
+
+}
@@ -0,0 +1,166 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+import com.github.bderancourt.springboot.isolatedrunner.util.PortAllocator;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The ports and temporary directories allocated to an app before its start, and given to it as command line
+ * properties. They are released when the app stops: the ports are freed and the directories deleted.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class AppResources implements AutoCloseable {
+
+  private final String name;
+
+  private final Map<String, String> properties = new LinkedHashMap<>();
+
+  private final Map<String, PortAllocator.Reservation> ports = new LinkedHashMap<>();
+
+  private final List<Path> tempDirectories = new ArrayList<>();
+
+  private boolean closed;
+
+  private AppResources(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Allocate the resources of an app. The properties already given in its args are not allocated.
+   *
+   * @param name
+   *          the app name
+   * @param args
+   *          the args of the app
+   * @param portProperties
+   *          the properties to set to a free port, e.g. server.port
+   * @param tempDirectoryProperties
+   *          the properties to set to a new temporary directory, e.g. server.tomcat.basedir
+   * @return the resources of the app
+   * @throws IOException
+   *           if a port or a directory can't be allocated, the resources already allocated are then released
+   */
+  public static AppResources allocate(String name, String[] args, Collection<String> portProperties,
+      Collection<String> tempDirectoryProperties) throws IOException {
+    AppResources resources = new AppResources(name);
+    try {
+      for (String property : portProperties) {
+        if (!isSet(args, property)) {
+          PortAllocator.Reservation port = PortAllocator.reserve();
+          resources.ports.put(property, port);
+          resources.properties.put(property, Integer.toString(port.getPort()));
+        }
+      }
+      for (String property : tempDirectoryProperties) {
+        if (!isSet(args, property)) {
+          Path tempDirectory = Files.createTempDirectory("isolated-runner-" + name.replaceAll("[^\\w.-]", "_") + "-");
+          resources.tempDirectories.add(tempDirectory);
+          resources.properties.put(property, tempDirectory.toString());
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      resources.close();
+      throw e;
+    }
+    if (!resources.properties.isEmpty()) {
+      log.info("{} allocated to {}", resources.properties, name);
+    }
+    return resources;
+  }
+
+  private static boolean isSet(String[] args, String property) {
+    return args != null && Arrays.stream(args)
+        .anyMatch(arg -> arg.startsWith("--" + property + "="));
+  }
+
+  /**
+   * @param args
+   *          the args of the app
+   * @return the args followed by the allocated properties, as --property=value, except the ones the args already set
+   */
+  public String[] apply(String[] args) {
+    List<String> appliedArgs = new ArrayList<>();
+    if (args != null) {
+      appliedArgs.addAll(Arrays.asList(args));
+    }
+    properties.forEach((property, value) -> {
+      // a property given twice would be bound to both values
+      if (!isSet(args, property)) {
+        appliedArgs.add("--" + property + "=" + value);
+      }
+    });
+    return appliedArgs.toArray(new String[0]);
+  }
+
+  /**
+   * Publish the resources on the handle of the app and release them when the app stops.
+   *
+   * @param handle
+   *          the handle of the app
+   */
+  public void attach(IsolatedAppHandle handle) {
+    handle.setResources(this);
+    handle.addCloseable(this);
+  }
+
+  /**
+   * @return the value allocated to each property, still given once the resources are released
+   */
+  public Map<String, String> getProperties() {
+    return Collections.unmodifiableMap(properties);
+  }
+
+  /**
+   * @param property
+   *          a port property, e.g. server.port
+   * @return the port allocated to the property
+   * @throws IllegalArgumentException
+   *           if no port was allocated to the property
+   */
+  public int getPort(String property) {
+    PortAllocator.Reservation port = ports.get(property);
+    if (port == null) {
+      throw new IllegalArgumentException("No port allocated to " + property + " of " + name);
+    }
+    return port.getPort();
+  }
+
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (PortAllocator.Reservation port : ports.values()) {
+      try {
+        port.close();
+      } catch (IOException e) {
+        log.warn("Unable to release {} of {}", port, name, e);
+      }
+    }
+    for (Path tempDirectory : tempDirectories) {
+      FileUtils.deleteQuietly(tempDirectory.toFile());
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "resources " + properties + " of " + name;
+  }
+
+}
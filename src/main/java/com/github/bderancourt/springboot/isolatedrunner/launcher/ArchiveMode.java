@@ -0,0 +1,48 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+/**
+ * How the spring-boot fat jars are read, chosen with the isolatedrunner.archive.mode system property.
+ *
+ * @author bderancourt
+ */
+public enum ArchiveMode {
+
+  /**
+   * The spring-boot loader reads the fat jar with positioned file reads
+   */
+  DEFAULT,
+
+  /**
+   * The fat jar is memory mapped once per JVM and its nested jars are read in place, see {@link MappedJarFileArchive}
+   */
+  MAPPED,
+
+  /**
+   * The fat jar is extracted once in a content addressed cache and launched from plain directories and jars, see
+   * {@link com.github.bderancourt.springboot.isolatedrunner.util.ExplodedJarCache}
+   */
+  EXPLODED;
+
+  /**
+   * System property selecting the archive mode: default, mapped or exploded
+   */
+  public static final String PROPERTY = "isolatedrunner.archive.mode";
+
+  /**
+   * @return the archive mode of the isolatedrunner.archive.mode system property, DEFAULT if not set
+   */
+  public static ArchiveMode current() {
+    String mode = System.getProperty(PROPERTY);
+    if (mode == null || mode.trim()
+        .isEmpty()) {
+      return DEFAULT;
+    }
+    try {
+      return valueOf(mode.trim()
+          .toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown " + PROPERTY + " " + mode, e);
+    }
+  }
+
+}
@@ -0,0 +1,109 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.io.EOFException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.springframework.boot.loader.data.RandomAccessData;
+
+/**
+ * RandomAccessData over a part of a memory mapped file. A subsection is a slice of the same memory, so a stored nested
+ * jar is read without any copy nor file access.
+ *
+ * @author bderancourt
+ */
+class ByteBufferData implements RandomAccessData {
+
+  private final ByteBuffer buffer;
+
+  /**
+   * @param buffer
+   *          the data, from 0 to its limit. It's never modified, only duplicated.
+   */
+  ByteBufferData(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  @Override
+  public InputStream getInputStream() {
+    return new ByteBufferInputStream(buffer.duplicate());
+  }
+
+  @Override
+  public RandomAccessData getSubsection(long offset, long length) {
+    if (offset < 0 || length < 0 || offset + length > buffer.limit()) {
+      throw new IndexOutOfBoundsException();
+    }
+    return new ByteBufferData(slice(offset, length));
+  }
+
+  @Override
+  public byte[] read() throws EOFException {
+    return read(0, buffer.limit());
+  }
+
+  @Override
+  public byte[] read(long offset, long length) throws EOFException {
+    if (offset > buffer.limit()) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (offset + length > buffer.limit()) {
+      throw new EOFException();
+    }
+    byte[] bytes = new byte[(int) length];
+    slice(offset, length).get(bytes);
+    return bytes;
+  }
+
+  @Override
+  public long getSize() {
+    return buffer.limit();
+  }
+
+  private ByteBuffer slice(long offset, long length) {
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.limit((int) (offset + length));
+    duplicate.position((int) offset);
+    return duplicate.slice();
+  }
+
+  private static class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int read = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, read);
+      return read;
+    }
+
+    @Override
+    public long skip(long n) {
+      int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+
+}
@@ -0,0 +1,321 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import com.github.bderancourt.springboot.isolatedrunner.util.CacheUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Class Data Sharing of the isolated apps classes. A training start, with the isolatedrunner.cds.training system
+ * property set to true, records in ~/.spring-boot-isolated-runner/cds:
+ * <ul>
+ * <li>&lt;app&gt;.classlist, the classes defined by the app classloader in their loading order</li>
+ * <li>&lt;app&gt;.training, the number of classes and the time spent loading them</li>
+ * </ul>
+ * The JVMs launching the apps get their CDS options from {@link #getJvmOptions(String)}: the classes of the isolated
+ * classloaders are URLClassLoader classes, only shared by the dynamic archives of JDK 13+. The first JVM launched with
+ * the options dumps the archive at exit, the next ones map it. The child JVMs of a {@link ProcessDependency} report the
+ * classloading time of the app start: the one of the JVM dumping the archive is recorded in &lt;app&gt;.baseline, the
+ * time saved by the JVMs mapping the archive is logged by comparison with it. The apps started in this JVM never map the
+ * archive, no saving is reported for them.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class ClassDataSharing {
+
+  /**
+   * System property enabling the recording of the classes loaded by each app
+   */
+  public static final String TRAINING_PROPERTY = "isolatedrunner.cds.training";
+
+  private static final String CLASS_COUNT = "classCount";
+
+  private static final String CLASS_LOADING_MILLIS = "classLoadingMillis";
+
+  private static final String ARCHIVE_DUMP_OPTION = "-XX:ArchiveClassesAtExit=";
+
+  private static final String ARCHIVE_MAPPING_OPTION = "-XX:SharedArchiveFile=";
+
+  // the file locks are held by the whole JVM, the archives dumped by the child JVMs of this JVM are locked here first
+  private static final Set<String> DUMPED_ARCHIVES = ConcurrentHashMap.newKeySet();
+
+  private ClassDataSharing() {
+  };
+
+  /**
+   * @return true if the isolatedrunner.cds.training system property is true
+   */
+  public static boolean isTraining() {
+    return Boolean.getBoolean(TRAINING_PROPERTY);
+  }
+
+  /**
+   * @return the directory of the class lists and of the CDS archives, not necessarily existing
+   */
+  public static Path getDirectory() {
+    return CacheUtils.getCacheDirectory()
+        .resolve("cds");
+  }
+
+  /**
+   * @param app
+   *          the app name
+   * @return the file listing the classes of the app recorded by the training start
+   */
+  public static Path getClassListFile(String app) {
+    return getDirectory().resolve(app + ".classlist");
+  }
+
+  /**
+   * @param app
+   *          the app name
+   * @return the dynamic CDS archive of the app
+   */
+  public static Path getArchiveFile(String app) {
+    return getDirectory().resolve(app + ".jsa");
+  }
+
+  /**
+   * @param app
+   *          the app name
+   * @return the options of a JVM launching the app: dumping the archive at exit if it doesn't exist yet, mapping it
+   *         otherwise. Empty before JDK 13, which can't share the classes of custom classloaders, or if the app wasn't
+   *         trained.
+   */
+  public static List<String> getJvmOptions(String app) {
+    return getJvmOptions(app, getJavaVersion());
+  }
+
+  /**
+   * @see #getJvmOptions(String)
+   */
+  static List<String> getJvmOptions(String app, int javaVersion) {
+    if (javaVersion < 13) {
+      log.debug("the classes of {} can't be shared before JDK 13", app);
+      return Collections.emptyList();
+    }
+    if (!Files.isRegularFile(getClassListFile(app))) {
+      return Collections.emptyList();
+    }
+    Path archive = getArchiveFile(app);
+    List<String> options = new ArrayList<>();
+    if (Files.isRegularFile(archive)) {
+      options.add(ARCHIVE_MAPPING_OPTION + archive);
+      options.add("-Xshare:auto");
+    } else {
+      options.add(ARCHIVE_DUMP_OPTION + archive);
+    }
+    return options;
+  }
+
+  /**
+   * @param jvmOptions
+   *          the CDS options of a JVM launching an app
+   * @return true if the JVM dumps the archive at exit
+   */
+  static boolean isArchiveDump(List<String> jvmOptions) {
+    return jvmOptions.stream()
+        .anyMatch(option -> option.startsWith(ARCHIVE_DUMP_OPTION));
+  }
+
+  /**
+   * Lock the dump of the archive of the app, for a single JVM of this host to dump it.
+   *
+   * @param app
+   *          the app name
+   * @return the lock, to close once the JVM dumping the archive exits, null if another JVM already dumps it
+   * @throws IOException
+   *           if the lock file can't be opened
+   */
+  static Closeable lockArchiveDump(String app) throws IOException {
+    if (!DUMPED_ARCHIVES.add(app)) {
+      return null;
+    }
+    FileLock lock = null;
+    FileChannel lockChannel = null;
+    try {
+      Files.createDirectories(getDirectory());
+      lockChannel = FileChannel.open(getDirectory().resolve(app + ".jsa.lock"), StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE);
+      lock = lockChannel.tryLock();
+    } finally {
+      if (lock == null) {
+        if (lockChannel != null) {
+          lockChannel.close();
+        }
+        DUMPED_ARCHIVES.remove(app);
+      }
+    }
+    if (lock == null) {
+      return null;
+    }
+    FileLock dumpLock = lock;
+    FileChannel dumpLockChannel = lockChannel;
+    AtomicBoolean released = new AtomicBoolean();
+    return () -> {
+      if (released.compareAndSet(false, true)) {
+        try {
+          dumpLock.release();
+        } finally {
+          dumpLockChannel.close();
+          DUMPED_ARCHIVES.remove(app);
+        }
+      }
+    };
+  }
+
+  /**
+   * @param app
+   *          the app name
+   * @return the number of classes and the classloading duration of the training start, if the app was trained
+   */
+  public static Optional<Properties> getTraining(String app) {
+    return load(getDirectory().resolve(app + ".training"));
+  }
+
+  /**
+   * @param app
+   *          the app name
+   * @return the number of classes and the classloading duration of the app start in the child JVM which dumped the
+   *         archive, if it's ready
+   */
+  public static Optional<Properties> getBaseline(String app) {
+    return load(getBaselineFile(app));
+  }
+
+  private static Path getBaselineFile(String app) {
+    return getDirectory().resolve(app + ".baseline");
+  }
+
+  private static Optional<Properties> load(Path file) {
+    if (!Files.isRegularFile(file)) {
+      return Optional.empty();
+    }
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+      return Optional.of(properties);
+    } catch (IOException e) {
+      log.warn("Unable to read {}", file, e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * @param report
+   *          the startup report of an app ready in a child JVM mapping the archive
+   * @return the classloading time saved compared to the start in the child JVM which dumped the archive, negative if it
+   *         was slower, empty if there is no such start
+   */
+  public static Optional<Duration> getClassLoadingSaving(StartupReport report) {
+    Optional<Duration> classLoadingDuration = report.getClassLoadingDuration();
+    if (!classLoadingDuration.isPresent()) {
+      return Optional.empty();
+    }
+    return getBaseline(report.getName()).map(baseline -> Duration.ofMillis(Long.parseLong(baseline.getProperty(
+        CLASS_LOADING_MILLIS)))
+        .minus(classLoadingDuration.get()));
+  }
+
+  /**
+   * Save the class list of the app if training.
+   *
+   * @param app
+   *          the app name
+   * @param classLoader
+   *          the app classloader
+   * @param report
+   *          the startup report of the ready app
+   */
+  static void onReady(String app, ClassLoader classLoader, StartupReport report) {
+    if (isTraining() && classLoader instanceof CountingClassLoader) {
+      try {
+        saveTraining(app, ((CountingClassLoader) classLoader).getLoadedClassNames(), report);
+      } catch (IOException e) {
+        log.warn("Unable to save the class list of {}", app, e);
+      }
+    }
+  }
+
+  /**
+   * Record the classloading of the start as the baseline if the child JVM dumps the archive, log the time saved
+   * compared to the baseline if it maps the archive.
+   *
+   * @param app
+   *          the app name
+   * @param jvmOptions
+   *          the options of the child JVM running the app
+   * @param report
+   *          the startup report of the app ready in the child JVM
+   */
+  static void onProcessReady(String app, List<String> jvmOptions, StartupReport report) {
+    if (!report.getClassLoadingDuration()
+        .isPresent()) {
+      return;
+    }
+    if (isArchiveDump(jvmOptions)) {
+      try {
+        save(getBaselineFile(app), report, "start of " + app + " in the JVM dumping its archive");
+      } catch (IOException e) {
+        log.warn("Unable to save the classloading baseline of {}", app, e);
+      }
+    } else if (jvmOptions.stream()
+        .anyMatch(option -> option.startsWith(ARCHIVE_MAPPING_OPTION))) {
+      getClassLoadingSaving(report).ifPresent(saving -> log.info(
+          "{} classes loaded in {} ms, {} ms saved by the CDS archive", app, report.getClassLoadingMillis(), saving
+              .toMillis()));
+    }
+  }
+
+  private static void saveTraining(String app, Collection<String> classNames, StartupReport report)
+      throws IOException {
+    Files.createDirectories(getDirectory());
+    // the class list format of the JDK: one internal class name per line
+    Files.write(getClassListFile(app), classNames.stream()
+        .map(className -> className.replace('.', '/'))
+        .collect(Collectors.toList()), StandardCharsets.UTF_8);
+    save(getDirectory().resolve(app + ".training"), report, "training start of " + app);
+    // the archive of the previous classes and its baseline are obsolete
+    Files.deleteIfExists(getArchiveFile(app));
+    Files.deleteIfExists(getBaselineFile(app));
+    log.info("{} classes of {} recorded in {}", classNames.size(), app, getClassListFile(app));
+  }
+
+  private static void save(Path file, StartupReport report, String comment) throws IOException {
+    Files.createDirectories(file.getParent());
+    Properties properties = new Properties();
+    properties.setProperty(CLASS_COUNT, String.valueOf(report.getLoadedClassCount()));
+    properties.setProperty(CLASS_LOADING_MILLIS, String.valueOf(report.getClassLoadingMillis()));
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      properties.store(writer, comment);
+    }
+  }
+
+  private static int getJavaVersion() {
+    String version = System.getProperty("java.specification.version");
+    return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+  }
+
+}
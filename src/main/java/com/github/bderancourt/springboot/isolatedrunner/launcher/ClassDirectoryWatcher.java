@@ -0,0 +1,192 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Watches the class directories of an app, recursively, and notifies their changes once they stop: a build writes many
+ * classes, the app is reloaded once when they are all written. The changes are waited for in a daemon thread, which
+ * also runs the notification. A class directory deleted by a clean build is watched again once it's created again.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+class ClassDirectoryWatcher implements AutoCloseable {
+
+  /**
+   * System property of the quiet period, in milliseconds, after which the changes are notified
+   */
+  public static final String DEBOUNCE_PROPERTY = "isolatedrunner.watch.debounce";
+
+  private final String name;
+
+  private final Runnable onChange;
+
+  private final Collection<Path> directories;
+
+  // the deleted class directories, only used by the watch thread
+  private final Set<Path> deletedDirectories = new HashSet<>();
+
+  private final WatchService watchService;
+
+  private final Thread thread;
+
+  private volatile boolean closed;
+
+  /**
+   * @param name
+   *          the app name
+   * @param directories
+   *          the class directories of the app
+   * @param onChange
+   *          run once the changes stop
+   * @throws IOException
+   *           if a directory can't be watched
+   */
+  ClassDirectoryWatcher(String name, Collection<Path> directories, Runnable onChange) throws IOException {
+    this.name = name;
+    this.onChange = onChange;
+    this.directories = directories;
+    this.watchService = FileSystems.getDefault()
+        .newWatchService();
+    for (Path directory : directories) {
+      register(directory);
+    }
+    // created by the launch thread of the app, the watch thread must not inherit its classloader nor its access control
+    // context
+    this.thread = AccessController.doPrivileged((PrivilegedAction<Thread>) () -> {
+      Thread watchThread = new Thread(this::watch, "isolated-runner-watch-" + name);
+      watchThread.setDaemon(true);
+      watchThread.setContextClassLoader(ClassDirectoryWatcher.class.getClassLoader());
+      return watchThread;
+    });
+  }
+
+  /**
+   * @return the quiet period after which the changes are notified, 300 ms by default
+   */
+  public static long getDebounce() {
+    return Long.getLong(DEBOUNCE_PROPERTY, 300);
+  }
+
+  void start() {
+    thread.start();
+  }
+
+  private void register(Path directory) throws IOException {
+    Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private void watch() {
+    try {
+      while (!closed) {
+        // the deleted directories are polled until they are created again
+        WatchKey key = deletedDirectories.isEmpty() ? watchService.take()
+            : watchService.poll(getDebounce(), TimeUnit.MILLISECONDS);
+        int changes = watchCreatedDirectories();
+        while (key != null) {
+          changes += pollChanges(key);
+          key = watchService.poll(getDebounce(), TimeUnit.MILLISECONDS);
+          changes += watchCreatedDirectories();
+        }
+        if (changes > 0 && !closed) {
+          log.info("{} changes in the class directories of {}", changes, name);
+          onChange.run();
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // closed with the app
+    } catch (RuntimeException e) {
+      log.error("the class directories of {} are not watched anymore", name, e);
+    }
+  }
+
+  private int pollChanges(WatchKey key) {
+    Path directory = (Path) key.watchable();
+    int changes = 0;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      changes++;
+      if (event.kind() == OVERFLOW) {
+        continue;
+      }
+      Path path = directory.resolve((Path) event.context());
+      log.debug("{} {}", event.kind(), path);
+      // the packages created by the build are watched too
+      if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+        try {
+          register(path);
+        } catch (IOException e) {
+          log.warn("Unable to watch {}", path, e);
+        }
+      }
+    }
+    if (!key.reset() && directories.contains(directory)) {
+      log.info("{} deleted, watched again once created", directory);
+      deletedDirectories.add(directory);
+    }
+    return changes;
+  }
+
+  /**
+   * @return the number of deleted directories created again, now watched
+   */
+  private int watchCreatedDirectories() {
+    int created = 0;
+    for (Iterator<Path> iterator = deletedDirectories.iterator(); iterator.hasNext();) {
+      Path directory = iterator.next();
+      if (Files.isDirectory(directory)) {
+        try {
+          register(directory);
+          iterator.remove();
+          created++;
+          log.debug("{} created again", directory);
+        } catch (IOException e) {
+          // deleted again meanwhile, or not readable yet
+          log.debug("Unable to watch {} yet", directory, e);
+        }
+      }
+    }
+    return created;
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    watchService.close();
+  }
+
+  @Override
+  public String toString() {
+    return thread.getName();
+  }
+
+}
@@ -0,0 +1,139 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.beans.Introspector;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Releases what an isolated classloader still holds once its spring-boot app is stopped, so that the classloader can be
+ * garbage collected.<br>
+ * The virtual threads are not listed by Thread.getAllStackTraces() nor by the thread groups: the threads launching the
+ * apps are tracked when they are created, the virtual threads created by the apps themselves are not seen.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+class ClassLoaderCleaner {
+
+  private static final long THREAD_JOIN_MILLIS = 2000;
+
+  private static final Set<Thread> LAUNCH_THREADS = Collections.synchronizedSet(Collections.newSetFromMap(
+      new WeakHashMap<>()));
+
+  private ClassLoaderCleaner() {
+  };
+
+  /**
+   * Interrupt the threads owned by the classloader, clear the JDK caches referencing it and close it.
+   *
+   * @param classLoader
+   *          the isolated classloader of a stopped app
+   * @param name
+   *          the app name
+   */
+  static void release(ClassLoader classLoader, String name) {
+    stopThreads(classLoader, name);
+    clearCaches(classLoader);
+    if (classLoader instanceof Closeable) {
+      try {
+        ((Closeable) classLoader).close();
+      } catch (IOException e) {
+        log.warn("Unable to close the classloader of {}", name, e);
+      }
+    }
+  }
+
+  /**
+   * @param thread
+   *          a thread
+   * @param classLoader
+   *          an isolated classloader
+   * @return true if the thread code comes from the classloader, or if the classloader is its context classloader
+   */
+  static boolean isOwnedBy(Thread thread, ClassLoader classLoader) {
+    return thread.getContextClassLoader() == classLoader || thread.getClass()
+        .getClassLoader() == classLoader;
+  }
+
+  /**
+   * @param thread
+   *          a thread launching an app, possibly virtual
+   */
+  static void trackLaunchThread(Thread thread) {
+    LAUNCH_THREADS.add(thread);
+  }
+
+  /**
+   * @param platformThreads
+   *          the threads listed by the JDK, without the virtual ones
+   * @return the listed threads and the tracked launch threads
+   */
+  static Set<Thread> withLaunchThreads(Iterable<Thread> platformThreads) {
+    Set<Thread> threads = new LinkedHashSet<>();
+    for (Thread thread : platformThreads) {
+      if (thread != null) {
+        threads.add(thread);
+      }
+    }
+    synchronized (LAUNCH_THREADS) {
+      threads.addAll(LAUNCH_THREADS);
+    }
+    return threads;
+  }
+
+  private static void stopThreads(ClassLoader classLoader, String name) {
+    Set<Thread> threads = new LinkedHashSet<>();
+    for (Thread thread : withLaunchThreads(Thread.getAllStackTraces()
+        .keySet())) {
+      if (thread != Thread.currentThread() && thread.isAlive() && isOwnedBy(thread, classLoader)) {
+        threads.add(thread);
+      }
+    }
+    for (Thread thread : threads) {
+      // common pool workers only inherited the classloader of the thread which created them
+      if (isCommonPoolWorker(thread)) {
+        thread.setContextClassLoader(ClassLoader.getSystemClassLoader());
+      } else {
+        log.debug("interrupting thread {} left by {}", thread.getName(), name);
+        thread.interrupt();
+      }
+    }
+    long deadline = System.currentTimeMillis() + THREAD_JOIN_MILLIS;
+    for (Thread thread : threads) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining > 0) {
+        try {
+          thread.join(remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread()
+              .interrupt();
+          return;
+        }
+      }
+      if (thread.isAlive() && thread.getContextClassLoader() == classLoader) {
+        log.warn("thread {} of {} is still alive after its interruption", thread.getName(), name);
+        thread.setContextClassLoader(ClassLoader.getSystemClassLoader());
+      }
+    }
+  }
+
+  private static boolean isCommonPoolWorker(Thread thread) {
+    return thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == ForkJoinPool
+        .commonPool();
+  }
+
+  private static void clearCaches(ClassLoader classLoader) {
+    Introspector.flushCaches();
+    ResourceBundle.clearCache(classLoader);
+  }
+
+}
@@ -0,0 +1,122 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tells if the isolated classloader of a stopped app has been garbage collected, and what may still pin it otherwise.
+ *
+ * @author bderancourt
+ */
+public class ClassLoaderLeakReport {
+
+  private final String name;
+
+  private final boolean leaked;
+
+  private final List<String> suspects;
+
+  private ClassLoaderLeakReport(String name, boolean leaked, List<String> suspects) {
+    this.name = name;
+    this.leaked = leaked;
+    this.suspects = Collections.unmodifiableList(suspects);
+  }
+
+  /**
+   * Run the garbage collector until the classloader is collected or the timeout expires.
+   *
+   * @param name
+   *          the app name
+   * @param classLoaderReference
+   *          a weak reference to the classloader of the stopped app
+   * @param timeout
+   *          the maximum duration to wait for the classloader collection
+   * @return the leak report
+   */
+  static ClassLoaderLeakReport check(String name, WeakReference<ClassLoader> classLoaderReference, Duration timeout) {
+    long deadline = System.currentTimeMillis() + timeout.toMillis();
+    do {
+      System.gc();
+      if (classLoaderReference.get() == null) {
+        return new ClassLoaderLeakReport(name, false, Collections.emptyList());
+      }
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread()
+            .interrupt();
+        break;
+      }
+    } while (System.currentTimeMillis() < deadline);
+
+    ClassLoader classLoader = classLoaderReference.get();
+    if (classLoader == null) {
+      return new ClassLoaderLeakReport(name, false, Collections.emptyList());
+    }
+    return new ClassLoaderLeakReport(name, true, findSuspects(classLoader));
+  }
+
+  private static List<String> findSuspects(ClassLoader classLoader) {
+    List<String> suspects = new ArrayList<>();
+    for (Thread thread : ClassLoaderCleaner.withLaunchThreads(Thread.getAllStackTraces()
+        .keySet())) {
+      if (thread.isAlive() && ClassLoaderCleaner.isOwnedBy(thread, classLoader)) {
+        suspects.add("live thread " + thread.getName() + " (" + thread.getClass()
+            .getName() + ")");
+      }
+    }
+    for (Thread hook : getShutdownHooks()) {
+      if (ClassLoaderCleaner.isOwnedBy(hook, classLoader)) {
+        suspects.add("shutdown hook " + hook.getName() + " (" + hook.getClass()
+            .getName() + ")");
+      }
+    }
+    if (suspects.isEmpty()) {
+      suspects.add("no thread nor shutdown hook, check the static fields and caches of the parent classloaders");
+    }
+    return suspects;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Thread> getShutdownHooks() {
+    try {
+      Class<?> hooksClass = Class.forName("java.lang.ApplicationShutdownHooks");
+      Field hooksField = hooksClass.getDeclaredField("hooks");
+      hooksField.setAccessible(true);
+      synchronized (hooksClass) {
+        return new ArrayList<>(((Map<Thread, Thread>) hooksField.get(null)).keySet());
+      }
+    } catch (Exception | LinkageError e) {
+      // not accessible on this JVM
+      return Collections.emptyList();
+    }
+  }
+
+  /**
+   * @return true if the classloader has not been garbage collected
+   */
+  public boolean isLeaked() {
+    return leaked;
+  }
+
+  /**
+   * @return what may still reference the classloader, empty if it has been collected
+   */
+  public List<String> getSuspects() {
+    return suspects;
+  }
+
+  @Override
+  public String toString() {
+    if (!leaked) {
+      return "classloader of " + name + " collected";
+    }
+    return "classloader of " + name + " leaked, suspects: " + String.join(", ", suspects);
+  }
+
+}
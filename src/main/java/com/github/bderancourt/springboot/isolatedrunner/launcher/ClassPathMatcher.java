@@ -0,0 +1,215 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+
+import org.apache.commons.io.FilenameUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Matches the jars of a spring-boot app manifest with the URLs of this JVM classpath. Each URL and each jar name is
+ * parsed only once, then the matching phases of {@link DirDependency} are resolved with hash lookups. The per pair
+ * matching methods of {@link DirDependency} are only called to confirm a candidate.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+class ClassPathMatcher {
+
+  private static final String ECLIPSE_OUTPUT_DIR = "target/classes";
+
+  private enum Kind {
+    JAR, ECLIPSE_OUTPUT_DIR, OTHER
+  }
+
+  private static class ParsedUrl {
+
+    private final URL url;
+
+    private final String fileName;
+
+    private final Kind kind;
+
+    private ParsedUrl(URL url) {
+      this.url = url;
+      this.fileName = FilenameUtils.getName(url.getPath());
+      if (url.getFile()
+          .contains(ECLIPSE_OUTPUT_DIR)) {
+        this.kind = Kind.ECLIPSE_OUTPUT_DIR;
+      } else if (fileName.endsWith(".jar")) {
+        this.kind = Kind.JAR;
+      } else {
+        this.kind = Kind.OTHER;
+      }
+    }
+
+    /**
+     * @return all the possible artifactIds of the file name, e.g. the parts before each "-digit"
+     */
+    private List<String> artifactIdCandidates() {
+      List<String> candidates = new ArrayList<>();
+      for (int i = fileName.indexOf('-'); i > 0; i = fileName.indexOf('-', i + 1)) {
+        if (i + 1 < fileName.length() && Character.isDigit(fileName.charAt(i + 1))) {
+          candidates.add(fileName.substring(0, i));
+        }
+      }
+      return candidates;
+    }
+  }
+
+  private static class ParsedJar {
+
+    private final String jar;
+
+    private final String artifactId;
+
+    private ParsedJar(String jar) {
+      this.jar = jar;
+      Matcher matcher = DirDependency.JAR_WITH_VERSION_PATTERN.matcher(jar);
+      if (matcher.find()) {
+        this.artifactId = matcher.group(1);
+      } else {
+        this.artifactId = null;
+      }
+    }
+  }
+
+  private final List<ParsedUrl> classPathUrls = new ArrayList<>();
+
+  private final Set<ParsedJar> remainingJars = new LinkedHashSet<>();
+
+  /**
+   * @param classPathUrls
+   *          this JVM classpath
+   * @param manifestJars
+   *          the jars found in the spring-boot app manifest
+   */
+  ClassPathMatcher(Collection<URL> classPathUrls, Collection<String> manifestJars) {
+    classPathUrls.forEach(url -> this.classPathUrls.add(new ParsedUrl(url)));
+    manifestJars.forEach(jar -> remainingJars.add(new ParsedJar(jar)));
+  }
+
+  /**
+   * First try, find the exact matching between the jar and the program classpath URL file name.
+   *
+   * @return the matching URLs by jar, in classpath order
+   */
+  Map<String, URL> exactMatch() {
+    Map<String, List<ParsedJar>> jarsByName = new HashMap<>();
+    remainingJars.forEach(parsedJar -> jarsByName.computeIfAbsent(parsedJar.jar, key -> new ArrayList<>())
+        .add(parsedJar));
+    return match(parsedUrl -> jarsByName.get(parsedUrl.fileName), DirDependency::exactMatch);
+  }
+
+  /**
+   * Second try, find the jars in the classpath with the same artifactId but another version.
+   *
+   * @return the matching URLs by jar, version replaced by the manifest one, in classpath order
+   */
+  Map<String, URL> matchesButNotTheVersion() {
+    Map<String, List<ParsedJar>> jarsByArtifactId = new HashMap<>();
+    remainingJars.stream()
+        .filter(parsedJar -> parsedJar.artifactId != null)
+        .forEach(parsedJar -> jarsByArtifactId.computeIfAbsent(parsedJar.artifactId, key -> new ArrayList<>())
+            .add(parsedJar));
+    return match(parsedUrl -> {
+      if (parsedUrl.kind != Kind.JAR) {
+        return null;
+      }
+      List<ParsedJar> candidates = new ArrayList<>();
+      parsedUrl.artifactIdCandidates()
+          .stream()
+          .map(jarsByArtifactId::get)
+          .filter(jars -> jars != null)
+          .forEach(candidates::addAll);
+      return candidates;
+    }, (url, jar) -> {
+      try {
+        return DirDependency.matchesButNotTheVersion(url, jar);
+      } catch (MalformedURLException e) {
+        throw new IllegalArgumentException(e);
+      }
+    });
+  }
+
+  /**
+   * Third try, find the eclipse related projects target/classes dirs.
+   *
+   * @return the matching URLs by jar, in classpath order
+   */
+  Map<String, URL> matchesEclipseRelatedProject() {
+    List<ParsedJar> candidates = new ArrayList<>();
+    remainingJars.stream()
+        .filter(parsedJar -> parsedJar.artifactId != null)
+        .forEach(candidates::add);
+    return match(parsedUrl -> parsedUrl.kind == Kind.ECLIPSE_OUTPUT_DIR ? candidates : null,
+        DirDependency::matchesEclipseRelatedProject);
+  }
+
+  /**
+   * @return the manifest jars not matched yet, in manifest order
+   */
+  List<String> getRemainingJars() {
+    List<String> jars = new ArrayList<>();
+    remainingJars.forEach(parsedJar -> jars.add(parsedJar.jar));
+    return jars;
+  }
+
+  /**
+   * Forget the jars resolved by other means since the previous matching phase.
+   *
+   * @param jars
+   *          the manifest jars still to match
+   */
+  void retainJars(Collection<String> jars) {
+    Set<String> retainedJars = new HashSet<>(jars);
+    remainingJars.removeIf(parsedJar -> !retainedJars.contains(parsedJar.jar));
+  }
+
+  /**
+   * Each URL and each jar is matched at most once. For a given URL, the first remaining candidate jar wins.
+   */
+  private Map<String, URL> match(Function<ParsedUrl, List<ParsedJar>> candidatesLookup,
+      BiFunction<URL, String, URL> confirmation) {
+    Map<String, URL> matchingUrls = new LinkedHashMap<>();
+    if (remainingJars.isEmpty()) {
+      return matchingUrls;
+    }
+    for (Iterator<ParsedUrl> itUrls = classPathUrls.iterator(); itUrls.hasNext();) {
+      ParsedUrl parsedUrl = itUrls.next();
+      List<ParsedJar> candidates = candidatesLookup.apply(parsedUrl);
+      if (candidates == null) {
+        continue;
+      }
+      for (ParsedJar candidate : candidates) {
+        if (!remainingJars.contains(candidate)) {
+          continue;
+        }
+        URL matchingUrl = confirmation.apply(parsedUrl.url, candidate.jar);
+        if (matchingUrl != null) {
+          log.debug("adding url {} matching {}", matchingUrl, candidate.jar);
+          matchingUrls.put(candidate.jar, matchingUrl);
+          remainingJars.remove(candidate);
+          itUrls.remove();
+          break;
+        }
+      }
+    }
+    return matchingUrls;
+  }
+
+}
@@ -0,0 +1,204 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.github.bderancourt.springboot.isolatedrunner.util.CacheUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The runtime classpath of a spring-boot app, resolved at build time by the classpath-plan goal of the
+ * spring-boot-isolated-runner-maven-plugin and written in META-INF/isolated-runner/classpath.plan. Each line of the
+ * plan is a dependency: its SHA-256, its size, its coordinates and its absolute path, separated by spaces. A directory,
+ * the target/classes of a reactor module, has "-" as SHA-256 and size. The lines starting with # are comments, except
+ * the "# pom" ones: the last modification time and the path of the pom of the app and of its parents.
+ * <p>
+ * The plan is stale when one of its poms changed, the dependencies may have changed too, or when a dependency is
+ * missing or its size changed. A pom which doesn't exist anymore, e.g. the app jar was copied elsewhere, is ignored. The checksums are only verified with the
+ * isolatedrunner.plan.verify system property, reading all the jars costing more than the resolution it saves.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class ClassPathPlan {
+
+  /**
+   * Location of the plan in target/classes, packaged in the app jar too
+   */
+  public static final String LOCATION = "META-INF/isolated-runner/classpath.plan";
+
+  /**
+   * System property to verify the SHA-256 of the dependencies of the plan
+   */
+  public static final String VERIFY_PROPERTY = "isolatedrunner.plan.verify";
+
+  private static final String POM = "# pom ";
+
+  private static final String NONE = "-";
+
+  /**
+   * A dependency of the plan
+   */
+  public static class Entry {
+
+    private final String sha256;
+
+    private final String size;
+
+    private final String coordinates;
+
+    private final Path path;
+
+    private Entry(String sha256, String size, String coordinates, Path path) {
+      this.sha256 = sha256;
+      this.size = size;
+      this.coordinates = coordinates;
+      this.path = path;
+    }
+
+    /**
+     * @return groupId:artifactId:type[:classifier]:version
+     */
+    public String getCoordinates() {
+      return coordinates;
+    }
+
+    public Path getPath() {
+      return path;
+    }
+
+    /**
+     * @return why the dependency doesn't match the plan anymore, empty if it still does
+     */
+    private Optional<String> checkStale(boolean verify) throws IOException {
+      if (NONE.equals(size)) {
+        return Files.isDirectory(path) ? Optional.empty() : Optional.of(path + " is not a directory anymore");
+      }
+      if (!Files.isRegularFile(path)) {
+        return Optional.of(path + " is missing");
+      }
+      if (Files.size(path) != Long.parseLong(size)) {
+        return Optional.of(path + " size changed");
+      }
+      if (verify && !sha256.equals(CacheUtils.sha256(path))) {
+        return Optional.of(path + " checksum changed");
+      }
+      return Optional.empty();
+    }
+  }
+
+  private final Path file;
+
+  private final List<Entry> entries;
+
+  // the last modification time of each pom the plan was written from
+  private final Map<Path, Long> poms;
+
+  private ClassPathPlan(Path file, List<Entry> entries, Map<Path, Long> poms) {
+    this.file = file;
+    this.entries = Collections.unmodifiableList(entries);
+    this.poms = poms;
+  }
+
+  /**
+   * @param classesDirectory
+   *          the target/classes of the spring-boot app
+   * @return the plan of the app, empty if the app has none or if it's stale
+   * @throws IOException
+   *           if the plan can't be read
+   */
+  public static Optional<ClassPathPlan> load(File classesDirectory) throws IOException {
+    Path planFile = classesDirectory.toPath()
+        .resolve(LOCATION);
+    if (!Files.isRegularFile(planFile)) {
+      return Optional.empty();
+    }
+    List<Entry> entries = new ArrayList<>();
+    Map<Path, Long> poms = new LinkedHashMap<>();
+    for (String line : Files.readAllLines(planFile, StandardCharsets.UTF_8)) {
+      if (line.startsWith(POM)) {
+        String[] fields = line.substring(POM.length())
+            .split(" ", 2);
+        if (fields.length < 2) {
+          throw new IOException("Invalid line in " + planFile + ": " + line);
+        }
+        poms.put(planFile.getFileSystem()
+            .getPath(fields[1]), Long.parseLong(fields[0]));
+        continue;
+      }
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split(" ", 4);
+      if (fields.length < 4) {
+        throw new IOException("Invalid line in " + planFile + ": " + line);
+      }
+      entries.add(new Entry(fields[0], fields[1], fields[2], classesDirectory.toPath()
+          .getFileSystem()
+          .getPath(fields[3])));
+    }
+    ClassPathPlan plan = new ClassPathPlan(planFile, entries, poms);
+    Optional<String> stale = plan.checkStale();
+    if (stale.isPresent()) {
+      log.info("classpath plan {} is stale, {}, the classpath is resolved from the JVM classpath", planFile, stale
+          .get());
+      return Optional.empty();
+    }
+    return Optional.of(plan);
+  }
+
+  private Optional<String> checkStale() throws IOException {
+    for (Map.Entry<Path, Long> pom : poms.entrySet()) {
+      if (Files.isRegularFile(pom.getKey()) && Files.getLastModifiedTime(pom.getKey())
+          .toMillis() != pom.getValue()) {
+        return Optional.of(pom.getKey() + " changed");
+      }
+    }
+    boolean verify = Boolean.getBoolean(VERIFY_PROPERTY);
+    for (Entry entry : entries) {
+      Optional<String> stale = entry.checkStale(verify);
+      if (stale.isPresent()) {
+        return stale;
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * @return the dependencies, in the classpath order
+   */
+  public List<Entry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * @return the URLs of the dependencies, in the classpath order
+   * @throws IOException
+   *           if a path can't be converted to an URL
+   */
+  public List<URL> getUrls() throws IOException {
+    List<URL> urls = new ArrayList<>(entries.size());
+    for (Entry entry : entries) {
+      urls.add(entry.path.toUri()
+          .toURL());
+    }
+    return urls;
+  }
+
+  @Override
+  public String toString() {
+    return file.toString();
+  }
+
+}
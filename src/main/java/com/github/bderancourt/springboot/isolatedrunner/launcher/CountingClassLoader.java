@@ -0,0 +1,101 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.loader.LaunchedURLClassLoader;
+
+/**
+ * Classloader counting the classes it defines itself and the time spent defining them, the ones delegated to its
+ * parent are not counted. During a {@link ClassDataSharing} training, it also records the names of the classes.
+ *
+ * @author bderancourt
+ */
+class CountingClassLoader extends LaunchedURLClassLoader {
+
+  static {
+    ClassLoader.registerAsParallelCapable();
+  }
+
+  private final AtomicInteger loadedClassCount = new AtomicInteger();
+
+  private final AtomicLong classLoadingNanos = new AtomicLong();
+
+  // the superclasses are loaded while defining a class, only the outermost findClass is timed
+  private final ThreadLocal<int[]> findClassDepth = ThreadLocal.withInitial(() -> new int[1]);
+
+  private final Queue<String> loadedClassNames;
+
+  CountingClassLoader(URL[] urls, ClassLoader parent) {
+    super(urls, parent);
+    this.loadedClassNames = ClassDataSharing.isTraining() ? new ConcurrentLinkedQueue<>() : null;
+  }
+
+  @Override
+  protected Class<?> findClass(String name) throws ClassNotFoundException {
+    int[] depth = findClassDepth.get();
+    long startNanos = depth[0] == 0 ? System.nanoTime() : 0;
+    depth[0]++;
+    try {
+      Class<?> loadedClass = findClassInClassPath(name);
+      loadedClassCount.incrementAndGet();
+      if (loadedClassNames != null) {
+        loadedClassNames.add(name);
+      }
+      return loadedClass;
+    } finally {
+      depth[0]--;
+      if (depth[0] == 0) {
+        classLoadingNanos.addAndGet(System.nanoTime() - startNanos);
+      }
+    }
+  }
+
+  /**
+   * @param name
+   *          the binary name of the class
+   * @return the class defined from the classpath of this classloader
+   * @throws ClassNotFoundException
+   *           if the class isn't in the classpath
+   */
+  protected Class<?> findClassInClassPath(String name) throws ClassNotFoundException {
+    return super.findClass(name);
+  }
+
+  /**
+   * @return the number of classes defined by this classloader
+   */
+  int getLoadedClassCount() {
+    return loadedClassCount.get();
+  }
+
+  /**
+   * @return the time spent finding, reading and defining the classes of this classloader
+   */
+  Duration getClassLoadingDuration() {
+    return Duration.ofNanos(classLoadingNanos.get());
+  }
+
+  /**
+   * @return the names of the classes defined by this classloader, in their loading order, empty if not training
+   */
+  Collection<String> getLoadedClassNames() {
+    return loadedClassNames == null ? new ArrayList<>() : new ArrayList<>(loadedClassNames);
+  }
+
+  /**
+   * @param classLoader
+   *          a classloader
+   * @return the number of classes it defined, -1 if it doesn't count them
+   */
+  static int getLoadedClassCount(ClassLoader classLoader) {
+    return classLoader instanceof CountingClassLoader ? ((CountingClassLoader) classLoader).getLoadedClassCount() : -1;
+  }
+
+}
@@ -1,10 +1,47 @@
 package com.github.bderancourt.springboot.isolatedrunner.launcher;
 
+import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
 public interface Dependency {
 
   public static final String RUNNER_CLASS = "com.github.bderancourt.springboot.isolatedrunner.launcher.SpringBootIsolatedLauncher";
   public static final String MANIFEST_CLASSPATH = "Class-Path";
 
-  void start(String[] args) throws Exception;
+  /**
+   * @return the isolated classpath of the spring-boot app, resolved once
+   * @throws Exception
+   *           if the classpath can't be resolved
+   */
+  URL[] getClassPath() throws Exception;
+
+  /**
+   * @param sharedLayer
+   *          the layer holding the jars shared with other apps, the app classloader will be its child
+   */
+  void setSharedLayer(SharedClassLoaderLayer sharedLayer);
+
+  /**
+   * Create the isolated classloader and launch the spring-boot app, without waiting for it to be ready.
+   * 
+   * @param args
+   *          to pass to the spring-boot app
+   * @param executor
+   *          runs the spring-boot app startup
+   * @param timeout
+   *          the maximum duration of the startup, null for none
+   * @return the handle of the app
+   * @throws Exception
+   *           if the classloader can't be created
+   */
+  IsolatedAppHandle start(String[] args, Executor executor, Duration timeout) throws Exception;
+
+  /**
+   * @return the durations of the startup phases of the app, completed while the app starts
+   */
+  StartupReport getStartupReport();
+
+  void stop() throws Exception;
 
 }
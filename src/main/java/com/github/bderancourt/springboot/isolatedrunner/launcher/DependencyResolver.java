@@ -0,0 +1,98 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the jars of the manifest Class-Path of a spring-boot app run from its target/classes directory. The
+ * resolvers run by order, each one getting the jars not resolved by the previous ones:
+ * <ul>
+ * <li>100 to 300, the JVM classpath: exact match, version mismatch and eclipse related projects</li>
+ * <li>400, the maven local repository</li>
+ * <li>500, the gradle modules cache</li>
+ * </ul>
+ * More resolvers are discovered with the {@link java.util.ServiceLoader}, in
+ * META-INF/services/com.github.bderancourt.springboot.isolatedrunner.launcher.DependencyResolver. The consecutive
+ * concurrent resolvers run in parallel on the same jars, when several of them resolve a jar the first by order wins.
+ *
+ * @author bderancourt
+ */
+public interface DependencyResolver {
+
+  /**
+   * @return the resolver name, also the name of its phase in the startup report
+   */
+  String getName();
+
+  /**
+   * @return the position of the resolver, the lowest runs first
+   */
+  default int getOrder() {
+    return 1000;
+  }
+
+  /**
+   * @return true if the resolver can run in parallel with its concurrent neighbours
+   */
+  default boolean isConcurrent() {
+    return false;
+  }
+
+  /**
+   * @param request
+   *          the jars to resolve
+   * @return the URL of each jar resolved, the jars not found are left out
+   * @throws Exception
+   *           if the resolver fails, the jars are then left to the next resolvers
+   */
+  Map<String, URL> resolve(Request request) throws Exception;
+
+  /**
+   * The jars remaining to resolve
+   */
+  class Request {
+
+    private final List<String> jars;
+
+    private final List<URL> jvmClassPath;
+
+    private final StartupReport startupReport;
+
+    private final ClassPathMatcher matcher;
+
+    Request(List<String> jars, List<URL> jvmClassPath, StartupReport startupReport, ClassPathMatcher matcher) {
+      this.jars = Collections.unmodifiableList(jars);
+      this.jvmClassPath = jvmClassPath;
+      this.startupReport = startupReport;
+      this.matcher = matcher;
+    }
+
+    /**
+     * @return the jar file names not resolved yet, in the manifest order
+     */
+    public List<String> getJars() {
+      return jars;
+    }
+
+    /**
+     * @return the URLs of this JVM classpath
+     */
+    public List<URL> getJvmClassPath() {
+      return jvmClassPath;
+    }
+
+    /**
+     * @return the startup report of the app, to record the sub phases of a resolver
+     */
+    public StartupReport getStartupReport() {
+      return startupReport;
+    }
+
+    ClassPathMatcher getMatcher() {
+      return matcher;
+    }
+  }
+
+}
@@ -0,0 +1,274 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.github.bderancourt.springboot.isolatedrunner.util.CanonicalPaths;
+import com.github.bderancourt.springboot.isolatedrunner.util.GradleCacheIndex;
+import com.github.bderancourt.springboot.isolatedrunner.util.MavenRepositoryIndex;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The built-in {@link DependencyResolver}s and the resolution of the manifest jars through an ordered list of
+ * resolvers.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+class DependencyResolvers {
+
+  private static volatile List<DependencyResolver> discovered;
+
+  private DependencyResolvers() {
+  };
+
+  /**
+   * A matching phase of the {@link ClassPathMatcher} on this JVM classpath
+   */
+  private static class JvmClassPathResolver implements DependencyResolver {
+
+    private final String name;
+
+    private final int order;
+
+    private final Function<ClassPathMatcher, Map<String, URL>> phase;
+
+    private JvmClassPathResolver(String name, int order, Function<ClassPathMatcher, Map<String, URL>> phase) {
+      this.name = name;
+      this.order = order;
+      this.phase = phase;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public int getOrder() {
+      return order;
+    }
+
+    @Override
+    public Map<String, URL> resolve(Request request) {
+      // the matcher is shared by the phases, the jars resolved by the other resolvers in between are forgotten
+      request.getMatcher()
+          .retainJars(request.getJars());
+      return phase.apply(request.getMatcher());
+    }
+  }
+
+  /**
+   * The maven local repository, scanned once and indexed by jar file name. Skipped if the repository can't be located
+   * without forking maven, unless the fork is enabled: maven is then only asked when jars are left to this resolver.
+   */
+  private static class MavenRepositoryResolver implements DependencyResolver {
+
+    private final Callable<Optional<String>> mavenRepository;
+
+    private MavenRepositoryResolver(Callable<Optional<String>> mavenRepository) {
+      this.mavenRepository = mavenRepository;
+    }
+
+    @Override
+    public String getName() {
+      return StartupReport.MAVEN_REPOSITORY_LOOKUP;
+    }
+
+    @Override
+    public int getOrder() {
+      return 400;
+    }
+
+    @Override
+    public boolean isConcurrent() {
+      return true;
+    }
+
+    @Override
+    public Map<String, URL> resolve(Request request) throws Exception {
+      long phaseNanos = System.nanoTime();
+      Optional<String> mvnRepoPath = mavenRepository.call();
+      request.getStartupReport()
+          .record(StartupReport.MAVEN_REPOSITORY_LOCATION, phaseNanos, -1);
+
+      Map<String, URL> urls = new LinkedHashMap<>();
+      if (!mvnRepoPath.isPresent()) {
+        return urls;
+      }
+      MavenRepositoryIndex mvnRepoIndex = MavenRepositoryIndex.of(Paths.get(mvnRepoPath.get()));
+      for (String jar : request.getJars()) {
+        Optional<Path> optMvnJarPath = mvnRepoIndex.find(jar);
+        if (optMvnJarPath.isPresent()) {
+          urls.put(jar, CanonicalPaths.toCanonicalURL(optMvnJarPath.get()));
+        }
+      }
+      return urls;
+    }
+  }
+
+  /**
+   * The gradle modules cache, indexed by artifactId
+   */
+  private static class GradleCacheResolver implements DependencyResolver {
+
+    @Override
+    public String getName() {
+      return StartupReport.GRADLE_CACHE_LOOKUP;
+    }
+
+    @Override
+    public int getOrder() {
+      return 500;
+    }
+
+    @Override
+    public boolean isConcurrent() {
+      return true;
+    }
+
+    @Override
+    public Map<String, URL> resolve(Request request) throws Exception {
+      Map<String, URL> urls = new LinkedHashMap<>();
+      Path cache = GradleCacheIndex.getDefaultCache();
+      if (!cache.toFile()
+          .isDirectory()) {
+        return urls;
+      }
+      GradleCacheIndex gradleCacheIndex = GradleCacheIndex.of(cache);
+      for (String jar : request.getJars()) {
+        Optional<Path> optGradleJarPath = gradleCacheIndex.find(jar);
+        if (optGradleJarPath.isPresent()) {
+          urls.put(jar, CanonicalPaths.toCanonicalURL(optGradleJarPath.get()));
+        }
+      }
+      return urls;
+    }
+  }
+
+  /**
+   * @param mavenRepository
+   *          locates the maven local repository, empty if it can't be located, only called if some jars are not on
+   *          this JVM classpath
+   * @return the built-in resolvers and the ones discovered with the ServiceLoader, by order
+   */
+  static List<DependencyResolver> of(Callable<Optional<String>> mavenRepository) {
+    List<DependencyResolver> resolvers = new ArrayList<>();
+    // Ex: file:/C:/m2repo/com/google/code/findbugs/jsr305/3.0.2/jsr305-3.0.2.jar matching jsr305-3.0.2.jar
+    resolvers.add(new JvmClassPathResolver(StartupReport.EXACT_MATCH, 100, ClassPathMatcher::exactMatch));
+    // For dependency management reasons, the jars in the manifest may not be on the same version as in this classpath
+    resolvers.add(new JvmClassPathResolver(StartupReport.VERSION_MISMATCH_MATCH, 200,
+        ClassPathMatcher::matchesButNotTheVersion));
+    // If you ran your program in eclipse, eclipse put in classpath the related projects target/classes dirs
+    resolvers.add(new JvmClassPathResolver(StartupReport.ECLIPSE_PROJECTS_MATCH, 300,
+        ClassPathMatcher::matchesEclipseRelatedProject));
+    resolvers.add(new MavenRepositoryResolver(mavenRepository));
+    resolvers.add(new GradleCacheResolver());
+    resolvers.addAll(discover());
+    // stable sort, the built-in resolvers stay first on equal orders
+    resolvers.sort(Comparator.comparingInt(DependencyResolver::getOrder));
+    return resolvers;
+  }
+
+  private static List<DependencyResolver> discover() {
+    if (discovered == null) {
+      List<DependencyResolver> resolvers = new ArrayList<>();
+      for (DependencyResolver resolver : ServiceLoader.load(DependencyResolver.class, DependencyResolver.class
+          .getClassLoader())) {
+        log.debug("dependency resolver {} discovered", resolver.getName());
+        resolvers.add(resolver);
+      }
+      discovered = Collections.unmodifiableList(resolvers);
+    }
+    return discovered;
+  }
+
+  /**
+   * Resolve the jars through the resolvers, by order. The resolution stops as soon as all the jars are resolved.
+   *
+   * @param resolvers
+   *          the resolvers, by order
+   * @param jars
+   *          the jars of the manifest Class-Path
+   * @param jvmClassPath
+   *          the URLs of this JVM classpath
+   * @param startupReport
+   *          the report where the phase of each resolver is recorded
+   * @return the URL of each jar resolved, in the resolution order
+   */
+  static Map<String, URL> resolve(List<DependencyResolver> resolvers, List<String> jars, List<URL> jvmClassPath,
+      StartupReport startupReport) {
+    Map<String, URL> resolved = new LinkedHashMap<>();
+    Set<String> manifestJars = new HashSet<>(jars);
+    ClassPathMatcher matcher = new ClassPathMatcher(jvmClassPath, jars);
+    int i = 0;
+    while (i < resolvers.size() && resolved.size() < manifestJars.size()) {
+      // the consecutive concurrent resolvers run together, on the same remaining jars
+      int end = i + 1;
+      if (resolvers.get(i)
+          .isConcurrent()) {
+        while (end < resolvers.size() && resolvers.get(end)
+            .isConcurrent()) {
+          end++;
+        }
+      }
+      List<String> remainingJars = jars.stream()
+          .filter(jar -> !resolved.containsKey(jar))
+          .collect(Collectors.toList());
+      DependencyResolver.Request request = new DependencyResolver.Request(remainingJars, jvmClassPath,
+          startupReport, matcher);
+
+      List<DependencyResolver> batch = resolvers.subList(i, end);
+      List<CompletableFuture<Map<String, URL>>> results = new ArrayList<>();
+      for (DependencyResolver resolver : batch.subList(1, batch.size())) {
+        results.add(CompletableFuture.supplyAsync(() -> resolve(resolver, request)));
+      }
+      results.add(0, CompletableFuture.completedFuture(resolve(batch.get(0), request)));
+
+      // dedup, a jar resolved by several resolvers of the batch keeps the URL of the first one by order
+      for (CompletableFuture<Map<String, URL>> result : results) {
+        result.join()
+            .forEach((jar, url) -> {
+              if (manifestJars.contains(jar)) {
+                resolved.putIfAbsent(jar, url);
+              }
+            });
+      }
+      i = end;
+    }
+    return resolved;
+  }
+
+  private static Map<String, URL> resolve(DependencyResolver resolver, DependencyResolver.Request request) {
+    long phaseNanos = System.nanoTime();
+    log.debug(resolver.getName());
+    Map<String, URL> urls;
+    try {
+      urls = resolver.resolve(request);
+    } catch (Exception e) {
+      log.warn("dependency resolver {} failed, its jars are left to the next resolvers", resolver.getName(), e);
+      urls = Collections.emptyMap();
+    }
+    urls.forEach((jar, url) -> log.debug("adding url {} matching {}", url, jar));
+    request.getStartupReport()
+        .record(resolver.getName(), phaseNanos, urls.size());
+    return urls;
+  }
+
+}
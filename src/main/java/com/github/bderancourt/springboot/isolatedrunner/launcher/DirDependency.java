@@ -4,33 +4,30 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
 import java.util.jar.Manifest;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Stream;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
-import org.springframework.boot.loader.LaunchedURLClassLoader;
 import org.springframework.boot.loader.jar.JarFile;
 
+import com.github.bderancourt.springboot.isolatedrunner.util.ClassPathCache;
 import com.github.bderancourt.springboot.isolatedrunner.util.ClassPathUtils;
+import com.github.bderancourt.springboot.isolatedrunner.util.MavenRepositoryLocator;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -45,24 +42,130 @@ public class DirDependency implements Dependency {
 
   private String mainClass;
 
-  private Class<?> runnerClass;
+  private IsolatedAppHandle handle;
 
-  private Object runnerInstance;
+  private URL[] classPathUrls;
+
+  private PackageIndex packageIndex;
+
+  private SharedClassLoaderLayer sharedLayer;
+
+  private boolean watch;
+
+  private final StartupReport startupReport;
 
   public DirDependency(URL classPathDependencyUrl, String name, String mainClass) {
     this.classPathDependencyUrl = classPathDependencyUrl;
     this.name = name;
     this.mainClass = mainClass;
+    this.startupReport = new StartupReport(name);
+  }
+
+  @Override
+  public IsolatedAppHandle start(String[] args, Executor executor, Duration timeout) throws Exception {
+    long startNanos = System.nanoTime();
+    JarFile.registerUrlProtocolHandler();
+    URL[] classPath = getClassPath();
+    if (watch) {
+      return startWatched(classPath, args, executor, timeout, startNanos);
+    }
+    long phaseNanos = System.nanoTime();
+    ClassLoader classLoader = createClassLoader(classPath);
+    startupReport.record(StartupReport.CLASSLOADER_CREATION, phaseNanos, classPath.length);
+
+    handle = IsolatedAppHandle.launch(name, classLoader, mainClass, args, executor, timeout, startNanos,
+        startupReport);
+    return handle;
   }
 
   /**
-   * @param args
-   *          to pass to the spring-boot app
-   * @throws Exception
-   *           if an error occurs during the spring-boot app startup
+   * @param watch
+   *          true to reload the application classes when the class directories of the app change, false by default
+   * @return this dependency
+   */
+  public DirDependency watch(boolean watch) {
+    this.watch = watch;
+    return this;
+  }
+
+  /**
+   * Launch the app with its class directories, the app one and the eclipse related projects ones, in a child
+   * classloader of the jars classloader. When the class directories change, only the child classloader is replaced:
+   * the jars and the classes loaded from them are reused.
    */
-  public void start(String[] args) throws Exception {
+  private IsolatedAppHandle startWatched(URL[] classPath, String[] args, Executor executor, Duration timeout,
+      long startNanos) throws Exception {
+    List<URL> classDirectories = new ArrayList<>();
+    List<URL> jars = new ArrayList<>();
+    for (URL url : classPath) {
+      if ("file".equals(url.getProtocol()) && url.getPath()
+          .endsWith("/")) {
+        classDirectories.add(url);
+      } else {
+        jars.add(url);
+      }
+    }
+    long phaseNanos = System.nanoTime();
+    URL[] jarUrls = jars.toArray(new URL[0]);
+    ClassLoader jarsClassLoader = sharedLayer != null ? sharedLayer.createClassLoader(jarUrls)
+        : new CountingClassLoader(jarUrls, null);
+    URL[] classDirectoryUrls = classDirectories.toArray(new URL[0]);
+    ClassLoader classLoader = new CountingClassLoader(classDirectoryUrls, jarsClassLoader);
+    startupReport.record(StartupReport.CLASSLOADER_CREATION, phaseNanos, classPath.length);
+
+    IsolatedAppHandle watchedHandle = IsolatedAppHandle.launch(name, classLoader, mainClass, args, executor, timeout,
+        startNanos, startupReport);
+    List<Path> directories = new ArrayList<>();
+    for (URL url : classDirectories) {
+      directories.add(Paths.get(url.toURI()));
+    }
+    ClassDirectoryWatcher watcher = new ClassDirectoryWatcher(name, directories, () -> {
+      try {
+        watchedHandle.reloadAsync(() -> new CountingClassLoader(classDirectoryUrls, jarsClassLoader), mainClass,
+            executor);
+      } catch (Exception e) {
+        log.warn("Unable to reload {}", name, e);
+      }
+    });
+    // closed once the app classloader is released, the watcher first
+    watchedHandle.addCloseable(watcher);
+    watchedHandle.addCloseable(() -> ClassLoaderCleaner.release(jarsClassLoader, name));
+    watcher.start();
+    log.info("watching {} class directories of {}", directories.size(), name);
+    handle = watchedHandle;
+    return handle;
+  }
+
+  @Override
+  public URL[] getClassPath() throws Exception {
+    if (classPathUrls == null) {
+      long phaseNanos = System.nanoTime();
+      Optional<ClassPathPlan> plan = ClassPathPlan.load(new File(classPathDependencyUrl.toURI()));
+      startupReport.record(StartupReport.CLASSPATH_PLAN, phaseNanos, plan.map(p -> p.getEntries()
+          .size())
+          .orElse(0));
+      classPathUrls = plan.isPresent() ? constructClassPath(plan.get(), classPathDependencyUrl)
+          : resolveClassPath();
+
+      log.debug("Loaded isolated classpath for " + name);
+      Arrays.stream(classPathUrls)
+          .map(Objects::toString)
+          .forEach(log::debug);
+      if (PackageIndex.isLazy()) {
+        long indexNanos = System.nanoTime();
+        packageIndex = PackageIndex.load(classPathUrls);
+        startupReport.record(StartupReport.PACKAGE_INDEX, indexNanos, packageIndex.size());
+      }
+    }
+    return classPathUrls;
+  }
 
+  /**
+   * Resolve the classpath from the manifest Class-Path of the app and this JVM classpath, or get it from the
+   * {@link ClassPathCache}.
+   */
+  private URL[] resolveClassPath() throws Exception {
+    long phaseNanos = System.nanoTime();
     Path manifestPath = Paths.get(new File(classPathDependencyUrl.toURI()).toString(), "META-INF", "MANIFEST.MF");
 
     Manifest manifest;
@@ -70,29 +173,53 @@ public class DirDependency implements Dependency {
       manifest = new Manifest(is);
     }
 
-    URL[] classPathUrls = constructClassPath(manifest.getMainAttributes()
-        .getValue(MANIFEST_CLASSPATH), classPathDependencyUrl);
-
-    log.debug("Loaded isolated classpath for " + name);
-    Arrays.stream(classPathUrls)
-        .map(Objects::toString)
-        .forEach(log::debug);
-
-    JarFile.registerUrlProtocolHandler();
-    ClassLoader classLoader = createClassLoader(classPathUrls);
+    String manifestClassPath = manifest.getMainAttributes()
+        .getValue(MANIFEST_CLASSPATH);
+    String cacheKey = getClassPathCacheKey(manifestClassPath);
+    phaseNanos = startupReport.record(StartupReport.MANIFEST_READ, phaseNanos, -1);
+    Optional<URL[]> cachedUrls = ClassPathCache.get(cacheKey);
+    startupReport.record(StartupReport.CLASSPATH_CACHE, phaseNanos, cachedUrls.map(urls -> urls.length)
+        .orElse(0));
+    if (cachedUrls.isPresent()) {
+      return cachedUrls.get();
+    }
+    URL[] urls = constructClassPath(manifestClassPath, classPathDependencyUrl);
+    ClassPathCache.put(cacheKey, urls);
+    return urls;
+  }
 
-    runnerClass = classLoader.loadClass(RUNNER_CLASS);
-    Class<?> configClass = classLoader.loadClass(mainClass);
+  @Override
+  public void setSharedLayer(SharedClassLoaderLayer sharedLayer) {
+    this.sharedLayer = sharedLayer;
+  }
 
-    Object runner = runnerClass.getDeclaredConstructor(Class.class, String[].class, String.class)
-        .newInstance(configClass, args, name);
-    runnerClass.getMethod("run")
-        .invoke(runner);
+  @Override
+  public StartupReport getStartupReport() {
+    return startupReport;
   }
 
+  @Override
   public void stop() throws Exception {
-    runnerClass.getMethod("stop")
-        .invoke(runnerInstance);
+    if (handle != null) {
+      handle.stop();
+    }
+  }
+
+  /**
+   * The resolved classpath only depends on the manifest Class-Path and on this JVM classpath. The maven repository
+   * and gradle cache jars are checked by the last modified times stored with the cached classpath.
+   */
+  private String getClassPathCacheKey(String manifestClassPath) {
+    URLClassLoader systemClassLoader = (URLClassLoader) ClassLoader.getSystemClassLoader();
+    StringBuilder key = new StringBuilder("dir\n").append(classPathDependencyUrl)
+        .append('\n')
+        .append(manifestClassPath)
+        .append('\n');
+    for (URL url : systemClassLoader.getURLs()) {
+      key.append(url)
+          .append(' ');
+    }
+    return key.toString();
   }
 
   /**
@@ -105,12 +232,43 @@ public class DirDependency implements Dependency {
    *           if the classloader cannot be created
    */
   protected ClassLoader createClassLoader(URL[] urls) throws Exception {
-    return new LaunchedURLClassLoader(urls, null);
+    if (sharedLayer != null) {
+      return sharedLayer.createClassLoader(urls);
+    }
+    if (packageIndex != null) {
+      return new IndexedClassLoader(urls, packageIndex, null);
+    }
+    return new CountingClassLoader(urls, null);
+  }
+
+  /**
+   * Constructs the spring-boot app classpath from the plan resolved at build time, without any matching.
+   * 
+   * @param plan
+   *          the classpath plan of the app
+   * @param classPathDependencyUrl
+   *          the URL to the spring boot app to run
+   * @return spring-boot app classpath
+   * @throws Exception
+   *           if the runner jars are not found
+   */
+  protected URL[] constructClassPath(ClassPathPlan plan, URL classPathDependencyUrl) throws Exception {
+    List<URL> urls = new ArrayList<>();
+    urls.add(classPathDependencyUrl);
+
+    long phaseNanos = System.nanoTime();
+    urls.add(ClassPathUtils.findDependencyURL("spring-boot-isolated-runner"));
+    urls.add(ClassPathUtils.findDependencyURL("org/springframework/boot/spring-boot/"));
+    startupReport.record(StartupReport.RUNNER_JARS_LOOKUP, phaseNanos, 2);
+
+    log.debug("classpath of {} loaded from plan {}", name, plan);
+    urls.addAll(plan.getUrls());
+    return urls.toArray(new URL[0]);
   }
 
   /**
    * Constructs the spring-boot app classpath. Based on the jar list on the spring-boot app manifest, we need to match
-   * which URL on this application classpath (JVM) is relevant.
+   * which URL on this application classpath (JVM) is relevant, or to find the jar with a {@link DependencyResolver}.
    * 
    * @param manifestClassPath
    *          the list of jars defined in the Class-Path key of the manifest
@@ -128,117 +286,29 @@ public class DirDependency implements Dependency {
     // We add the spring-boot program itself in the classpath
     urls.add(classPathDependencyUrl);
 
+    long phaseNanos = System.nanoTime();
     urls.add(ClassPathUtils.findDependencyURL("spring-boot-isolated-runner"));
     urls.add(ClassPathUtils.findDependencyURL("org/springframework/boot/spring-boot/"));
-
-    // In this list, we store all this JVM classpath.
-    List<URL> classPathUrls = new ArrayList<>();
-    classPathUrls.addAll(Arrays.asList(systemClassLoader.getURLs()));
+    startupReport.record(StartupReport.RUNNER_JARS_LOOKUP, phaseNanos, 2);
 
     // In this list, we store the jars found in the spring-boot app manifest.
-    List<String> manifestJars = Collections.synchronizedList(new ArrayList<>());
-    manifestJars.addAll(Arrays.asList(manifestClassPath.split(" ")));
+    List<String> manifestJars = Arrays.asList(manifestClassPath.split(" "));
     log.debug("##### spring-boot dependencies to find #####");
     manifestJars.stream().forEach(log::debug);
     log.debug("##### spring-boot dependencies to find #####");
 
-    // First try, find the exact matching between the jar and the program classpath URL
-    // Ex: file:/C:/m2repo/com/google/code/findbugs/jsr305/3.0.2/jsr305-3.0.2.jar matching jsr305-3.0.2.jar
-    log.debug("exact match");
-    if (!manifestJars.isEmpty()) {
-      for (ListIterator<URL> itUrls = classPathUrls.listIterator(); itUrls.hasNext();) {
-        URL url = itUrls.next();
-        for (ListIterator<String> it = manifestJars.listIterator(); it.hasNext();) {
-          String jar = it.next();
-          URL matchingUrl = exactMatch(url, jar);
-          if (matchingUrl != null) {
-            log.debug("adding url {} matching {}", matchingUrl, jar);
-            urls.add(matchingUrl);
-            it.remove();
-            itUrls.remove();
-          }
-        }
-      }
-    }
-
-    // Second try. For dependency management reasons, we potentially have jars in the manifest
-    // that are not exactly on the same version as in the program classpath URLs.
-    // Initialize regex pattern
-    log.debug("version not match");
-    if (!manifestJars.isEmpty()) {
-      for (ListIterator<URL> itUrls = classPathUrls.listIterator(); itUrls.hasNext();) {
-        URL url = itUrls.next();
-        for (ListIterator<String> it = manifestJars.listIterator(); it.hasNext();) {
-          String jar = it.next();
-          URL matchingUrl = matchesButNotTheVersion(url, jar);
-          if (matchingUrl != null) {
-            log.debug("adding url {} matching {}", matchingUrl, jar);
-            urls.add(matchingUrl);
-            it.remove();
-            itUrls.remove();
-          }
-        }
-      }
-    }
-
-    // Third try. If you ran your program in eclipse, eclipse put in classpath the related projects target/classes dirs
-    log.debug("eclipse's related projects");
-    if (!manifestJars.isEmpty()) {
-      for (ListIterator<URL> itUrls = classPathUrls.listIterator(); itUrls.hasNext();) {
-        URL url = itUrls.next();
-        for (ListIterator<String> it = manifestJars.listIterator(); it.hasNext();) {
-          String jar = it.next();
-
-          URL matchingUrl = matchesEclipseRelatedProject(url, jar);
-          if (matchingUrl != null) {
-            log.debug("adding url {} matching {}", matchingUrl, jar);
-            urls.add(matchingUrl);
-            it.remove();
-            itUrls.remove();
-          }
-        }
-      }
-    }
+    // The resolvers run by order: this JVM classpath, the maven local repository, the gradle cache, then the
+    // resolvers of the ServiceLoader
+    Map<String, URL> resolvedUrls = DependencyResolvers.resolve(DependencyResolvers.of(this::findMavenRepository),
+        manifestJars, Arrays.asList(systemClassLoader.getURLs()), startupReport);
+    urls.addAll(resolvedUrls.values());
 
-    // Fourth try, find the jar in the maven local repository
-    log.debug("find jar in maven repo");
-    if (!manifestJars.isEmpty()) {
-
-      // retrieve maven local repository path
-      String mvnRepoPath = getMavenRepository();
-
-      List<String> jarsToRemove = Collections.synchronizedList(new ArrayList<>());
-      synchronized (manifestJars) {
-        manifestJars.parallelStream()
-            .forEach(jar -> {
-              Optional<Path> optMvnJarPath = Optional.empty();
-              try (Stream<Path> walk = Files.walk(Paths.get(mvnRepoPath))) {
-                optMvnJarPath = walk.filter(Files::isRegularFile)
-                    .filter(path -> path.getFileName()
-                        .toString()
-                        .equals(jar))
-                    .findFirst();
-                if (optMvnJarPath.isPresent()) {
-                  URL url = Paths.get(optMvnJarPath.get()
-                      .toString())
-                      .toFile()
-                      .getCanonicalFile()
-                      .toURI()
-                      .toURL();
-                  log.debug("adding url {} matching {}", url, jar);
-                  urls.add(url);
-                  jarsToRemove.add(jar);
-                }
-              } catch (IOException e) {
-                throw new UncheckedIOException(e);
-              }
-            });
-        manifestJars.removeAll(jarsToRemove);
-      }
-    }
-    if (!manifestJars.isEmpty()) {
+    List<String> remainingJars = manifestJars.stream()
+        .filter(jar -> !resolvedUrls.containsKey(jar))
+        .collect(Collectors.toList());
+    if (!remainingJars.isEmpty()) {
       log.warn("##### residual unload dependencies #####");
-      manifestJars.stream().forEach(log::warn);
+      remainingJars.stream().forEach(log::warn);
       log.warn("##### residual unload dependencies #####");
       throw new Exception("Unable to load all needed dependencies !");
     }
@@ -297,26 +367,17 @@ public class DirDependency implements Dependency {
     return null;
   }
 
-
-  protected String getMavenRepository() throws IOException, InterruptedException {
-    List<String> command = new ArrayList<>();
-    if (System.getProperty("os.name")
-        .toLowerCase()
-        .startsWith("windows")) {
-      command.addAll(Arrays.asList("cmd.exe", "/c"));
-    } else {
-      command.addAll(Arrays.asList("sh", "-c"));
-    }
-    command
-        .addAll(Arrays.asList("mvn", "help:evaluate", "-Dexpression=settings.localRepository", "-q", "-DforceStdout"));
-
-    ProcessBuilder pb = new ProcessBuilder(command);
-    Process p = pb.start();
-    if (p.waitFor(30, TimeUnit.SECONDS) && p.exitValue() == 0) {
-      return IOUtils.toString(p.getInputStream(), Charset.defaultCharset())
-          .trim();
+  /**
+   * @return the maven local repository, asking a maven process as a last resort if enabled
+   * @throws Exception
+   *           if the maven process fails
+   */
+  protected Optional<String> findMavenRepository() throws Exception {
+    Optional<String> repository = MavenRepositoryLocator.findMavenRepository();
+    if (!repository.isPresent() && MavenRepositoryLocator.isForkEnabled()) {
+      return Optional.of(MavenRepositoryLocator.getMavenRepository());
     }
-    throw new IOException("Unable to find maven local repository path. Is maven installed in your system ?");
+    return repository;
   }
 
 }
@@ -0,0 +1,256 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lazy classloader routing the class and resource lookups with a {@link PackageIndex}. A class or a resource of a
+ * package found in a single jar is read from this jar only, the jar being opened on the first lookup of one of its
+ * entries. A class of a package absent from the classpath isn't searched at all. The classes and resources of the split
+ * packages, found in several jars, are searched in the classpath order like the URLClassLoader does.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+class IndexedClassLoader extends CountingClassLoader {
+
+  static {
+    ClassLoader.registerAsParallelCapable();
+  }
+
+  private final PackageIndex index;
+
+  private final IndexedJar[] jars;
+
+  IndexedClassLoader(URL[] urls, PackageIndex index, ClassLoader parent) {
+    super(urls, parent);
+    this.index = index;
+    this.jars = new IndexedJar[urls.length];
+    for (int i = 0; i < urls.length; i++) {
+      jars[i] = new IndexedJar(urls[i]);
+    }
+  }
+
+  @Override
+  protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+    // the package is defined before the LaunchedURLClassLoader looks for it in all the jars
+    int lastDot = name.lastIndexOf('.');
+    if (lastDot > 0) {
+      String packageName = name.substring(0, lastDot);
+      int[] packageJars = index.getJars(packageName.replace('.', '/'));
+      if (packageJars.length == 1 && getPackage(packageName) == null) {
+        definePackage(packageName, jars[packageJars[0]]);
+      }
+    }
+    return super.loadClass(name, resolve);
+  }
+
+  @Override
+  protected Class<?> findClassInClassPath(String name) throws ClassNotFoundException {
+    int lastDot = name.lastIndexOf('.');
+    int[] packageJars = index.getJars(lastDot < 0 ? "" : name.substring(0, lastDot)
+        .replace('.', '/'));
+    if (packageJars.length == 0) {
+      throw new ClassNotFoundException(name);
+    }
+    if (packageJars.length > 1) {
+      return super.findClassInClassPath(name);
+    }
+    IndexedJar jar = jars[packageJars[0]];
+    try {
+      byte[] bytes = jar.read(name.replace('.', '/') + ".class");
+      if (bytes == null) {
+        throw new ClassNotFoundException(name);
+      }
+      return defineClass(name, bytes, 0, bytes.length, jar.codeSource);
+    } catch (IOException e) {
+      throw new ClassNotFoundException(name, e);
+    }
+  }
+
+  @Override
+  public URL findResource(String name) {
+    IndexedJar jar = getOwningJar(name);
+    if (jar != null) {
+      try {
+        URL url = jar.getResource(name);
+        if (url != null) {
+          return url;
+        }
+      } catch (IOException e) {
+        log.debug("Unable to read {} in {}", name, jar.url, e);
+      }
+    }
+    // a resource missing from the owning jar may be a directory entry of another jar
+    return super.findResource(name);
+  }
+
+  @Override
+  public Enumeration<URL> findResources(String name) throws IOException {
+    IndexedJar jar = getOwningJar(name);
+    if (jar != null) {
+      URL url = jar.getResource(name);
+      if (url != null) {
+        return Collections.enumeration(Collections.singletonList(url));
+      }
+    }
+    return super.findResources(name);
+  }
+
+  /**
+   * @return the only jar containing the package of the resource, null for a split package or a directory lookup
+   */
+  private IndexedJar getOwningJar(String resourceName) {
+    if (resourceName.endsWith("/")) {
+      return null;
+    }
+    int lastSlash = resourceName.lastIndexOf('/');
+    int[] packageJars = index.getJars(lastSlash < 0 ? "" : resourceName.substring(0, lastSlash));
+    return packageJars.length == 1 ? jars[packageJars[0]] : null;
+  }
+
+  private void definePackage(String packageName, IndexedJar jar) {
+    try {
+      Manifest manifest = jar.getManifest();
+      if (manifest != null) {
+        definePackage(packageName, manifest, jar.url);
+      } else {
+        definePackage(packageName, null, null, null, null, null, null, null);
+      }
+    } catch (IllegalArgumentException e) {
+      // defined by another thread meanwhile
+    } catch (IOException e) {
+      log.debug("Unable to read the manifest of {}", jar.url, e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (IndexedJar jar : jars) {
+      jar.close();
+    }
+    super.close();
+  }
+
+  /**
+   * A jar or a directory of the classpath, opened on first use
+   */
+  private static class IndexedJar implements Closeable {
+
+    private final URL url;
+
+    private final CodeSource codeSource;
+
+    private JarFile jarFile;
+
+    // the nested jars are opened and closed by the spring-boot loader
+    private boolean ownedJarFile;
+
+    private Manifest manifest;
+
+    private boolean manifestRead;
+
+    private IndexedJar(URL url) {
+      this.url = url;
+      this.codeSource = new CodeSource(url, (CodeSigner[]) null);
+    }
+
+    private boolean isDirectory() {
+      return "file".equals(url.getProtocol()) && url.getFile()
+          .endsWith("/");
+    }
+
+    private synchronized JarFile getJarFile() throws IOException {
+      if (jarFile == null) {
+        if ("jar".equals(url.getProtocol())) {
+          jarFile = ((JarURLConnection) url.openConnection()).getJarFile();
+        } else {
+          jarFile = new JarFile(FileUtils.toFile(url));
+          ownedJarFile = true;
+        }
+      }
+      return jarFile;
+    }
+
+    /**
+     * @return the content of the entry, null if it doesn't exist
+     */
+    private byte[] read(String entryName) throws IOException {
+      if (isDirectory()) {
+        Path file = Paths.get(FileUtils.toFile(url)
+            .toURI())
+            .resolve(entryName);
+        return Files.isRegularFile(file) ? Files.readAllBytes(file) : null;
+      }
+      JarFile jar = getJarFile();
+      ZipEntry entry = jar.getEntry(entryName);
+      if (entry == null) {
+        return null;
+      }
+      try (InputStream is = jar.getInputStream(entry)) {
+        return IOUtils.toByteArray(is);
+      }
+    }
+
+    /**
+     * @return the URL of the entry, null if it doesn't exist
+     */
+    private URL getResource(String entryName) throws IOException {
+      if (isDirectory()) {
+        Path file = Paths.get(FileUtils.toFile(url)
+            .toURI())
+            .resolve(entryName);
+        return Files.exists(file) ? file.toUri()
+            .toURL() : null;
+      }
+      if (getJarFile().getEntry(entryName) == null) {
+        return null;
+      }
+      String path;
+      try {
+        path = new URI(null, null, entryName, null).getRawPath();
+      } catch (URISyntaxException e) {
+        throw new IOException(e);
+      }
+      // the nested jar URLs end with !/
+      return "jar".equals(url.getProtocol()) ? new URL(url, path) : new URL("jar:" + url + "!/" + path);
+    }
+
+    private synchronized Manifest getManifest() throws IOException {
+      if (!manifestRead) {
+        manifest = isDirectory() ? null : getJarFile().getManifest();
+        manifestRead = true;
+      }
+      return manifest;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      if (jarFile != null && ownedJarFile) {
+        jarFile.close();
+      }
+      jarFile = null;
+    }
+  }
+
+}
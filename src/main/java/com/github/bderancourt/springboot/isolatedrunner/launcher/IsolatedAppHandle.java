@@ -0,0 +1,580 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Handle on a spring-boot app started in its isolated classloader.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class IsolatedAppHandle {
+
+  private static final ScheduledThreadPoolExecutor TIMEOUT_SCHEDULER = new ScheduledThreadPoolExecutor(1,
+      runnable -> {
+        Thread thread = new Thread(runnable, "isolated-runner-timeout");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  static {
+    // a cancelled timeout must not keep a reference to the app context until its deadline
+    TIMEOUT_SCHEDULER.setRemoveOnCancelPolicy(true);
+  }
+
+  private final String name;
+
+  private WeakReference<ClassLoader> classLoaderReference;
+
+  private final List<AutoCloseable> closeables = new ArrayList<>();
+
+  // the strong references to the app are released by stop()
+  private ClassLoader classLoader;
+
+  private Object launcher;
+
+  private volatile CompletableFuture<Object> applicationContext;
+
+  private volatile Duration startupDuration;
+
+  private volatile StartupReport startupReport;
+
+  private volatile AppMonitor monitor;
+
+  private volatile AppResources resources;
+
+  private final Duration timeout;
+
+  // runs the startup of the app, reused by its restarts
+  private final Executor executor;
+
+  // the classes loaded and the classloading time before the last restart, not part of its report
+  private int previousLoadedClassCount;
+
+  private Duration previousClassLoadingDuration = Duration.ZERO;
+
+  private boolean restarted;
+
+  // a reload requested during a startup, run once the app is ready or failed to start
+  private boolean reloadPending;
+
+  private IsolatedAppHandle(String name, ClassLoader classLoader, Object launcher,
+      CompletableFuture<Object> applicationContext, Executor executor, Duration timeout, long startNanos,
+      StartupReport startupReport) {
+    this.name = name;
+    this.executor = executor;
+    this.startupReport = startupReport;
+    this.classLoaderReference = new WeakReference<>(classLoader);
+    this.classLoader = classLoader;
+    this.launcher = launcher;
+    this.timeout = timeout;
+    this.applicationContext = track(applicationContext, startNanos);
+  }
+
+  /**
+   * @return the future of the app context, with the timeout, completed once the startup duration is recorded
+   */
+  private CompletableFuture<Object> track(CompletableFuture<Object> applicationContext, long startNanos) {
+    Object startedLauncher = launcher;
+    ClassLoader startedClassLoader = classLoader;
+    // the startup duration is recorded before any caller stage runs
+    return withTimeout(applicationContext, timeout, name).whenComplete((context, e) -> {
+      if (e == null) {
+        startupDuration = Duration.ofNanos(System.nanoTime() - startNanos);
+        // run by the launch thread in the ApplicationReadyEvent listener, a failure here must not fail the running app
+        try {
+          recordSpringPhases(startedLauncher, startedClassLoader);
+        } catch (RuntimeException | LinkageError bookkeepingError) {
+          log.warn("Unable to record the startup phases of {}, the app is running", name, bookkeepingError);
+        }
+        log.info("{} started in {} ms", name, startupDuration.toMillis());
+        log.debug(startupReport.toString());
+      } else {
+        log.error("{} failed to start", name, e);
+        if (e instanceof TimeoutException || e.getCause() instanceof TimeoutException) {
+          stopTimedOut(startedLauncher);
+        }
+      }
+    });
+  }
+
+  /**
+   * Stop the app whose startup timed out, the callers only get the timeout and its context would be left running
+   */
+  private synchronized void stopTimedOut(Object timedOutLauncher) {
+    if (launcher != timedOutLauncher) {
+      return;
+    }
+    try {
+      stop();
+    } catch (Exception e) {
+      log.warn("Unable to stop {} after its startup timeout", name, e);
+    }
+  }
+
+  /**
+   * Launch the spring-boot app in its isolated classloader.
+   *
+   * @param name
+   *          the app name
+   * @param classLoader
+   *          the isolated classloader
+   * @param mainClass
+   *          the main spring @Configuration class to launch
+   * @param args
+   *          to pass to the spring-boot app
+   * @param executor
+   *          runs SpringApplication.run
+   * @param timeout
+   *          the maximum duration of the app startup, null for none
+   * @param startNanos
+   *          when the start of the app began, to compute its startup duration
+   * @param startupReport
+   *          the report of the startup phases, completed with the phases of the spring-boot app
+   * @return the handle of the launched app
+   * @throws Exception
+   *           if the launcher can't be instantiated
+   */
+  @SuppressWarnings("unchecked")
+  static IsolatedAppHandle launch(String name, ClassLoader classLoader, String mainClass, String[] args,
+      Executor executor, Duration timeout, long startNanos, StartupReport startupReport) throws Exception {
+    Object launcher = createLauncher(name, classLoader, mainClass, args, startupReport);
+    CompletableFuture<Object> applicationContext = (CompletableFuture<Object>) launcher.getClass()
+        .getMethod("start", Executor.class)
+        .invoke(launcher, executor);
+    return new IsolatedAppHandle(name, classLoader, launcher, applicationContext, executor, timeout, startNanos,
+        startupReport);
+  }
+
+  private static Object createLauncher(String name, ClassLoader classLoader, String mainClass, String[] args,
+      StartupReport startupReport) throws Exception {
+    long phaseNanos = System.nanoTime();
+    Class<?> runnerClass = classLoader.loadClass(Dependency.RUNNER_CLASS);
+    Class<?> configClass = classLoader.loadClass(mainClass);
+    startupReport.record(StartupReport.MAIN_CLASS_LOADING, phaseNanos, CountingClassLoader.getLoadedClassCount(
+        classLoader));
+
+    return runnerClass.getDeclaredConstructor(Class.class, String[].class, String.class)
+        .newInstance(configClass, args, name);
+  }
+
+  /**
+   * @param name
+   *          the app name
+   * @param jvmProcess
+   *          the child JVM running the app
+   * @param started
+   *          completed when the app is ready in the child JVM
+   * @param timeout
+   *          the maximum duration of the app startup, null for none
+   * @param startNanos
+   *          when the start of the app began, to compute its startup duration
+   * @param startupReport
+   *          the report of the startup phases, completed with the phases of the spring-boot app
+   * @return the handle of the app launched in a child JVM, without classloader in this JVM
+   */
+  static IsolatedAppHandle launched(String name, JvmProcess jvmProcess, CompletableFuture<Object> started,
+      Duration timeout, long startNanos, StartupReport startupReport) {
+    return new IsolatedAppHandle(name, null, jvmProcess, started, null, timeout, startNanos, startupReport);
+  }
+
+  /**
+   * Record the phases of SpringApplication.run from the spring-boot events timestamped by the launcher.
+   */
+  @SuppressWarnings("unchecked")
+  private void recordSpringPhases(Object launcher, ClassLoader classLoader) {
+    try {
+      Map<String, Long> eventNanos = (Map<String, Long>) launcher.getClass()
+          .getMethod("getEventNanos")
+          .invoke(launcher);
+      recordSpringPhase(eventNanos, StartupReport.SPRING_APPLICATION_PREPARATION, "run", "ApplicationPreparedEvent");
+      recordSpringPhase(eventNanos, StartupReport.CONTEXT_REFRESH, "ApplicationPreparedEvent", "ContextRefreshedEvent");
+      recordSpringPhase(eventNanos, StartupReport.RUNNERS, "ContextRefreshedEvent", "ApplicationReadyEvent");
+    } catch (ReflectiveOperationException e) {
+      log.warn("Unable to get the spring-boot events of {}", name, e);
+    }
+    if (classLoader instanceof CountingClassLoader) {
+      CountingClassLoader countingClassLoader = (CountingClassLoader) classLoader;
+      startupReport.setLoadedClassCount(countingClassLoader.getLoadedClassCount() - previousLoadedClassCount);
+      startupReport.setClassLoadingDuration(countingClassLoader.getClassLoadingDuration()
+          .minus(previousClassLoadingDuration));
+    } else if (launcher instanceof JvmProcess) {
+      JvmProcess jvmProcess = (JvmProcess) launcher;
+      startupReport.setLoadedClassCount(jvmProcess.getLoadedClassCount());
+      startupReport.setClassLoadingDuration(jvmProcess.getClassLoadingDuration());
+    }
+    startupReport.registerMBean();
+    if (launcher instanceof JvmProcess) {
+      ClassDataSharing.onProcessReady(name, ((JvmProcess) launcher).getJvmOptions(), startupReport);
+    } else if (!restarted) {
+      ClassDataSharing.onReady(name, classLoader, startupReport);
+    }
+    // sampled from the launch thread, so its CPU time is attributed to the app before it ends
+    if (classLoader != null && monitor == null) {
+      AppMonitor startedMonitor = new AppMonitor(name, classLoader);
+      startedMonitor.start();
+      monitor = startedMonitor;
+    }
+  }
+
+  private void recordSpringPhase(Map<String, Long> eventNanos, String phase, String startEvent, String endEvent) {
+    Long startNanos = eventNanos.get(startEvent);
+    Long endNanos = eventNanos.get(endEvent);
+    if (startNanos != null && endNanos != null) {
+      startupReport.record(phase, Duration.ofNanos(endNanos - startNanos), -1);
+    }
+  }
+
+  /**
+   * @param name
+   *          the app name
+   * @return an executor running each task in a new thread named after the app, created by the thread factory of the
+   *         isolatedrunner.threads system property
+   */
+  public static Executor newThreadExecutor(String name) {
+    return newThreadExecutor(name, ThreadFactories.current());
+  }
+
+  /**
+   * @param name
+   *          the app name
+   * @param threadFactory
+   *          creates the threads, which are then named after the app
+   * @return an executor running each task in a new thread of the factory
+   */
+  public static Executor newThreadExecutor(String name, ThreadFactory threadFactory) {
+    return runnable -> {
+      Thread thread = threadFactory.newThread(runnable);
+      thread.setName(name);
+      ClassLoaderCleaner.trackLaunchThread(thread);
+      thread.start();
+    };
+  }
+
+  /**
+   * @return a future completed exceptionally with a TimeoutException if the future is not completed in time
+   */
+  private static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, Duration timeout, String name) {
+    if (timeout == null) {
+      return future;
+    }
+    CompletableFuture<T> result = new CompletableFuture<>();
+    ScheduledFuture<?> timeoutTask = TIMEOUT_SCHEDULER.schedule(() -> result.completeExceptionally(
+        new TimeoutException(name + " not ready after " + timeout.toMillis() + " ms")), timeout.toMillis(),
+        TimeUnit.MILLISECONDS);
+    future.whenComplete((value, e) -> {
+      timeoutTask.cancel(false);
+      if (e != null) {
+        result.completeExceptionally(e);
+      } else {
+        result.complete(value);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * The context is an instance of the spring ApplicationContext of the isolated classloader, it can't be cast to the
+   * ApplicationContext of the caller classloader. For an app launched by a {@link ProcessDependency}, it's the Process
+   * of the child JVM.
+   *
+   * @return a future completed with the spring-boot app context when it's ready, or exceptionally if it fails to
+   *         start
+   */
+  public CompletableFuture<Object> getApplicationContext() {
+    return applicationContext;
+  }
+
+  /**
+   * Block until the spring-boot app is ready.
+   *
+   * @return this handle
+   * @throws Exception
+   *           the exception thrown by the spring-boot app startup, or a TimeoutException if the app is not ready in
+   *           the configured timeout, the app being then stopped
+   */
+  public IsolatedAppHandle awaitReady() throws Exception {
+    try {
+      applicationContext.get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+    return this;
+  }
+
+  /**
+   * Restart the spring-boot app with new args and wait until it's ready. Only the spring context is refreshed: the
+   * classloader and the classes already loaded are reused, the classpath isn't resolved again. The startup runs in the
+   * executor of the first start.
+   *
+   * @param args
+   *          the new args of the spring-boot app
+   * @return this handle, with the report of the restart
+   * @throws Exception
+   *           the exception thrown by the spring-boot app startup, or a TimeoutException if the app is not ready in
+   *           the configured timeout
+   */
+  public IsolatedAppHandle restart(String[] args) throws Exception {
+    return restartAsync(args, executor).awaitReady();
+  }
+
+  /**
+   * Restart the spring-boot app with new args without waiting for it, see {@link #restart(String[])}. The ports and
+   * temporary directories allocated to the app are given to it again, unless the new args set them.
+   *
+   * @param args
+   *          the new args of the spring-boot app
+   * @param executor
+   *          runs the spring-boot app startup
+   * @return this handle, its application context future is completed when the app is ready again
+   * @throws Exception
+   *           if the app context can't be closed
+   * @throws IllegalStateException
+   *           if the app is still starting, its context would be leaked by a parallel run
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized IsolatedAppHandle restartAsync(String[] args, Executor executor) throws Exception {
+    if (launcher == null) {
+      throw new IllegalStateException(name + " is stopped");
+    }
+    if (classLoader == null) {
+      throw new IllegalStateException(name + " runs in a child JVM, it can't be restarted in place");
+    }
+    if (!applicationContext.isDone()) {
+      throw new IllegalStateException(name + " is starting, it can't be restarted before it's ready");
+    }
+    long startNanos = System.nanoTime();
+    startupReport.unregisterMBean();
+    startupReport = new StartupReport(name);
+    startupDuration = null;
+    restarted = true;
+    if (classLoader instanceof CountingClassLoader) {
+      previousLoadedClassCount = ((CountingClassLoader) classLoader).getLoadedClassCount();
+      previousClassLoadingDuration = ((CountingClassLoader) classLoader).getClassLoadingDuration();
+    }
+    CompletableFuture<Object> restarted = (CompletableFuture<Object>) launcher.getClass()
+        .getMethod("restart", String[].class, Executor.class)
+        .invoke(launcher, resources != null ? resources.apply(args) : args, executor);
+    startupReport.record(StartupReport.CONTEXT_CLOSE, startNanos, -1);
+    applicationContext = track(restarted, startNanos);
+    return this;
+  }
+
+  /**
+   * Reload the application classes of the app in a new classloader, without waiting for it: the context is closed, the
+   * previous classloader is released, then the app runs again with the same args from the new classloader. Its parent,
+   * holding the jars, and the classes it loaded are reused. A reload requested while the app is starting runs once the
+   * startup ends, the requests of the same startup being merged.
+   *
+   * @param classLoaderFactory
+   *          creates the new classloader of the application classes
+   * @param mainClass
+   *          the main spring @Configuration class to launch
+   * @param executor
+   *          runs the spring-boot app startup
+   * @return this handle, its application context future is completed when the app is ready again
+   * @throws Exception
+   *           if the app context can't be closed
+   */
+  @SuppressWarnings("unchecked")
+  synchronized IsolatedAppHandle reloadAsync(Supplier<ClassLoader> classLoaderFactory, String mainClass,
+      Executor executor) throws Exception {
+    if (launcher == null) {
+      throw new IllegalStateException(name + " is stopped");
+    }
+    if (!applicationContext.isDone()) {
+      if (!reloadPending) {
+        reloadPending = true;
+        log.info("{} is starting, it's reloaded once the startup ends", name);
+        applicationContext.whenCompleteAsync((context, e) -> reloadPending(classLoaderFactory, mainClass, executor),
+            executor);
+      }
+      return this;
+    }
+    long startNanos = System.nanoTime();
+    startupReport.unregisterMBean();
+    startupReport = new StartupReport(name);
+    startupDuration = null;
+    restarted = true;
+    String[] args = (String[]) launcher.getClass()
+        .getMethod("getArgs")
+        .invoke(launcher);
+    if (monitor != null) {
+      monitor.close();
+      monitor = null;
+    }
+    ClassLoader unloadedClassLoader = classLoader;
+    try {
+      launcher.getClass()
+          .getMethod("unload")
+          .invoke(launcher);
+    } finally {
+      ClassLoaderCleaner.release(unloadedClassLoader, name);
+    }
+    long phaseNanos = startupReport.record(StartupReport.CONTEXT_CLOSE, startNanos, -1);
+
+    classLoader = classLoaderFactory.get();
+    classLoaderReference = new WeakReference<>(classLoader);
+    previousLoadedClassCount = 0;
+    previousClassLoadingDuration = Duration.ZERO;
+    startupReport.record(StartupReport.CLASSLOADER_CREATION, phaseNanos, -1);
+    CompletableFuture<Object> reloaded;
+    try {
+      launcher = createLauncher(name, classLoader, mainClass, args, startupReport);
+      reloaded = (CompletableFuture<Object>) launcher.getClass()
+          .getMethod("start", Executor.class)
+          .invoke(launcher, executor);
+    } catch (Exception e) {
+      // e.g. a main class not compiled yet, the next change reloads the app again
+      reloaded = new CompletableFuture<>();
+      reloaded.completeExceptionally(e);
+    }
+    applicationContext = track(reloaded, startNanos);
+    return this;
+  }
+
+  private synchronized void reloadPending(Supplier<ClassLoader> classLoaderFactory, String mainClass,
+      Executor executor) {
+    reloadPending = false;
+    if (launcher == null) {
+      return;
+    }
+    try {
+      reloadAsync(classLoaderFactory, mainClass, executor);
+    } catch (Exception e) {
+      log.warn("Unable to reload {}", name, e);
+    }
+  }
+
+  /**
+   * Stop the spring-boot app and release its resources: the context is closed, the threads left by the app are
+   * interrupted, the caches referencing the app classes are cleared and the classloader and its archives are closed.
+   * Stopping an already stopped app does nothing.
+   *
+   * @throws Exception
+   *           if the spring-boot app can't be stopped
+   */
+  public synchronized void stop() throws Exception {
+    if (launcher == null) {
+      return;
+    }
+    ClassLoader stoppedClassLoader = classLoader;
+    if (monitor != null) {
+      monitor.close();
+    }
+    try {
+      launcher.getClass()
+          .getMethod("stop")
+          .invoke(launcher);
+    } finally {
+      launcher = null;
+      classLoader = null;
+      applicationContext = new CompletableFuture<>();
+      applicationContext.completeExceptionally(new IllegalStateException(name + " is stopped"));
+
+      if (stoppedClassLoader != null) {
+        ClassLoaderCleaner.release(stoppedClassLoader, name);
+      }
+      for (AutoCloseable closeable : closeables) {
+        try {
+          closeable.close();
+        } catch (Exception e) {
+          log.warn("Unable to close {} of {}", closeable, name, e);
+        }
+      }
+      closeables.clear();
+      startupReport.unregisterMBean();
+      log.info("{} stopped", name);
+    }
+  }
+
+  /**
+   * Check that the classloader of the stopped app can be garbage collected.
+   *
+   * @param timeout
+   *          the maximum duration to wait for the garbage collection
+   * @return the leak report, with what may pin the classloader if it's not collected
+   */
+  public ClassLoaderLeakReport checkLeak(Duration timeout) {
+    if (launcher != null) {
+      throw new IllegalStateException(name + " is not stopped");
+    }
+    ClassLoaderLeakReport report = ClassLoaderLeakReport.check(name, classLoaderReference, timeout);
+    if (report.isLeaked()) {
+      log.warn(report.toString());
+    }
+    return report;
+  }
+
+  /**
+   * @param closeable
+   *          a resource to close when the app is stopped
+   */
+  void addCloseable(AutoCloseable closeable) {
+    closeables.add(closeable);
+  }
+
+  /**
+   * @return the app name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the isolated classloader of the app, null once the app is stopped or if it runs in a child JVM
+   */
+  public ClassLoader getClassLoader() {
+    return classLoader;
+  }
+
+  /**
+   * @return the duration of each phase of the last app start or restart, the spring-boot phases are added when the app
+   *         is ready
+   */
+  public StartupReport getStartupReport() {
+    return startupReport;
+  }
+
+  /**
+   * @return the monitor of the resources used by the app, null until the app is first ready or if it runs in a child
+   *         JVM
+   */
+  public AppMonitor getMonitor() {
+    return monitor;
+  }
+
+  void setResources(AppResources resources) {
+    this.resources = resources;
+  }
+
+  /**
+   * @return the ports and temporary directories allocated to the app, null if none was requested
+   */
+  public AppResources getResources() {
+    return resources;
+  }
+
+  /**
+   * @return the duration between the start request and the ApplicationReadyEvent, null if the app is not ready
+   */
+  public Duration getStartupDuration() {
+    return startupDuration;
+  }
+
+}
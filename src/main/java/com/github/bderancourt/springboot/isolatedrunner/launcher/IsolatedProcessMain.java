@@ -0,0 +1,193 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Main class of the child JVMs of {@link ProcessDependency}. The child connects to the loopback port given as argument,
+ * receives the app classpath and the classes to preload, creates the isolated classloader and preloads the classes
+ * before answering it's warm. It then waits for the start command, starts the app and runs it until the stop command
+ * or until the runner JVM closes the connection. The app start is answered with the spring-boot events and with the
+ * classes loaded during the start and the time spent loading them.<br>
+ * This class only uses JDK classes: the child classpath only contains the runner, the app classes are in the isolated
+ * classloader.
+ *
+ * @author bderancourt
+ */
+public class IsolatedProcessMain {
+
+  static final String READY = "READY";
+
+  static final String STARTED = "STARTED";
+
+  static final String FAILED = "FAILED";
+
+  static final String STOP = "STOP";
+
+  static final String STOPPED = "STOPPED";
+
+  private IsolatedProcessMain() {
+  };
+
+  /**
+   * Counts the classes it defines and the time spent defining them, as the {@link CountingClassLoader} which needs the
+   * spring-boot loader, absent from the child JVM
+   */
+  private static class TimedClassLoader extends URLClassLoader {
+
+    static {
+      ClassLoader.registerAsParallelCapable();
+    }
+
+    private final AtomicInteger loadedClassCount = new AtomicInteger();
+
+    private final AtomicLong classLoadingNanos = new AtomicLong();
+
+    // the superclasses are loaded while defining a class, only the outermost findClass is timed
+    private final ThreadLocal<int[]> findClassDepth = ThreadLocal.withInitial(() -> new int[1]);
+
+    private TimedClassLoader(URL[] urls) {
+      super(urls, null);
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      int[] depth = findClassDepth.get();
+      long startNanos = depth[0] == 0 ? System.nanoTime() : 0;
+      depth[0]++;
+      try {
+        Class<?> loadedClass = super.findClass(name);
+        loadedClassCount.incrementAndGet();
+        return loadedClass;
+      } finally {
+        depth[0]--;
+        if (depth[0] == 0) {
+          classLoadingNanos.addAndGet(System.nanoTime() - startNanos);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param args
+   *          the loopback port of the runner JVM
+   * @throws Exception
+   *           if the runner JVM can't be reached
+   */
+  public static void main(String[] args) throws Exception {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream())) {
+      String[] classPath = readStrings(in);
+      String[] preloadedClasses = readStrings(in);
+      URL[] urls = new URL[classPath.length];
+      for (int i = 0; i < classPath.length; i++) {
+        urls[i] = new URL(classPath[i]);
+      }
+      TimedClassLoader classLoader = new TimedClassLoader(urls);
+      int preloaded = 0;
+      for (String preloadedClass : preloadedClasses) {
+        try {
+          Class.forName(preloadedClass, false, classLoader);
+          preloaded++;
+        } catch (ClassNotFoundException | LinkageError e) {
+          // an optional class of the framework
+        }
+      }
+      out.writeUTF(READY);
+      out.writeInt(preloaded);
+      out.flush();
+
+      Object launcher = start(in, out, classLoader);
+      if (launcher != null) {
+        try {
+          in.readUTF();
+        } catch (IOException e) {
+          // the runner JVM is gone, stop anyway
+        }
+        launcher.getClass()
+            .getMethod("stop")
+            .invoke(launcher);
+        out.writeUTF(STOPPED);
+        out.flush();
+      }
+    } finally {
+      // the threads left by the app must not keep the JVM alive
+      System.exit(0);
+    }
+  }
+
+  /**
+   * @return the launcher of the started app, null if it failed to start
+   */
+  @SuppressWarnings("unchecked")
+  private static Object start(DataInputStream in, DataOutputStream out, TimedClassLoader classLoader)
+      throws Exception {
+    String name = in.readUTF();
+    String mainClass = in.readUTF();
+    String[] args = readStrings(in);
+    // the preloaded classes are not part of the start
+    int preloadedClassCount = classLoader.loadedClassCount.get();
+    long preloadingNanos = classLoader.classLoadingNanos.get();
+    try {
+      Class<?> runnerClass = classLoader.loadClass(Dependency.RUNNER_CLASS);
+      Object launcher = runnerClass.getDeclaredConstructor(Class.class, String[].class, String.class)
+          .newInstance(classLoader.loadClass(mainClass), args, name);
+      Executor executor = runnable -> new Thread(runnable, name).start();
+      ((CompletableFuture<Object>) runnerClass.getMethod("start", Executor.class)
+          .invoke(launcher, executor)).get();
+      Map<String, Long> eventNanos = (Map<String, Long>) runnerClass.getMethod("getEventNanos")
+          .invoke(launcher);
+      out.writeUTF(STARTED);
+      out.writeInt(eventNanos.size());
+      for (Map.Entry<String, Long> event : eventNanos.entrySet()) {
+        out.writeUTF(event.getKey());
+        out.writeLong(event.getValue());
+      }
+      out.writeInt(classLoader.loadedClassCount.get() - preloadedClassCount);
+      out.writeLong(classLoader.classLoadingNanos.get() - preloadingNanos);
+      out.flush();
+      return launcher;
+    } catch (Exception | LinkageError e) {
+      Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+      StringWriter stackTrace = new StringWriter();
+      cause.printStackTrace(new PrintWriter(stackTrace));
+      out.writeUTF(FAILED);
+      // writeUTF is limited to 64 KB
+      out.writeUTF(stackTrace.toString()
+          .substring(0, Math.min(stackTrace.toString()
+              .length(), 16384)));
+      out.flush();
+      return null;
+    }
+  }
+
+  static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+    out.writeInt(strings.length);
+    for (String string : strings) {
+      out.writeUTF(string);
+    }
+  }
+
+  static String[] readStrings(DataInputStream in) throws IOException {
+    String[] strings = new String[in.readInt()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = in.readUTF();
+    }
+    return strings;
+  }
+
+}
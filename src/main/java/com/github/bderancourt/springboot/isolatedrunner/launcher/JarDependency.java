@@ -1,16 +1,20 @@
 package com.github.bderancourt.springboot.isolatedrunner.launcher;
 
+import java.io.File;
 import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 
-import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.io.FileUtils;
 import org.springframework.boot.loader.JarLauncher;
-import org.springframework.boot.loader.LaunchedURLClassLoader;
 import org.springframework.boot.loader.archive.Archive;
 import org.springframework.boot.loader.jar.JarFile;
 
 import com.github.bderancourt.springboot.isolatedrunner.util.ClassPathUtils;
+import com.github.bderancourt.springboot.isolatedrunner.util.ExplodedJarCache;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -23,43 +27,140 @@ public class JarDependency extends JarLauncher implements Dependency {
 
   private String mainClass;
 
-  private Class<?> runnerClass;
+  private IsolatedAppHandle handle;
 
-  private Object runnerInstance;
+  private URL[] classPathUrls;
+
+  private PackageIndex packageIndex;
+
+  private List<Archive> archives;
+
+  private ExplodedJarCache.ExplodedJar explodedJar;
+
+  private SharedClassLoaderLayer sharedLayer;
+
+  private final StartupReport startupReport;
+
+  private boolean exploded = ArchiveMode.current() == ArchiveMode.EXPLODED;
 
   public JarDependency(List<URL> classpath, Archive archive, String name, String mainClass) {
     super(archive);
     this.classpath = classpath;
     this.name = name;
     this.mainClass = mainClass;
+    this.startupReport = new StartupReport(name);
+  }
+
+  @Override
+  public IsolatedAppHandle start(String[] args, Executor executor, Duration timeout) throws Exception {
+    long startNanos = System.nanoTime();
+    JarFile.registerUrlProtocolHandler();
+    URL[] classPath = getClassPath();
+    long phaseNanos = System.nanoTime();
+    ClassLoader classLoader = createClassLoader(classPath);
+    startupReport.record(StartupReport.CLASSLOADER_CREATION, phaseNanos, classPath.length);
+
+    handle = IsolatedAppHandle.launch(name, classLoader, mainClass, args, executor, timeout, startNanos,
+        startupReport);
+    // the nested archives and the spring-boot jar are closed with the classloader, the nested archives of a mapped jar
+    // are shared and closed with the last app using the jar
+    if (!isMapped() && archives != null) {
+      archives.forEach(handle::addCloseable);
+    }
+    handle.addCloseable(getArchive());
+    // the exploded fat jar can be evicted once the app stops
+    if (explodedJar != null) {
+      handle.addCloseable(explodedJar);
+    }
+    return handle;
+  }
+
+  @Override
+  public URL[] getClassPath() throws Exception {
+    if (classPathUrls == null) {
+      long phaseNanos = System.nanoTime();
+      List<URL> urls = new ArrayList<>();
+      if (exploded) {
+        explodedJar = ExplodedJarCache.get()
+            .explode(getFatJarFile());
+        urls.addAll(explodedJar.getUrls());
+        phaseNanos = startupReport.record(StartupReport.EXPLODED_ARCHIVE, phaseNanos, urls.size());
+      } else {
+        // not cached: URLs parsed again would not be bound to the archives, each connection would reopen the jar
+        archives = getClassPathArchives();
+        phaseNanos = startupReport.record(StartupReport.NESTED_ARCHIVES, phaseNanos, archives.size());
+        for (Archive archive : archives) {
+          urls.add(archive.getUrl());
+        }
+      }
+      log.debug("Loaded classpath for {}", name);
+      urls.stream().map(Objects::toString).forEach(log::debug);
+
+      urls.add(ClassPathUtils.findDependencyURL(classpath, "spring-boot-isolated-runner"));
+      urls.add(ClassPathUtils.findDependencyURL(classpath, "org/springframework/boot/spring-boot/"));
+      startupReport.record(StartupReport.RUNNER_JARS_LOOKUP, phaseNanos, 2);
+      classPathUrls = urls.toArray(new URL[0]);
+      if (PackageIndex.isLazy()) {
+        long indexNanos = System.nanoTime();
+        packageIndex = PackageIndex.load(classPathUrls);
+        startupReport.record(StartupReport.PACKAGE_INDEX, indexNanos, packageIndex.size());
+      }
+    }
+    return classPathUrls;
+  }
+
+  @Override
+  public void setSharedLayer(SharedClassLoaderLayer sharedLayer) {
+    this.sharedLayer = sharedLayer;
+  }
+
+  @Override
+  public StartupReport getStartupReport() {
+    return startupReport;
+  }
+
+  @Override
+  public void stop() throws Exception {
+    if (handle != null) {
+      handle.stop();
+    }
   }
 
   /**
-   * @param args
-   *          to pass to the spring-boot app
-   * @throws Exception
-   *           if an error occurs during the spring-boot app startup
+   * @param exploded
+   *          true to launch the app from the exploded jar cache, whatever the archive mode
    */
-  public void start(String[] args) throws Exception {
-
-    List<Archive> archives = getClassPathArchives();
-    log.debug("Loaded classpath for {}", name);
-    archives.stream().map(Objects::toString).forEach(log::debug);
+  void setExploded(boolean exploded) {
+    this.exploded = exploded;
+  }
 
-    JarFile.registerUrlProtocolHandler();
-    ClassLoader classLoader = createClassLoader(archives);
+  /**
+   * @return the archive of the fat jar, to close when the app is stopped
+   */
+  AutoCloseable getFatJarArchive() {
+    return getArchive();
+  }
 
-    runnerClass = classLoader.loadClass(RUNNER_CLASS);
-    Class<?> configClass = classLoader.loadClass(mainClass);
+  /**
+   * @return the exploded fat jar, to close when the app is stopped, null if the app is not launched from the exploded
+   *         jar cache
+   */
+  AutoCloseable getExplodedJar() {
+    return explodedJar;
+  }
 
-    Object runner = runnerClass.getDeclaredConstructor(Class.class, String[].class, String.class)
-        .newInstance(configClass, args, name);
-    runnerClass.getMethod("run").invoke(runner);
+  private File getFatJarFile() throws Exception {
+    // file:/path/to/app.jar, or jar:file:/path/to/app.jar!/ depending on how the archive was opened
+    URL archiveUrl = getArchive().getUrl();
+    if ("jar".equals(archiveUrl.getProtocol())) {
+      String file = archiveUrl.getFile();
+      archiveUrl = new URL(file.substring(0, file.lastIndexOf("!/")));
+    }
+    return FileUtils.toFile(archiveUrl);
   }
 
-  public void stop() throws Exception {
-    runnerClass.getMethod("stop")
-        .invoke(runnerInstance);
+  private boolean isMapped() {
+    return getArchive() instanceof MappedJarFileArchive;
   }
 
   /**
@@ -73,14 +174,13 @@ public class JarDependency extends JarLauncher implements Dependency {
    */
   @Override
   protected ClassLoader createClassLoader(URL[] urls) throws Exception {
-
-    URL[] urlsToAdd = new URL[] { 
-        ClassPathUtils.findDependencyURL(classpath, "spring-boot-isolated-runner"),
-        ClassPathUtils.findDependencyURL(classpath, "org/springframework/boot/spring-boot/") };
-
-    URL[] totalUrls = ArrayUtils.addAll(urls, urlsToAdd);
-
-    return new LaunchedURLClassLoader(totalUrls, null);
+    if (sharedLayer != null) {
+      return sharedLayer.createClassLoader(urls);
+    }
+    if (packageIndex != null) {
+      return new IndexedClassLoader(urls, packageIndex, null);
+    }
+    return new CountingClassLoader(urls, null);
   }
 
 }
@@ -0,0 +1,261 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A child JVM running {@link IsolatedProcessMain}, driven over a loopback socket.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+class JvmProcess {
+
+  private static final int CONNECT_TIMEOUT_MILLIS = 30000;
+
+  private static final long STOP_TIMEOUT_SECONDS = 30;
+
+  private final Process process;
+
+  private final List<String> jvmOptions;
+
+  // released once the child JVM exits
+  private final Closeable exitLock;
+
+  private final Socket socket;
+
+  private final DataInputStream in;
+
+  private final DataOutputStream out;
+
+  private final Map<String, Long> eventNanos = new HashMap<>();
+
+  private int preloadedClassCount = -1;
+
+  private int loadedClassCount;
+
+  private Duration classLoadingDuration;
+
+  private JvmProcess(Process process, List<String> jvmOptions, Closeable exitLock, Socket socket)
+      throws IOException {
+    this.process = process;
+    this.jvmOptions = jvmOptions;
+    this.exitLock = exitLock;
+    this.socket = socket;
+    this.in = new DataInputStream(socket.getInputStream());
+    this.out = new DataOutputStream(socket.getOutputStream());
+  }
+
+  /**
+   * Launch a child JVM which creates the isolated classloader of the classpath and preloads the classes, without
+   * waiting for the preloading.
+   *
+   * @param jvmOptions
+   *          the options of the child JVM
+   * @param classPath
+   *          the isolated classpath of the app
+   * @param preloadedClasses
+   *          the classes to load before the app starts
+   * @param exitLock
+   *          released once the child JVM exits, e.g. the lock of the CDS archive it dumps, null for none
+   * @return the child JVM, connected
+   * @throws IOException
+   *           if the child JVM can't be launched or doesn't connect
+   */
+  static JvmProcess launch(List<String> jvmOptions, URL[] classPath, List<String> preloadedClasses,
+      Closeable exitLock) throws IOException {
+    try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      serverSocket.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+      List<String> command = new ArrayList<>();
+      command.add(Paths.get(System.getProperty("java.home"), "bin", "java")
+          .toString());
+      command.addAll(jvmOptions);
+      command.add("-cp");
+      command.add(getRunnerLocation());
+      command.add(IsolatedProcessMain.class.getName());
+      command.add(String.valueOf(serverSocket.getLocalPort()));
+      Process process = new ProcessBuilder(command).inheritIO()
+          .start();
+      Socket socket;
+      try {
+        socket = serverSocket.accept();
+      } catch (IOException e) {
+        process.destroyForcibly();
+        throw new IOException("The child JVM didn't connect in " + CONNECT_TIMEOUT_MILLIS + " ms", e);
+      }
+      JvmProcess jvmProcess = new JvmProcess(process, jvmOptions, exitLock, socket);
+      String[] urls = Arrays.stream(classPath)
+          .map(URL::toString)
+          .toArray(String[]::new);
+      IsolatedProcessMain.writeStrings(jvmProcess.out, urls);
+      IsolatedProcessMain.writeStrings(jvmProcess.out, preloadedClasses.toArray(new String[0]));
+      jvmProcess.out.flush();
+      return jvmProcess;
+    }
+  }
+
+  /**
+   * @return the location of the runner classes, the only classpath of the child JVM
+   */
+  private static String getRunnerLocation() throws IOException {
+    try {
+      return new File(IsolatedProcessMain.class.getProtectionDomain()
+          .getCodeSource()
+          .getLocation()
+          .toURI()).getPath();
+    } catch (URISyntaxException e) {
+      throw new IOException(e);
+    }
+  }
+
+  boolean isAlive() {
+    return process.isAlive();
+  }
+
+  /**
+   * Start the app in the child JVM and wait until it's ready.
+   *
+   * @param name
+   *          the app name
+   * @param mainClass
+   *          the main spring @Configuration class to launch
+   * @param args
+   *          to pass to the spring-boot app
+   * @throws Exception
+   *           if the app fails to start, with the stack trace of the child JVM
+   */
+  synchronized void start(String name, String mainClass, String[] args) throws Exception {
+    awaitWarm();
+    out.writeUTF(name);
+    out.writeUTF(mainClass);
+    IsolatedProcessMain.writeStrings(out, args);
+    out.flush();
+    String status = in.readUTF();
+    if (IsolatedProcessMain.FAILED.equals(status)) {
+      String stackTrace = in.readUTF();
+      destroy();
+      throw new IllegalStateException(name + " failed to start in its JVM: " + stackTrace);
+    }
+    int eventCount = in.readInt();
+    for (int i = 0; i < eventCount; i++) {
+      eventNanos.put(in.readUTF(), in.readLong());
+    }
+    loadedClassCount = in.readInt();
+    classLoadingDuration = Duration.ofNanos(in.readLong());
+  }
+
+  /**
+   * @return the number of classes preloaded by the child JVM, once they are
+   */
+  synchronized int awaitWarm() throws IOException {
+    if (preloadedClassCount < 0) {
+      String status = in.readUTF();
+      if (!IsolatedProcessMain.READY.equals(status)) {
+        throw new IOException("Unexpected status of the child JVM " + status);
+      }
+      preloadedClassCount = in.readInt();
+    }
+    return preloadedClassCount;
+  }
+
+  Process getProcess() {
+    return process;
+  }
+
+  /**
+   * @return the options the child JVM was launched with
+   */
+  List<String> getJvmOptions() {
+    return jvmOptions;
+  }
+
+  /**
+   * @return the number of classes loaded by the app classloader of the child JVM during the start, the preloaded ones
+   *         excluded
+   */
+  synchronized int getLoadedClassCount() {
+    return loadedClassCount;
+  }
+
+  /**
+   * @return the time spent by the app classloader of the child JVM loading the classes of the start, null until the
+   *         app is started
+   */
+  synchronized Duration getClassLoadingDuration() {
+    return classLoadingDuration;
+  }
+
+  /**
+   * Called by the handle of the app, like the stop of the in-process launcher.
+   *
+   * @return the System.nanoTime() of the child JVM at the beginning of the run and of each spring-boot event, their
+   *         differences are the durations of the spring-boot phases
+   */
+  public synchronized Map<String, Long> getEventNanos() {
+    return Collections.unmodifiableMap(eventNanos);
+  }
+
+  /**
+   * Stop the app and wait for the child JVM to exit, it's destroyed if still starting. Called by the handle of the app,
+   * like the stop of the in-process launcher.
+   *
+   * @throws Exception
+   *           if the child JVM doesn't exit
+   */
+  public void stop() throws Exception {
+    try {
+      out.writeUTF(IsolatedProcessMain.STOP);
+      out.flush();
+      if (!process.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        log.warn("the child JVM didn't exit in {} s after the stop", STOP_TIMEOUT_SECONDS);
+      }
+    } catch (IOException e) {
+      log.debug("the child JVM is already gone", e);
+    } finally {
+      destroy();
+    }
+  }
+
+  void destroy() {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      log.debug("Unable to close the socket of the child JVM", e);
+    }
+    process.destroyForcibly();
+    if (exitLock != null) {
+      try {
+        process.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread()
+            .interrupt();
+      } finally {
+        try {
+          exitLock.close();
+        } catch (IOException e) {
+          log.warn("Unable to release {}", exitLock, e);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,194 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+
+import org.springframework.boot.loader.archive.Archive;
+import org.springframework.boot.loader.archive.JarFileArchive;
+import org.springframework.boot.loader.data.RandomAccessDataFile;
+import org.springframework.boot.loader.jar.JarFile;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A spring-boot fat jar memory mapped once per JVM. Its nested jars are slices of the mapping, so the stored
+ * BOOT-INF/lib jars are read without copy nor file access. The fat jar and its nested jars are opened once, their
+ * central directories are parsed once and shared by all the apps started from the same fat jar.<br>
+ * The shared jars are closed when the last archive opened on the fat jar is closed. A rebuilt fat jar is mapped again
+ * and its previous mapping closed.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class MappedJarFileArchive extends JarFileArchive {
+
+  private static final String UNPACK_MARKER = "UNPACK:";
+
+  private static final Map<String, SharedJar> SHARED_JARS = new ConcurrentHashMap<>();
+
+  private static class SharedJar {
+
+    private final long lastModified;
+
+    private final long length;
+
+    private final JarFile root;
+
+    private final Map<String, JarFile> nestedJars = new ConcurrentHashMap<>();
+
+    // the open fat jar archives sharing this jar, updated in the SHARED_JARS compute functions
+    private int references;
+
+    private boolean closed;
+
+    private SharedJar(File file) throws IOException {
+      this.lastModified = file.lastModified();
+      this.length = file.length();
+      this.root = openMapped(file);
+    }
+
+    private boolean isUpToDate(File file) {
+      return file.lastModified() == lastModified && file.length() == length;
+    }
+
+    private JarFile nested(JarFile parent, String entryName) {
+      return nestedJars.computeIfAbsent(parent.getName() + "!/" + entryName, key -> {
+        try {
+          return parent.getNestedJarFile(parent.getEntry(entryName));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+
+    /**
+     * Close the nested jars and the fat jar, which releases the file handles and the mapping
+     */
+    private synchronized void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      for (JarFile nestedJar : nestedJars.values()) {
+        closeQuietly(nestedJar);
+      }
+      nestedJars.clear();
+      closeQuietly(root);
+    }
+
+    private void closeQuietly(JarFile jarFile) {
+      try {
+        jarFile.close();
+      } catch (IOException e) {
+        log.warn("Unable to close {}", jarFile.getName(), e);
+      }
+    }
+  }
+
+  private final String path;
+
+  private final SharedJar sharedJar;
+
+  private final JarFile jarFile;
+
+  // only the fat jar archives hold a reference on the shared jar, the nested ones are closed with it
+  private final boolean fatJar;
+
+  private boolean closed;
+
+  private MappedJarFileArchive(String path, SharedJar sharedJar, JarFile jarFile, boolean fatJar) {
+    super(jarFile);
+    this.path = path;
+    this.sharedJar = sharedJar;
+    this.jarFile = jarFile;
+    this.fatJar = fatJar;
+  }
+
+  /**
+   * @param file
+   *          a spring-boot fat jar
+   * @return the archive of the fat jar, sharing its mapping with the other archives of the same file
+   * @throws IOException
+   *           if the file can't be mapped
+   */
+  public static MappedJarFileArchive open(File file) throws IOException {
+    File canonicalFile = file.getCanonicalFile();
+    try {
+      SharedJar sharedJar = SHARED_JARS.compute(canonicalFile.getPath(), (path, current) -> {
+        SharedJar opened = current;
+        if (current == null || !current.isUpToDate(canonicalFile)) {
+          try {
+            log.debug("mapping {}", canonicalFile);
+            opened = new SharedJar(canonicalFile);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          // the apps still using the previous mapping read a file which was replaced anyway
+          if (current != null) {
+            current.close();
+          }
+        }
+        opened.references++;
+        return opened;
+      });
+      return new MappedJarFileArchive(canonicalFile.getPath(), sharedJar, sharedJar.root, true);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static JarFile openMapped(File file) throws IOException {
+    try {
+      // the spring-boot loader only exposes this constructor to its package
+      Constructor<JarFile> constructor = JarFile.class.getDeclaredConstructor(RandomAccessDataFile.class);
+      constructor.setAccessible(true);
+      return constructor.newInstance(new MappedRandomAccessDataFile(file));
+    } catch (InvocationTargetException e) {
+      throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw new IOException("Unable to memory map " + file + " with this spring-boot loader version", e);
+    }
+  }
+
+  @Override
+  protected Archive getNestedArchive(Entry entry) throws IOException {
+    ZipEntry zipEntry = jarFile.getEntry(entry.getName());
+    if (zipEntry.getComment() != null && zipEntry.getComment()
+        .startsWith(UNPACK_MARKER)) {
+      return super.getNestedArchive(entry);
+    }
+    try {
+      return new MappedJarFileArchive(path, sharedJar, sharedJar.nested(jarFile, entry.getName()), false);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Release the fat jar, which is closed with its nested jars once no other app started from it uses it anymore. Does
+   * nothing for a nested archive, closed with its fat jar.
+   */
+  @Override
+  public synchronized void close() {
+    if (!fatJar || closed) {
+      return;
+    }
+    closed = true;
+    SHARED_JARS.computeIfPresent(path, (key, current) -> {
+      // a replaced jar is already closed
+      if (current != sharedJar || --current.references > 0) {
+        return current;
+      }
+      log.debug("unmapping {}", path);
+      current.close();
+      return null;
+    });
+  }
+
+}
@@ -0,0 +1,60 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import org.springframework.boot.loader.data.RandomAccessData;
+import org.springframework.boot.loader.data.RandomAccessDataFile;
+
+/**
+ * A jar file read from memory instead of positioned file reads. The spring-boot loader JarFile reads its root file and
+ * its nested jars only through the RandomAccessData methods, which are all served by the mapping.
+ *
+ * @author bderancourt
+ */
+class MappedRandomAccessDataFile extends RandomAccessDataFile {
+
+  private final ByteBufferData data;
+
+  MappedRandomAccessDataFile(File file) throws IOException {
+    super(file);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException(file + " is too large to be memory mapped");
+      }
+      data = new ByteBufferData(channel.map(MapMode.READ_ONLY, 0, size));
+    }
+  }
+
+  @Override
+  public InputStream getInputStream() {
+    return data.getInputStream();
+  }
+
+  @Override
+  public RandomAccessData getSubsection(long offset, long length) {
+    return data.getSubsection(offset, length);
+  }
+
+  @Override
+  public byte[] read() throws EOFException {
+    return data.read();
+  }
+
+  @Override
+  public byte[] read(long offset, long length) throws EOFException {
+    return data.read(offset, length);
+  }
+
+  @Override
+  public long getSize() {
+    return data.getSize();
+  }
+
+}
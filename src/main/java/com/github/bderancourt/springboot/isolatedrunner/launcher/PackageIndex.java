@@ -0,0 +1,185 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+
+import com.github.bderancourt.springboot.isolatedrunner.util.ClassPathCache;
+
+/**
+ * Index of the packages of a classpath: for each package, the positions in the classpath of the jars and directories
+ * containing it. The packages are named with slashes, the root package is the empty string.
+ *
+ * @author bderancourt
+ */
+public class PackageIndex {
+
+  /**
+   * System property enabling the lazy classloader: a jar is only opened when a class of its packages is requested
+   */
+  public static final String LAZY_PROPERTY = "isolatedrunner.classloader.lazy";
+
+  private static final int[] NONE = new int[0];
+
+  private final Map<String, int[]> jarsByPackage;
+
+  private PackageIndex(Map<String, int[]> jarsByPackage) {
+    this.jarsByPackage = jarsByPackage;
+  }
+
+  /**
+   * @return true if the isolatedrunner.classloader.lazy system property is true
+   */
+  public static boolean isLazy() {
+    return Boolean.getBoolean(LAZY_PROPERTY);
+  }
+
+  /**
+   * Read the entries of each jar and directory of the classpath. The plain jars are closed once read, the nested jars
+   * are read from the jars already opened by the spring-boot loader.
+   *
+   * @param urls
+   *          the classpath
+   * @return the index of its packages
+   * @throws IOException
+   *           if a jar can't be read
+   */
+  public static PackageIndex build(URL[] urls) throws IOException {
+    Map<String, Set<Integer>> jarsByPackage = new HashMap<>();
+    for (int i = 0; i < urls.length; i++) {
+      for (String packageName : readPackages(urls[i])) {
+        add(jarsByPackage, packageName, i);
+      }
+    }
+    return of(jarsByPackage);
+  }
+
+  /**
+   * Same as {@link #build(URL[])}, the packages of the jars being persisted with the resolved classpath in the
+   * {@link ClassPathCache}: the jars are only read again when one of them is modified. The directories, target/classes
+   * being rebuilt between two runs, are read each time.
+   *
+   * @param urls
+   *          the classpath
+   * @return the index of its packages
+   * @throws IOException
+   *           if a jar can't be read
+   */
+  public static PackageIndex load(URL[] urls) throws IOException {
+    Map<String, Set<Integer>> jarsByPackage = new HashMap<>();
+    Optional<List<String>> cachedJarPackages = ClassPathCache.getIndex(urls);
+    List<String> jarPackages = new ArrayList<>();
+    for (int i = 0; i < urls.length; i++) {
+      boolean directory = isDirectory(urls[i]);
+      if (directory || !cachedJarPackages.isPresent()) {
+        for (String packageName : readPackages(urls[i])) {
+          add(jarsByPackage, packageName, i);
+          if (!directory) {
+            jarPackages.add(i + " " + packageName);
+          }
+        }
+      }
+    }
+    if (cachedJarPackages.isPresent()) {
+      for (String line : cachedJarPackages.get()) {
+        int separator = line.indexOf(' ');
+        add(jarsByPackage, line.substring(separator + 1), Integer.parseInt(line.substring(0, separator)));
+      }
+    } else {
+      ClassPathCache.putIndex(urls, jarPackages);
+    }
+    return of(jarsByPackage);
+  }
+
+  private static void add(Map<String, Set<Integer>> jarsByPackage, String packageName, int jar) {
+    jarsByPackage.computeIfAbsent(packageName, key -> new TreeSet<>())
+        .add(jar);
+  }
+
+  private static PackageIndex of(Map<String, Set<Integer>> jarsByPackage) {
+    Map<String, int[]> index = new HashMap<>(jarsByPackage.size() * 2);
+    jarsByPackage.forEach((packageName, jars) -> index.put(packageName, jars.stream()
+        .mapToInt(Integer::intValue)
+        .toArray()));
+    return new PackageIndex(index);
+  }
+
+  private static boolean isDirectory(URL url) {
+    return "file".equals(url.getProtocol()) && url.getFile()
+        .endsWith("/");
+  }
+
+  private static Set<String> readPackages(URL url) throws IOException {
+    Set<String> packages = new LinkedHashSet<>();
+    if ("jar".equals(url.getProtocol())) {
+      Enumeration<? extends ZipEntry> entries = ((JarURLConnection) url.openConnection()).getJarFile()
+          .entries();
+      while (entries.hasMoreElements()) {
+        addPackage(packages, entries.nextElement());
+      }
+    } else if (isDirectory(url)) {
+      Path directory = Paths.get(FileUtils.toFile(url)
+          .toURI());
+      if (Files.isDirectory(directory)) {
+        try (Stream<Path> files = Files.walk(directory)) {
+          files.filter(Files::isRegularFile)
+              .map(file -> directory.relativize(file.getParent()))
+              .forEach(packagePath -> packages.add(packagePath.toString()
+                  .replace('\\', '/')));
+        }
+      }
+    } else if (FileUtils.toFile(url)
+        .isFile()) {
+      try (ZipFile zipFile = new ZipFile(FileUtils.toFile(url))) {
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+          addPackage(packages, entries.nextElement());
+        }
+      }
+    }
+    return packages;
+  }
+
+  private static void addPackage(Set<String> packages, ZipEntry entry) {
+    if (!entry.isDirectory()) {
+      int lastSlash = entry.getName()
+          .lastIndexOf('/');
+      packages.add(lastSlash < 0 ? "" : entry.getName()
+          .substring(0, lastSlash));
+    }
+  }
+
+  /**
+   * @param packageName
+   *          a package name, with slashes
+   * @return the positions in the classpath of the jars containing the package, in the classpath order, empty if none
+   */
+  public int[] getJars(String packageName) {
+    return jarsByPackage.getOrDefault(packageName, NONE);
+  }
+
+  /**
+   * @return the number of packages
+   */
+  public int size() {
+    return jarsByPackage.size();
+  }
+
+}
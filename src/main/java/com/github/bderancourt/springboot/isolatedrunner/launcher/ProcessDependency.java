@@ -0,0 +1,116 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the spring-boot app in a child JVM, for the apps which can't share a JVM: static state, JNI libraries, system
+ * properties... The classpath is resolved by the dependency of the app found in the classpath, the fat jars are
+ * exploded so the child JVM only needs plain directories and jars. The child JVM is taken from the
+ * {@link WarmJvmPool}, where the isolated classloader is already created with the framework classes loaded.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class ProcessDependency implements Dependency {
+
+  private final Dependency dependency;
+
+  private final String name;
+
+  private final String mainClass;
+
+  private IsolatedAppHandle handle;
+
+  /**
+   * @param dependency
+   *          the dependency of the app found in the classpath, resolving its classpath
+   * @param name
+   *          the app name
+   * @param mainClass
+   *          the main spring @Configuration class to launch
+   */
+  public ProcessDependency(Dependency dependency, String name, String mainClass) {
+    this.dependency = dependency;
+    this.name = name;
+    this.mainClass = mainClass;
+    if (dependency instanceof JarDependency) {
+      // the nested jar URLs need the spring-boot loader, absent from the child JVM
+      ((JarDependency) dependency).setExploded(true);
+    }
+  }
+
+  @Override
+  public URL[] getClassPath() throws Exception {
+    return dependency.getClassPath();
+  }
+
+  /**
+   * Ignored: the app classes are loaded in the child JVM.
+   */
+  @Override
+  public void setSharedLayer(SharedClassLoaderLayer sharedLayer) {
+    log.debug("{} runs in its own JVM, the shared layer is ignored", name);
+  }
+
+  /**
+   * Launch the spring-boot app in a warm child JVM, without waiting for it to be ready.
+   *
+   * @param args
+   *          to pass to the spring-boot app
+   * @param executor
+   *          waits for the app startup in the child JVM
+   * @param timeout
+   *          the maximum duration of the startup, null for none
+   * @return the handle of the app, its application context future is completed with the Process of the child JVM
+   * @throws Exception
+   *           if the child JVM can't be launched
+   */
+  @Override
+  public IsolatedAppHandle start(String[] args, Executor executor, Duration timeout) throws Exception {
+    long startNanos = System.nanoTime();
+    URL[] classPath = getClassPath();
+    long phaseNanos = System.nanoTime();
+    JvmProcess jvmProcess = WarmJvmPool.acquire(name, classPath);
+    getStartupReport().record(StartupReport.JVM_ACQUISITION, phaseNanos, classPath.length);
+
+    CompletableFuture<Object> started = new CompletableFuture<>();
+    executor.execute(() -> {
+      try {
+        long warmupNanos = System.nanoTime();
+        int preloadedClassCount = jvmProcess.awaitWarm();
+        getStartupReport().record(StartupReport.JVM_WARMUP, warmupNanos, preloadedClassCount);
+        jvmProcess.start(name, mainClass, args);
+        started.complete(jvmProcess.getProcess());
+      } catch (Exception e) {
+        started.completeExceptionally(e);
+      }
+    });
+    handle = IsolatedAppHandle.launched(name, jvmProcess, started, timeout, startNanos, getStartupReport());
+    if (dependency instanceof JarDependency) {
+      JarDependency jarDependency = (JarDependency) dependency;
+      handle.addCloseable(jarDependency.getFatJarArchive());
+      if (jarDependency.getExplodedJar() != null) {
+        handle.addCloseable(jarDependency.getExplodedJar());
+      }
+    }
+    return handle;
+  }
+
+  @Override
+  public StartupReport getStartupReport() {
+    return dependency.getStartupReport();
+  }
+
+  @Override
+  public void stop() throws Exception {
+    if (handle != null) {
+      handle.stop();
+    }
+  }
+
+}
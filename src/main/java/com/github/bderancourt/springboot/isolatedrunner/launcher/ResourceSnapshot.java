@@ -0,0 +1,92 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.time.Duration;
+
+/**
+ * Resources used by a spring-boot app at a given time, sampled by its {@link AppMonitor}. The CPU time and the allocated
+ * bytes are cumulated since the app start, the threads which ended included.
+ *
+ * @author bderancourt
+ */
+public class ResourceSnapshot {
+
+  private final String name;
+
+  private final long timestampMillis;
+
+  private final int threadCount;
+
+  private final Duration cpuTime;
+
+  private final long allocatedBytes;
+
+  private final int loadedClassCount;
+
+  private final double cpuLoad;
+
+  ResourceSnapshot(String name, long timestampMillis, int threadCount, Duration cpuTime, long allocatedBytes,
+      int loadedClassCount, double cpuLoad) {
+    this.name = name;
+    this.timestampMillis = timestampMillis;
+    this.threadCount = threadCount;
+    this.cpuTime = cpuTime;
+    this.allocatedBytes = allocatedBytes;
+    this.loadedClassCount = loadedClassCount;
+    this.cpuLoad = cpuLoad;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return when the snapshot was sampled, in milliseconds since the epoch
+   */
+  public long getTimestampMillis() {
+    return timestampMillis;
+  }
+
+  /**
+   * @return the number of live threads of the app
+   */
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  /**
+   * @return the CPU time of the app threads, zero if the JVM doesn't measure it
+   */
+  public Duration getCpuTime() {
+    return cpuTime;
+  }
+
+  /**
+   * @return the bytes allocated by the app threads, -1 if the JVM doesn't measure them
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /**
+   * @return the number of classes loaded by the app classloader, -1 if unknown
+   */
+  public int getLoadedClassCount() {
+    return loadedClassCount;
+  }
+
+  /**
+   * @return the CPU time of the app threads since the previous snapshot, divided by the elapsed time: 1 is a whole
+   *         core, -1 for the first snapshot
+   */
+  public double getCpuLoad() {
+    return cpuLoad;
+  }
+
+  @Override
+  public String toString() {
+    return name + ": " + threadCount + " threads, cpu " + cpuTime.toMillis() + " ms" + (cpuLoad >= 0 ? " ("
+        + Math.round(cpuLoad * 100) + "% of a core)" : "") + ", " + (allocatedBytes >= 0 ? allocatedBytes / 1024 / 1024
+            + " MB allocated, " : "") + loadedClassCount + " classes";
+  }
+
+}
@@ -0,0 +1,246 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.net.URL;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.loader.jar.JarFile;
+
+import com.github.bderancourt.springboot.isolatedrunner.util.CacheUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A parent classloader shared by several isolated spring-boot apps. It contains the jars having the same file name and
+ * the same content in the classpath of all the apps, so the classes of these jars are loaded only once in the JVM.<br>
+ * A jar containing a class of an isolated package always stays in the classloader of each app. Beware that a shared jar
+ * can't see the classes of the isolated jars: all the dependencies of a shared jar must be shared too.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class SharedClassLoaderLayer {
+
+  /**
+   * Packages isolated by default: the runner itself, spring-boot and the logging systems which hold static state
+   */
+  public static final List<String> DEFAULT_ISOLATED_PACKAGES = Collections.unmodifiableList(
+      Arrays.asList("com.github.bderancourt.springboot.isolatedrunner", "org.springframework.boot", "org.slf4j",
+          "ch.qos.logback", "org.apache.logging.log4j"));
+
+  private static final Map<String, Fingerprint> FINGERPRINTS = new ConcurrentHashMap<>();
+
+  private static class Fingerprint {
+
+    private final String key;
+
+    private final Set<String> packages;
+
+    private Fingerprint(String key, Set<String> packages) {
+      this.key = key;
+      this.packages = packages;
+    }
+  }
+
+  private final CountingClassLoader classLoader;
+
+  private final Set<String> sharedKeys;
+
+  private final int appCount;
+
+  private SharedClassLoaderLayer(URL[] sharedUrls, Set<String> sharedKeys, int appCount) {
+    this.classLoader = new CountingClassLoader(sharedUrls, null);
+    this.sharedKeys = sharedKeys;
+    this.appCount = appCount;
+  }
+
+  /**
+   * Build the shared layer of several spring-boot apps.
+   *
+   * @param appsClassPaths
+   *          the isolated classpath of each app
+   * @param sharedPackages
+   *          if not empty, only the jars whose classes all belong to these packages can be shared
+   * @param isolatedPackages
+   *          the jars containing a class of these packages are never shared
+   * @return the shared layer
+   */
+  public static SharedClassLoaderLayer create(Collection<URL[]> appsClassPaths, Collection<String> sharedPackages,
+      Collection<String> isolatedPackages) {
+    JarFile.registerUrlProtocolHandler();
+    long start = System.currentTimeMillis();
+
+    // The key of each jar which is in the classpath of all the apps, with the URL of the first app
+    Map<String, URL> sharedCandidates = null;
+    for (URL[] appClassPath : appsClassPaths) {
+      List<URL> jarUrls = Arrays.stream(appClassPath)
+          .filter(SharedClassLoaderLayer::isJar)
+          .collect(Collectors.toList());
+      // the jars are read concurrently, then their fingerprint is taken from the cache
+      jarUrls.parallelStream()
+          .forEach(SharedClassLoaderLayer::fingerprint);
+      Map<String, URL> appKeys = new LinkedHashMap<>();
+      for (URL url : jarUrls) {
+        Fingerprint fingerprint = fingerprint(url);
+        if (isShareable(fingerprint, sharedPackages, isolatedPackages)) {
+          appKeys.putIfAbsent(fingerprint.key, url);
+        }
+      }
+      if (sharedCandidates == null) {
+        sharedCandidates = appKeys;
+      } else {
+        sharedCandidates.keySet()
+            .retainAll(appKeys.keySet());
+      }
+    }
+    if (sharedCandidates == null || appsClassPaths.size() < 2) {
+      sharedCandidates = Collections.emptyMap();
+    }
+
+    log.info("shared classloader layer built in {} ms with {} jars", System.currentTimeMillis() - start,
+        sharedCandidates.size());
+    sharedCandidates.values()
+        .stream()
+        .map(Objects::toString)
+        .forEach(log::debug);
+    return new SharedClassLoaderLayer(sharedCandidates.values()
+        .toArray(new URL[0]), new HashSet<>(sharedCandidates.keySet()), appsClassPaths.size());
+  }
+
+  /**
+   * Create the classloader of an app, child of the shared classloader.
+   *
+   * @param urls
+   *          the whole isolated classpath of the app
+   * @return the app classloader, containing only the jars that are not shared
+   */
+  public ClassLoader createClassLoader(URL[] urls) {
+    List<URL> isolatedUrls = new ArrayList<>();
+    for (URL url : urls) {
+      if (!isJar(url) || !sharedKeys.contains(fingerprint(url).key)) {
+        isolatedUrls.add(url);
+      }
+    }
+    return new CountingClassLoader(isolatedUrls.toArray(new URL[0]), classLoader);
+  }
+
+  /**
+   * @return the URLs of the shared jars
+   */
+  public List<URL> getSharedUrls() {
+    return Arrays.asList(classLoader.getURLs());
+  }
+
+  /**
+   * @return the number of classes loaded once by the shared classloader
+   */
+  public int getLoadedClassCount() {
+    return classLoader.getLoadedClassCount();
+  }
+
+  /**
+   * The metaspace saved is estimated from the number of classes loaded by the shared classloader, which would
+   * otherwise be loaded by each app, and the average metaspace used by a class in this JVM.
+   *
+   * @return the estimated metaspace saved in bytes
+   */
+  public long estimateSavedMetaspace() {
+    long metaspaceUsed = ManagementFactory.getMemoryPoolMXBeans()
+        .stream()
+        .filter(pool -> "Metaspace".equals(pool.getName()))
+        .map(MemoryPoolMXBean::getUsage)
+        .mapToLong(usage -> usage.getUsed())
+        .sum();
+    int jvmLoadedClassCount = ManagementFactory.getClassLoadingMXBean()
+        .getLoadedClassCount();
+    if (jvmLoadedClassCount == 0) {
+      return 0;
+    }
+    return (long) getLoadedClassCount() * (appCount - 1) * (metaspaceUsed / jvmLoadedClassCount);
+  }
+
+  /**
+   * Log the classes and metaspace saved by this layer
+   */
+  public void report() {
+    log.info("shared classloader layer: {} jars, {} classes loaded once for {} apps, ~{} KB of metaspace saved",
+        getSharedUrls().size(), getLoadedClassCount(), appCount, estimateSavedMetaspace() / 1024);
+  }
+
+  private static boolean isJar(URL url) {
+    return !url.getFile()
+        .endsWith("/") || url.getFile()
+            .endsWith(".jar!/");
+  }
+
+  private static boolean isShareable(Fingerprint fingerprint, Collection<String> sharedPackages,
+      Collection<String> isolatedPackages) {
+    for (String jarPackage : fingerprint.packages) {
+      if (isolatedPackages.stream()
+          .anyMatch(isolatedPackage -> isInPackage(jarPackage, isolatedPackage))) {
+        return false;
+      }
+      if (!sharedPackages.isEmpty() && sharedPackages.stream()
+          .noneMatch(sharedPackage -> isInPackage(jarPackage, sharedPackage))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isInPackage(String jarPackage, String parentPackage) {
+    return jarPackage.equals(parentPackage) || jarPackage.startsWith(parentPackage + ".");
+  }
+
+  /**
+   * The fingerprint of a jar is its file name, its SHA-256 and the packages of its classes
+   */
+  private static Fingerprint fingerprint(URL url) {
+    return FINGERPRINTS.computeIfAbsent(url.toString(), key -> {
+      // a nested jar URL ends with !/, the jar content is read without it
+      String jarUrl = key.endsWith("!/") ? key.substring(0, key.length() - 2) : key;
+      String fileName = jarUrl.substring(jarUrl.lastIndexOf('/') + 1);
+      MessageDigest digest = CacheUtils.newSha256();
+      Set<String> packages = new HashSet<>();
+      try (InputStream is = new DigestInputStream(new URL(jarUrl).openStream(), digest)) {
+        JarInputStream jis = new JarInputStream(is, false);
+        JarEntry entry;
+        while ((entry = jis.getNextJarEntry()) != null) {
+          String name = entry.getName();
+          int lastSlash = name.lastIndexOf('/');
+          if (name.endsWith(".class") && lastSlash > 0) {
+            packages.add(name.substring(0, lastSlash)
+                .replace('/', '.'));
+          }
+        }
+        // consume the central directory to complete the digest
+        byte[] buffer = new byte[8192];
+        while (is.read(buffer) != -1) {
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return new Fingerprint(fileName + "@" + CacheUtils.toHex(digest.digest()), packages);
+    });
+  }
+
+}
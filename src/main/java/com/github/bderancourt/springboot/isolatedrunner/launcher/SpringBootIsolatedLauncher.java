@@ -1,22 +1,49 @@
 package com.github.bderancourt.springboot.isolatedrunner.launcher;
 
-import java.lang.reflect.Method;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
+import org.springframework.beans.CachedIntrospectionResults;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationFailedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.ConfigurableApplicationContext;
 
+/**
+ * Runs the spring-boot app inside its isolated classloader. This class is loaded by the isolated classloader, so it
+ * only exchanges JDK types with the runner.
+ */
 public class SpringBootIsolatedLauncher {
 
-  private ApplicationContext context;
+  public static final String RUN_EVENT = "run";
+
+  private volatile ApplicationContext context;
+
+  // the future of the last run, until the app is ready or failed to start
+  private volatile CompletableFuture<Object> ready;
+
+  // when the run began and when each spring-boot event was first published, by event simple name
+  private final Map<String, Long> eventNanos = new ConcurrentHashMap<>();
 
   private final Class<?> applicationClass;
 
-  private final String[] args;
+  private volatile String[] args;
 
-  private final String name;
+  // set by the stop, a run still starting then closes its context once it's refreshed
+  private boolean unloaded;
 
-  private boolean shouldWait;
+  private final String name;
 
   public SpringBootIsolatedLauncher(Class<?> applicationClass, String[] args, String name) {
     this.applicationClass = applicationClass;
@@ -24,52 +51,193 @@ public class SpringBootIsolatedLauncher {
     this.name = name;
   }
 
-  public void run() {
+  /**
+   * Launch the spring-boot app without waiting for it.
+   *
+   * @param executor
+   *          runs SpringApplication.run
+   * @return a future completed with the application context on ApplicationReadyEvent, or exceptionally if the app
+   *         fails to start
+   */
+  public CompletableFuture<Object> start(Executor executor) {
     if (context != null) {
       throw new IllegalStateException("Context is not null ! App is running");
     }
-    Thread thread = new Thread(() -> {
+    CompletableFuture<Object> ready = new CompletableFuture<>();
+    this.ready = ready;
+    Runnable run = () -> {
+      Thread thread = Thread.currentThread();
+      ClassLoader previousClassLoader = thread.getContextClassLoader();
+      thread.setContextClassLoader(applicationClass.getClassLoader());
       try {
-        // Launch SpringApplication.run(applicationClass, args) with reflection to be compatible with all spring-boot
-        // versions
-        Class<?> springApplicationClass = Class.forName("org.springframework.boot.SpringApplication");
-        Method runMethod;
-        try {
-          // Spring-boot v1
-          runMethod = springApplicationClass.getDeclaredMethod("run", Object.class, String[].class);
-        } catch (NoSuchMethodError | NoSuchMethodException e) {
-          // Spring-boot v2
-          runMethod = springApplicationClass.getDeclaredMethod("run", Class.class, String[].class);
+        SpringApplication application = createSpringApplication();
+        ApplicationListener<ApplicationEvent> listener = event -> {
+          eventNanos.putIfAbsent(event.getClass()
+              .getSimpleName(), System.nanoTime());
+          if (event instanceof ApplicationReadyEvent) {
+            context = ((ApplicationReadyEvent) event).getApplicationContext();
+            ready.complete(context);
+          } else if (event instanceof ApplicationFailedEvent) {
+            ready.completeExceptionally(((ApplicationFailedEvent) event).getException());
+          }
+        };
+        application.addListeners(listener);
+        eventNanos.put(RUN_EVENT, System.nanoTime());
+        ConfigurableApplicationContext runContext = application.run(args);
+        synchronized (this) {
+          if (unloaded) {
+            // already closed by the stop if it was ready
+            if (runContext.isActive()) {
+              SpringApplication.exit(runContext);
+            }
+            context = null;
+            ready.completeExceptionally(new IllegalStateException(name + " was stopped during its startup"));
+            return;
+          }
+          if (context == null) {
+            context = runContext;
+          }
         }
-        context = (ConfigurableApplicationContext) runMethod.invoke(null, applicationClass, args);
-      } catch (Exception e) {
-        e.printStackTrace();
+        // no-op when the ApplicationReadyEvent listener already completed it
+        ready.complete(runContext);
+      } catch (Throwable e) {
+        ready.completeExceptionally(e instanceof InvocationTargetException ? e.getCause() : e);
       } finally {
-        synchronized (this) {
-          shouldWait = false;
-          notifyAll();
+        thread.setContextClassLoader(previousClassLoader);
+      }
+    };
+    try {
+      executor.execute(run);
+    } catch (RuntimeException e) {
+      // e.g. a shut down executor, the next restart must not wait for a run which never happens
+      ready.completeExceptionally(e);
+      throw e;
+    }
+    return ready;
+  }
+
+  /**
+   * Close the context and launch the spring-boot app again with new args, reusing the classes already loaded.
+   *
+   * @param args
+   *          the new args of the spring-boot app
+   * @param executor
+   *          runs SpringApplication.run
+   * @return a future completed with the new application context on ApplicationReadyEvent, or exceptionally if the app
+   *         fails to start
+   * @throws IllegalStateException
+   *           if the last run is not ready yet, its context would be leaked
+   */
+  public CompletableFuture<Object> restart(String[] args, Executor executor) {
+    if (ready != null && !ready.isDone()) {
+      throw new IllegalStateException(name + " is starting, it can't be restarted before it's ready");
+    }
+    if (context != null) {
+      SpringApplication.exit(context);
+      context = null;
+    }
+    eventNanos.clear();
+    this.args = args;
+    return start(executor);
+  }
+
+  /**
+   * Close the context and release what the JVM-wide registries hold from this classloader
+   */
+  public void stop() {
+    unload();
+    ClassLoader classLoader = SpringBootIsolatedLauncher.class.getClassLoader();
+    if (classLoader != applicationClass.getClassLoader()) {
+      CachedIntrospectionResults.clearClassLoader(classLoader);
+      deregisterJdbcDrivers(classLoader);
+    }
+    stopLogback(classLoader);
+  }
+
+  /**
+   * Close the context and release what the JVM-wide registries hold from the classloader of the application classes,
+   * before a reload of these classes in a new classloader. The classloader of this launcher, holding the jars, stays
+   * in use.
+   */
+  public void unload() {
+    synchronized (this) {
+      unloaded = true;
+    }
+    if (context != null) {
+      SpringApplication.exit(context);
+      context = null;
+    }
+    ClassLoader classLoader = applicationClass.getClassLoader();
+    CachedIntrospectionResults.clearClassLoader(classLoader);
+    deregisterJdbcDrivers(classLoader);
+  }
+
+  /**
+   * @return the args of the last run
+   */
+  public String[] getArgs() {
+    return args;
+  }
+
+  /**
+   * @return the System.nanoTime() of the run beginning, under "run", and of the first publication of each event, under
+   *         the event simple name (ApplicationPreparedEvent, ContextRefreshedEvent, ApplicationReadyEvent...)
+   */
+  public Map<String, Long> getEventNanos() {
+    return eventNanos;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  private void deregisterJdbcDrivers(ClassLoader classLoader) {
+    // DriverManager only returns the drivers visible from the caller classloader, this one
+    Enumeration<Driver> drivers = DriverManager.getDrivers();
+    while (drivers.hasMoreElements()) {
+      Driver driver = drivers.nextElement();
+      if (driver.getClass()
+          .getClassLoader() == classLoader) {
+        try {
+          DriverManager.deregisterDriver(driver);
+        } catch (SQLException e) {
+          // keep on releasing the other resources
         }
       }
-    });
+    }
+  }
 
-    thread.setName(name);
-    thread.setContextClassLoader(applicationClass.getClassLoader());
-    shouldWait = true;
-    thread.start();
+  private void stopLogback(ClassLoader classLoader) {
     try {
-      synchronized (this) {
-        while (shouldWait) {
-          wait(1000);
-        }
+      Object loggerFactory = Class.forName("org.slf4j.LoggerFactory", false, classLoader)
+          .getMethod("getILoggerFactory")
+          .invoke(null);
+      if ("ch.qos.logback.classic.LoggerContext".equals(loggerFactory.getClass()
+          .getName()) && loggerFactory.getClass()
+              .getClassLoader() == classLoader) {
+        loggerFactory.getClass()
+            .getMethod("stop")
+            .invoke(loggerFactory);
       }
-    } catch (InterruptedException e) {
-      throw new IllegalStateException(e);
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // slf4j or logback are not in this classloader
     }
   }
 
-  public void stop() {
-    SpringApplication.exit(context);
-    context = null;
+  /**
+   * Instantiate SpringApplication with reflection to be compatible with all spring-boot versions
+   */
+  private SpringApplication createSpringApplication() throws Exception {
+    Constructor<SpringApplication> constructor;
+    try {
+      // Spring-boot v2
+      constructor = SpringApplication.class.getConstructor(Class[].class);
+      return constructor.newInstance((Object) new Class<?>[] { applicationClass });
+    } catch (NoSuchMethodException e) {
+      // Spring-boot v1
+      constructor = SpringApplication.class.getConstructor(Object[].class);
+      return constructor.newInstance((Object) new Object[] { applicationClass });
+    }
   }
 
 }
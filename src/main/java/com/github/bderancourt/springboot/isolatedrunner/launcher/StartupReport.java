@@ -0,0 +1,282 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Duration of each phase of the startup of a spring-boot app, from the classpath resolution to the
+ * ApplicationReadyEvent, with the number of jars, URLs or classes each phase processed.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class StartupReport implements StartupReportMXBean {
+
+  /**
+   * System property to register the startup reports as JMX MXBeans
+   */
+  public static final String JMX_PROPERTY = "isolatedrunner.jmx";
+
+  public static final String CLASSPATH_RESOLUTION = "classpath resolution";
+
+  public static final String DEPENDENCY_LOOKUP = "dependency lookup";
+
+  public static final String CLASSPATH_CACHE = "classpath cache";
+
+  public static final String CLASSPATH_PLAN = "classpath plan";
+
+  public static final String MANIFEST_READ = "manifest read";
+
+  public static final String RUNNER_JARS_LOOKUP = "runner jars lookup";
+
+  public static final String EXACT_MATCH = "exact match";
+
+  public static final String VERSION_MISMATCH_MATCH = "version mismatch match";
+
+  public static final String ECLIPSE_PROJECTS_MATCH = "eclipse projects match";
+
+  public static final String MAVEN_REPOSITORY_LOCATION = "maven repository location";
+
+  public static final String MAVEN_REPOSITORY_LOOKUP = "maven repository lookup";
+
+  public static final String GRADLE_CACHE_LOOKUP = "gradle cache lookup";
+
+  public static final String NESTED_ARCHIVES = "nested archives";
+
+  public static final String EXPLODED_ARCHIVE = "exploded archive";
+
+  public static final String PACKAGE_INDEX = "package index";
+
+  public static final String CLASSLOADER_CREATION = "classloader creation";
+
+  public static final String JVM_ACQUISITION = "jvm acquisition";
+
+  public static final String JVM_WARMUP = "jvm warmup";
+
+  public static final String MAIN_CLASS_LOADING = "main class loading";
+
+  public static final String SPRING_APPLICATION_PREPARATION = "spring application preparation";
+
+  public static final String CONTEXT_REFRESH = "context refresh";
+
+  public static final String RUNNERS = "application runners";
+
+  public static final String CONTEXT_CLOSE = "context close";
+
+  /**
+   * A startup phase
+   */
+  public static class Phase {
+
+    private final String name;
+
+    private final Duration duration;
+
+    private final int count;
+
+    private Phase(String name, Duration duration, int count) {
+      this.name = name;
+      this.duration = duration;
+      this.count = count;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public Duration getDuration() {
+      return duration;
+    }
+
+    /**
+     * @return the number of jars, URLs or classes processed by the phase, -1 if not relevant
+     */
+    public int getCount() {
+      return count;
+    }
+
+    @Override
+    public String toString() {
+      return name + " " + duration.toMillis() + " ms" + (count >= 0 ? " (" + count + ")" : "");
+    }
+  }
+
+  private final String name;
+
+  private final List<Phase> phases = new CopyOnWriteArrayList<>();
+
+  private volatile int loadedClassCount = -1;
+
+  private volatile Duration classLoadingDuration;
+
+  private ObjectName objectName;
+
+  StartupReport(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Record a phase ending now.
+   *
+   * @param phase
+   *          the phase name
+   * @param startNanos
+   *          the System.nanoTime() at the beginning of the phase
+   * @param count
+   *          the number of jars, URLs or classes processed by the phase, -1 if not relevant
+   * @return the end of the phase, the beginning of the next one
+   */
+  public long record(String phase, long startNanos, int count) {
+    long endNanos = System.nanoTime();
+    record(phase, Duration.ofNanos(endNanos - startNanos), count);
+    return endNanos;
+  }
+
+  /**
+   * @param phase
+   *          the phase name
+   * @param duration
+   *          the phase duration
+   * @param count
+   *          the number of jars, URLs or classes processed by the phase, -1 if not relevant
+   */
+  public void record(String phase, Duration duration, int count) {
+    phases.add(new Phase(phase, duration, count));
+  }
+
+  void setLoadedClassCount(int loadedClassCount) {
+    this.loadedClassCount = loadedClassCount;
+  }
+
+  void setClassLoadingDuration(Duration classLoadingDuration) {
+    this.classLoadingDuration = classLoadingDuration;
+  }
+
+  /**
+   * Register this report as a JMX MXBean if the isolatedrunner.jmx system property is true.
+   */
+  synchronized void registerMBean() {
+    if (!Boolean.getBoolean(JMX_PROPERTY) || objectName != null) {
+      return;
+    }
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName candidate = new ObjectName(
+          "com.github.bderancourt.springboot.isolatedrunner:type=StartupReport,name=" + ObjectName.quote(name));
+      if (!server.isRegistered(candidate)) {
+        server.registerMBean(this, candidate);
+        objectName = candidate;
+      }
+    } catch (JMException e) {
+      log.warn("Unable to register the startup report of {}", name, e);
+    }
+  }
+
+  synchronized void unregisterMBean() {
+    if (objectName == null) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer()
+          .unregisterMBean(objectName);
+    } catch (JMException e) {
+      log.warn("Unable to unregister the startup report of {}", name, e);
+    }
+    objectName = null;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the recorded phases, in the order they ended
+   */
+  public List<Phase> getPhases() {
+    return Collections.unmodifiableList(phases);
+  }
+
+  /**
+   * @param phase
+   *          a phase name
+   * @return the duration of the phase, summed if it was recorded several times
+   */
+  public Optional<Duration> getDuration(String phase) {
+    return phases.stream()
+        .filter(recorded -> recorded.name.equals(phase))
+        .map(Phase::getDuration)
+        .reduce(Duration::plus);
+  }
+
+  /**
+   * @return the sum of the phase durations
+   */
+  public Duration getTotal() {
+    return phases.stream()
+        .map(Phase::getDuration)
+        .reduce(Duration.ZERO, Duration::plus);
+  }
+
+  @Override
+  public Map<String, Long> getPhaseMillis() {
+    Map<String, Long> millis = new LinkedHashMap<>();
+    phases.forEach(phase -> millis.merge(phase.name, phase.duration.toMillis(), Long::sum));
+    return millis;
+  }
+
+  @Override
+  public Map<String, Integer> getPhaseCounts() {
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    phases.forEach(phase -> counts.merge(phase.name, phase.count, (a, b) -> a < 0 ? b : b < 0 ? a : a + b));
+    return counts;
+  }
+
+  @Override
+  public long getTotalMillis() {
+    return getTotal().toMillis();
+  }
+
+  /**
+   * @return the number of classes defined by the app classloader until the app was ready, -1 if unknown
+   */
+  @Override
+  public int getLoadedClassCount() {
+    return loadedClassCount;
+  }
+
+  /**
+   * @return the time spent by the app classloader defining its classes until the app was ready, if known
+   */
+  public Optional<Duration> getClassLoadingDuration() {
+    return Optional.ofNullable(classLoadingDuration);
+  }
+
+  @Override
+  public long getClassLoadingMillis() {
+    return classLoadingDuration == null ? -1 : classLoadingDuration.toMillis();
+  }
+
+  @Override
+  public String toString() {
+    StringJoiner joiner = new StringJoiner(", ", name + " startup " + getTotalMillis() + " ms: ",
+        (loadedClassCount >= 0 ? ", " + loadedClassCount + " classes loaded" : "") + (classLoadingDuration != null
+            ? " in " + classLoadingDuration.toMillis() + " ms" : ""));
+    phases.forEach(phase -> joiner.add(phase.toString()));
+    return joiner.toString();
+  }
+
+}
@@ -0,0 +1,33 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.util.Map;
+
+/**
+ * JMX view of a {@link StartupReport}, registered when the isolatedrunner.jmx system property is true.
+ *
+ * @author bderancourt
+ */
+public interface StartupReportMXBean {
+
+  String getName();
+
+  /**
+   * @return the duration of each startup phase in milliseconds, in the order they were recorded
+   */
+  Map<String, Long> getPhaseMillis();
+
+  /**
+   * @return the number of jars, URLs or classes processed by each startup phase
+   */
+  Map<String, Integer> getPhaseCounts();
+
+  long getTotalMillis();
+
+  int getLoadedClassCount();
+
+  /**
+   * @return the time spent by the app classloader defining its classes in milliseconds, -1 if unknown
+   */
+  long getClassLoadingMillis();
+
+}
@@ -0,0 +1,67 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.util.concurrent.ThreadFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The thread factories of the threads launching the spring-boot apps. The virtual threads are created with reflection,
+ * the runner being compiled for Java 8.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class ThreadFactories {
+
+  /**
+   * System property selecting the default thread factory: platform or virtual
+   */
+  public static final String PROPERTY = "isolatedrunner.threads";
+
+  private static volatile ThreadFactory virtual;
+
+  private ThreadFactories() {
+  };
+
+  /**
+   * @return a factory of platform threads, inheriting the daemon status and the priority of the creating thread
+   */
+  public static ThreadFactory platform() {
+    return Thread::new;
+  }
+
+  /**
+   * @return a factory of virtual threads on JDK 21+, of platform threads on older JDKs
+   */
+  public static ThreadFactory virtual() {
+    if (virtual == null) {
+      try {
+        Object builder = Thread.class.getMethod("ofVirtual")
+            .invoke(null);
+        virtual = (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+            .getMethod("factory")
+            .invoke(builder);
+      } catch (ReflectiveOperationException e) {
+        log.warn("virtual threads need JDK 21+, platform threads are used instead");
+        virtual = platform();
+      }
+    }
+    return virtual;
+  }
+
+  /**
+   * @return the thread factory of the isolatedrunner.threads system property, platform threads if not set
+   */
+  public static ThreadFactory current() {
+    String threads = System.getProperty(PROPERTY);
+    if (threads == null || threads.trim()
+        .isEmpty() || "platform".equalsIgnoreCase(threads.trim())) {
+      return platform();
+    }
+    if ("virtual".equalsIgnoreCase(threads.trim())) {
+      return virtual();
+    }
+    throw new IllegalArgumentException("Unknown " + PROPERTY + " " + threads);
+  }
+
+}
@@ -0,0 +1,187 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pool of child JVMs launched in advance for the apps of {@link ProcessDependency}. Each JVM of the pool already holds
+ * the isolated classloader of an app, with the framework classes preloaded, so starting the app only loads its own
+ * classes. A JVM is launched to replace each JVM taken from the pool, ready for the next start of the app.<br>
+ * The framework classes are the org.springframework classes of the app class list recorded by a
+ * {@link ClassDataSharing} training, or a few spring-boot core classes if the app wasn't trained. The CDS options are
+ * chosen when each JVM is launched: a warm JVM launched before the archive was dumped is still used, and a single JVM
+ * at a time dumps the archive.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class WarmJvmPool {
+
+  /**
+   * System property giving the number of warm JVMs kept for each app, 1 by default
+   */
+  public static final String SIZE_PROPERTY = "isolatedrunner.process.pool.size";
+
+  /**
+   * System property giving the options of the child JVMs, separated by spaces
+   */
+  public static final String JVM_OPTIONS_PROPERTY = "isolatedrunner.process.jvm.options";
+
+  private static final List<String> FRAMEWORK_PACKAGES = Arrays.asList("org/springframework/");
+
+  private static final List<String> DEFAULT_PRELOADED_CLASSES = Arrays.asList(Dependency.RUNNER_CLASS,
+      "org.springframework.boot.SpringApplication",
+      "org.springframework.context.annotation.AnnotationConfigApplicationContext",
+      "org.springframework.beans.factory.support.DefaultListableBeanFactory");
+
+  private static final Map<String, Pool> POOLS = new ConcurrentHashMap<>();
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  private static final ExecutorService LAUNCHER = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "isolated-runner-jvm-pool-" + THREAD_COUNT.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  static {
+    Runtime.getRuntime()
+        .addShutdownHook(new Thread(WarmJvmPool::clear, "isolated-runner-jvm-pool-shutdown"));
+  }
+
+  private static class Pool {
+
+    private final Deque<JvmProcess> idle = new ConcurrentLinkedDeque<>();
+
+    private final AtomicInteger launching = new AtomicInteger();
+  }
+
+  private WarmJvmPool() {
+  };
+
+  /**
+   * Take a warm JVM of the app from the pool, or launch one if there is none, and launch its replacement.
+   *
+   * @param app
+   *          the app name
+   * @param classPath
+   *          the isolated classpath of the app
+   * @return a JVM dedicated to the app
+   * @throws IOException
+   *           if the JVM can't be launched
+   */
+  static JvmProcess acquire(String app, URL[] classPath) throws IOException {
+    List<String> jvmOptions = getJvmOptions();
+    Pool pool = POOLS.computeIfAbsent(app + "\n" + jvmOptions + "\n" + Arrays.toString(classPath), key -> new Pool());
+    JvmProcess jvm = pool.idle.pollFirst();
+    while (jvm != null && !jvm.isAlive()) {
+      jvm.destroy();
+      jvm = pool.idle.pollFirst();
+    }
+    if (jvm == null) {
+      log.debug("no warm JVM for {}, launching one", app);
+      jvm = launch(app, jvmOptions, classPath);
+    }
+    refill(pool, app, jvmOptions, classPath);
+    return jvm;
+  }
+
+  private static void refill(Pool pool, String app, List<String> jvmOptions, URL[] classPath) {
+    int size = Integer.getInteger(SIZE_PROPERTY, 1);
+    while (pool.idle.size() + pool.launching.get() < size) {
+      pool.launching.incrementAndGet();
+      LAUNCHER.execute(() -> {
+        try {
+          pool.idle.addLast(launch(app, jvmOptions, classPath));
+        } catch (IOException e) {
+          log.warn("Unable to launch a warm JVM for {}", app, e);
+        } finally {
+          pool.launching.decrementAndGet();
+        }
+      });
+    }
+  }
+
+  private static JvmProcess launch(String app, List<String> jvmOptions, URL[] classPath) throws IOException {
+    List<String> cdsOptions = ClassDataSharing.getJvmOptions(app);
+    Closeable archiveDump = null;
+    if (ClassDataSharing.isArchiveDump(cdsOptions)) {
+      // the JVMs exiting at the same time would write the same archive
+      archiveDump = ClassDataSharing.lockArchiveDump(app);
+      if (archiveDump == null) {
+        log.debug("the archive of {} is dumped by another JVM", app);
+        cdsOptions = Collections.emptyList();
+      }
+    }
+    List<String> options = new ArrayList<>(jvmOptions);
+    options.addAll(cdsOptions);
+    try {
+      return JvmProcess.launch(options, classPath, getPreloadedClasses(app), archiveDump);
+    } catch (IOException | RuntimeException e) {
+      if (archiveDump != null) {
+        archiveDump.close();
+      }
+      throw e;
+    }
+  }
+
+  private static List<String> getJvmOptions() {
+    List<String> jvmOptions = new ArrayList<>();
+    String options = System.getProperty(JVM_OPTIONS_PROPERTY);
+    if (options != null && !options.trim()
+        .isEmpty()) {
+      jvmOptions.addAll(Arrays.asList(options.trim()
+          .split("\\s+")));
+    }
+    return jvmOptions;
+  }
+
+  private static List<String> getPreloadedClasses(String app) {
+    Path classList = ClassDataSharing.getClassListFile(app);
+    if (Files.isRegularFile(classList)) {
+      try {
+        return Files.readAllLines(classList, StandardCharsets.UTF_8)
+            .stream()
+            .filter(className -> FRAMEWORK_PACKAGES.stream()
+                .anyMatch(className::startsWith))
+            .map(className -> className.replace('/', '.'))
+            .collect(Collectors.toList());
+      } catch (IOException e) {
+        log.warn("Unable to read {}", classList, e);
+      }
+    }
+    return DEFAULT_PRELOADED_CLASSES;
+  }
+
+  /**
+   * Destroy the idle JVMs of the pool, done at the JVM shutdown
+   */
+  public static void clear() {
+    POOLS.values()
+        .forEach(pool -> {
+          JvmProcess jvm;
+          while ((jvm = pool.idle.pollFirst()) != null) {
+            jvm.destroy();
+          }
+        });
+  }
+
+}
@@ -0,0 +1,89 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class CacheUtils {
+
+  /**
+   * System property to override the directory where the runner persists its caches
+   */
+  public static final String CACHE_DIR_PROPERTY = "isolatedrunner.cache.dir";
+
+  private CacheUtils() {
+  };
+
+  /**
+   * The directory where the runner persists its caches. Defaults to ~/.spring-boot-isolated-runner
+   *
+   * @return the cache directory, not necessarily existing
+   */
+  public static Path getCacheDirectory() {
+    String cacheDir = System.getProperty(CACHE_DIR_PROPERTY);
+    if (cacheDir != null && !cacheDir.trim()
+        .isEmpty()) {
+      return Paths.get(cacheDir.trim());
+    }
+    return Paths.get(System.getProperty("user.home"), ".spring-boot-isolated-runner");
+  }
+
+  /**
+   * @param value
+   *          to hash
+   * @return the SHA-256 of the value as an hexadecimal string
+   */
+  public static String sha256(String value) {
+    return toHex(newSha256().digest(value.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * @param file
+   *          to hash
+   * @return the SHA-256 of the file content, in hexadecimal
+   * @throws IOException
+   *           if the file can't be read
+   */
+  public static String sha256(Path file) throws IOException {
+    MessageDigest digest = newSha256();
+    try (InputStream is = new DigestInputStream(Files.newInputStream(file), digest)) {
+      byte[] buffer = new byte[65536];
+      while (is.read(buffer) != -1) {
+        // the digest is updated by the stream
+      }
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * @return a new SHA-256 message digest
+   */
+  public static MessageDigest newSha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @param bytes
+   *          to convert
+   * @return the bytes as a lower case hexadecimal string
+   */
+  public static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16))
+          .append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+}
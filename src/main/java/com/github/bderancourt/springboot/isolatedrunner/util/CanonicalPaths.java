@@ -0,0 +1,82 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Canonicalization of the classpath entries, memoized for the JVM lifetime: the canonical path resolution costs a
+ * syscall per path element, which is slow on network-mounted workspaces.
+ *
+ * @author bderancourt
+ */
+public class CanonicalPaths {
+
+  private static final Pattern MANIFEST_CLASSPATH_SEPARATOR = Pattern.compile(" +");
+
+  private static final Map<Path, URL> CANONICAL_URLS = new ConcurrentHashMap<>();
+
+  private CanonicalPaths() {
+  };
+
+  /**
+   * @param file
+   *          a file or a directory
+   * @return the URL of its canonical file
+   * @throws IOException
+   *           if the canonical file can't be resolved
+   */
+  public static URL toCanonicalURL(Path file) throws IOException {
+    try {
+      return CANONICAL_URLS.computeIfAbsent(file, key -> {
+        try {
+          return key.toFile()
+              .getCanonicalFile()
+              .toURI()
+              .toURL();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Canonicalize the entries of a manifest Class-Path in parallel, as they are split.
+   *
+   * @param baseDirectory
+   *          the directory against which the entries are resolved
+   * @param manifestClassPath
+   *          the space separated entries
+   * @return the URLs of the canonical files, in the manifest order
+   * @throws IOException
+   *           if a canonical file can't be resolved
+   */
+  public static List<URL> toCanonicalURLs(Path baseDirectory, String manifestClassPath) throws IOException {
+    try {
+      return MANIFEST_CLASSPATH_SEPARATOR.splitAsStream(manifestClassPath.trim())
+          .parallel()
+          .filter(entry -> !entry.isEmpty())
+          .map(entry -> {
+            try {
+              return toCanonicalURL(Paths.get(baseDirectory.toString(), entry));
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          })
+          .collect(Collectors.toList());
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+}
@@ -0,0 +1,197 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.commons.io.FileUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Persists the resolved classpath of the spring-boot apps found as a directory, so next starts skip the resolution.
+ * An entry is keyed by the hash of what the resolution depends on (manifest Class-Path, JVM classpath...) and stores
+ * the last modified time of each resolved URL, checked when the entry is read. The index of a resolved classpath is
+ * stored next to it, keyed by the URLs and their last modified times.<br>
+ * The classpath of a fat jar app isn't cached: its nested jar URLs parsed back would not be bound to the archives, each
+ * connection would open the nested jar again.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class ClassPathCache {
+
+  /**
+   * System property to disable the resolved classpath cache, enabled by default
+   */
+  public static final String ENABLED_PROPERTY = "isolatedrunner.classpath.cache";
+
+  private static final String NO_MTIME = "-";
+
+  private ClassPathCache() {
+  };
+
+  /**
+   * @return false if the cache has been disabled with the isolatedrunner.classpath.cache=false system property
+   */
+  public static boolean isEnabled() {
+    return !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+  }
+
+  /**
+   * @param key
+   *          what the resolution depends on
+   * @return the resolved classpath, if cached and none of its URLs has been modified
+   */
+  public static Optional<URL[]> get(String key) {
+    if (!isEnabled()) {
+      return Optional.empty();
+    }
+    Path cacheFile = getCacheFile(key, ".cp");
+    if (!Files.isRegularFile(cacheFile)) {
+      return Optional.empty();
+    }
+    List<URL> urls = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        int separator = line.indexOf(' ');
+        String mtime = line.substring(0, separator);
+        URL url = new URL(line.substring(separator + 1));
+        if (!mtime.equals(lastModified(url))) {
+          log.debug("cached classpath {} is outdated, {} has changed", cacheFile, url);
+          return Optional.empty();
+        }
+        urls.add(url);
+      }
+    } catch (IOException | RuntimeException e) {
+      log.warn("Unable to read cached classpath {}", cacheFile, e);
+      return Optional.empty();
+    }
+    log.debug("classpath loaded from cache {}", cacheFile);
+    return Optional.of(urls.toArray(new URL[0]));
+  }
+
+  /**
+   * @param key
+   *          what the resolution depends on
+   * @param urls
+   *          the resolved classpath
+   */
+  public static void put(String key, URL[] urls) {
+    if (!isEnabled()) {
+      return;
+    }
+    List<String> lines = new ArrayList<>();
+    try {
+      for (URL url : urls) {
+        lines.add(lastModified(url) + " " + url);
+      }
+    } catch (MalformedURLException e) {
+      log.warn("Unable to store the classpath in cache", e);
+      return;
+    }
+    write(getCacheFile(key, ".cp"), lines);
+  }
+
+  /**
+   * @param urls
+   *          a resolved classpath
+   * @return the index of the classpath stored with {@link #putIndex(URL[], List)}, if none of its jars has been
+   *         modified since
+   */
+  public static Optional<List<String>> getIndex(URL[] urls) {
+    if (!isEnabled()) {
+      return Optional.empty();
+    }
+    try {
+      Path indexFile = getCacheFile(getIndexKey(urls), ".idx");
+      if (!Files.isRegularFile(indexFile)) {
+        return Optional.empty();
+      }
+      return Optional.of(Files.readAllLines(indexFile, StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      log.warn("Unable to read the cached index of a classpath", e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * @param urls
+   *          a resolved classpath
+   * @param index
+   *          an index of the classpath content, its lines are stored as is
+   */
+  public static void putIndex(URL[] urls, List<String> index) {
+    if (!isEnabled()) {
+      return;
+    }
+    try {
+      write(getCacheFile(getIndexKey(urls), ".idx"), index);
+    } catch (MalformedURLException e) {
+      log.warn("Unable to store the index of a classpath", e);
+    }
+  }
+
+  /**
+   * The index depends on the classpath URLs and on the content of the jars, any modified jar changes the key. The
+   * directories are ignored, their content being indexed on each load.
+   */
+  private static String getIndexKey(URL[] urls) throws MalformedURLException {
+    StringBuilder key = new StringBuilder("index\n");
+    for (URL url : urls) {
+      boolean directory = "file".equals(url.getProtocol()) && url.getFile()
+          .endsWith("/");
+      key.append(directory ? NO_MTIME : lastModified(url))
+          .append(' ')
+          .append(url)
+          .append('\n');
+    }
+    return key.toString();
+  }
+
+  private static void write(Path cacheFile, List<String> lines) {
+    try {
+      Files.createDirectories(cacheFile.getParent());
+      Path tmpFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName()
+          .toString(), ".tmp");
+      Files.write(tmpFile, lines, StandardCharsets.UTF_8);
+      Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      log.warn("Unable to store cache file {}", cacheFile, e);
+    }
+  }
+
+  /**
+   * @return the last modified time of the file behind the URL, the outer jar for a nested jar URL
+   */
+  private static String lastModified(URL url) throws MalformedURLException {
+    URL fileUrl = url;
+    if ("jar".equals(url.getProtocol())) {
+      String spec = url.getPath();
+      int separator = spec.indexOf("!/");
+      fileUrl = new URL(separator >= 0 ? spec.substring(0, separator) : spec);
+    }
+    if (!"file".equals(fileUrl.getProtocol())) {
+      return NO_MTIME;
+    }
+    File file = FileUtils.toFile(fileUrl);
+    return file.exists() ? String.valueOf(file.lastModified()) : NO_MTIME + "missing";
+  }
+
+  private static Path getCacheFile(String key, String extension) {
+    return CacheUtils.getCacheDirectory()
+        .resolve("classpath")
+        .resolve(CacheUtils.sha256(key) + extension);
+  }
+
+}
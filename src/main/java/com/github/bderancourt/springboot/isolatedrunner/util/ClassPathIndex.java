@@ -0,0 +1,180 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Index of the URLs of a classpath, to find a dependency without scanning the whole classpath. The path of each URL is
+ * split in trigrams, a lookup only checks the URLs containing the rarest trigram of the dependency infos. The indexes of
+ * the last classpaths are kept, a classpath being looked up several times per app start.
+ *
+ * @author bderancourt
+ */
+public class ClassPathIndex {
+
+  private static final int GRAM = 3;
+
+  private static final int MAX_CACHED_INDEXES = 4;
+
+  private static final Map<List<URL>, ClassPathIndex> INDEXES = new LinkedHashMap<List<URL>, ClassPathIndex>(
+      MAX_CACHED_INDEXES * 2, 0.75f, true) {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<List<URL>, ClassPathIndex> eldest) {
+      return size() > MAX_CACHED_INDEXES;
+    }
+  };
+
+  private final List<URL> urls;
+
+  private final String[] files;
+
+  private final String[] strings;
+
+  private final Map<Long, int[]> urlsByTrigram;
+
+  private ClassPathIndex(List<URL> urls) {
+    this.urls = urls;
+    this.files = new String[urls.size()];
+    this.strings = new String[urls.size()];
+    Map<Long, List<Integer>> postings = new HashMap<>();
+    for (int i = 0; i < files.length; i++) {
+      files[i] = urls.get(i)
+          .getFile();
+      strings[i] = urls.get(i)
+          .toString();
+      for (int j = 0; j + GRAM <= files[i].length(); j++) {
+        List<Integer> posting = postings.computeIfAbsent(trigram(files[i], j), key -> new ArrayList<>());
+        if (posting.isEmpty() || posting.get(posting.size() - 1) != i) {
+          posting.add(i);
+        }
+      }
+    }
+    this.urlsByTrigram = new HashMap<>(postings.size() * 2);
+    postings.forEach((trigram, posting) -> urlsByTrigram.put(trigram, posting.stream()
+        .mapToInt(Integer::intValue)
+        .toArray()));
+  }
+
+  /**
+   * @param urls
+   *          a classpath
+   * @return its index, built on the first call for this classpath
+   */
+  public static ClassPathIndex of(List<URL> urls) {
+    synchronized (INDEXES) {
+      ClassPathIndex index = INDEXES.get(urls);
+      if (index == null) {
+        List<URL> copy = new ArrayList<>(urls);
+        index = new ClassPathIndex(copy);
+        INDEXES.put(copy, index);
+      }
+      return index;
+    }
+  }
+
+  private static long trigram(String s, int start) {
+    return ((long) s.charAt(start) << 32) | ((long) s.charAt(start + 1) << 16) | s.charAt(start + 2);
+  }
+
+  /**
+   * Find the URL whose path contains all the dependency infos. If several URLs match, the one containing the most
+   * occurrences of the infos is taken.
+   *
+   * @param dependencyInfos
+   *          infos to find the dependency in the classpath
+   * @return the dependency URL
+   * @throws IllegalArgumentException
+   *           if no URL or several URLs with the same score match
+   */
+  public URL findDependencyURL(String... dependencyInfos) {
+    List<Integer> matches = findMatches(dependencyInfos);
+    if (matches.isEmpty()) {
+      StringJoiner classPathJoiner = new StringJoiner("\n");
+      urls.forEach(url -> classPathJoiner.add(url.toString()));
+      throw new IllegalArgumentException("Dependency not found " + String.join("-", dependencyInfos) + "\n"
+          + classPathJoiner.toString());
+    }
+    if (matches.size() == 1) {
+      return urls.get(matches.get(0));
+    }
+
+    // remove duplicates, then keep the URLs having the best score
+    Set<String> distinctStrings = new LinkedHashSet<>();
+    List<Integer> bestMatches = new ArrayList<>();
+    int maxScore = -1;
+    for (int match : matches) {
+      if (distinctStrings.add(strings[match])) {
+        int score = 0;
+        for (String dependencyInfo : dependencyInfos) {
+          score += StringUtils.countMatches(strings[match], dependencyInfo);
+        }
+        if (score > maxScore) {
+          maxScore = score;
+          bestMatches.clear();
+        }
+        if (score == maxScore) {
+          bestMatches.add(match);
+        }
+      }
+    }
+    if (bestMatches.size() > 1) {
+      StringJoiner dependenciesFoundJoiner = new StringJoiner("\n");
+      matches.forEach(match -> dependenciesFoundJoiner.add(strings[match]));
+      throw new IllegalArgumentException(matches.size() + " dependencies found, refine your search\n"
+          + dependenciesFoundJoiner.toString());
+    }
+    return urls.get(bestMatches.get(0));
+  }
+
+  /**
+   * @return the positions of the URLs whose path contains all the dependency infos, in the classpath order
+   */
+  private List<Integer> findMatches(String... dependencyInfos) {
+    int[] candidates = null;
+    for (String dependencyInfo : dependencyInfos) {
+      for (int j = 0; j + GRAM <= dependencyInfo.length(); j++) {
+        int[] posting = urlsByTrigram.get(trigram(dependencyInfo, j));
+        if (posting == null) {
+          return new ArrayList<>();
+        }
+        if (candidates == null || posting.length < candidates.length) {
+          candidates = posting;
+        }
+      }
+    }
+    List<Integer> matches = new ArrayList<>();
+    if (candidates == null) {
+      // only infos shorter than a trigram
+      candidates = new int[files.length];
+      Arrays.setAll(candidates, i -> i);
+    }
+    for (int candidate : candidates) {
+      if (Arrays.stream(dependencyInfos)
+          .allMatch(files[candidate]::contains)) {
+        matches.add(candidate);
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * @return the number of indexed URLs
+   */
+  public int size() {
+    return urls.size();
+  }
+
+}
@@ -0,0 +1,470 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache of exploded spring-boot fat jars, so the apps are launched from plain directories and jars. The cache is
+ * content addressed:
+ * <ul>
+ * <li>apps/&lt;fat jar sha256&gt;/classes contains BOOT-INF/classes, and libs.list the nested jars in the fat jar
+ * order</li>
+ * <li>libs/&lt;nested jar sha256&gt;/&lt;file name&gt; contains each nested jar once, whatever the number of fat jars
+ * containing it</li>
+ * <li>keys/&lt;sha256 of path, size and last modified time&gt; gives the sha256 of a fat jar without reading it
+ * again</li>
+ * </ul>
+ * When the cache exceeds its maximum size, the least recently used apps are evicted, then the nested jars no more used
+ * by any app. The apps in use are never evicted: each JVM holds a shared lock on apps/&lt;fat jar sha256&gt;.lock until
+ * its last app launched from the exploded fat jar stops.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class ExplodedJarCache {
+
+  /**
+   * System property giving the maximum size of the cache in MB, 2048 by default
+   */
+  public static final String MAX_SIZE_PROPERTY = "isolatedrunner.exploded.max.size";
+
+  private static final long DEFAULT_MAX_SIZE_MB = 2048;
+
+  private static final String CLASSES_PREFIX = "BOOT-INF/classes/";
+
+  private static final String LIB_PREFIX = "BOOT-INF/lib/";
+
+  private static final String LIBS_LIST = "libs.list";
+
+  private static final String SIZE_FILE = "size";
+
+  private static final String LOCK_SUFFIX = ".lock";
+
+  private static final Map<Path, ExplodedJarCache> CACHES = new ConcurrentHashMap<>();
+
+  private final Path root;
+
+  // the exploded fat jars used by the apps of this JVM, guarded by this cache
+  private final Map<String, InUse> inUse = new HashMap<>();
+
+  private ExplodedJarCache(Path root) {
+    this.root = root;
+  }
+
+  /**
+   * The shared lock held by this JVM on an exploded fat jar, and the number of its apps using it
+   */
+  private static class InUse {
+
+    private final FileChannel lockChannel;
+
+    private final FileLock lock;
+
+    private int count;
+
+    private InUse(FileChannel lockChannel, FileLock lock) {
+      this.lockChannel = lockChannel;
+      this.lock = lock;
+    }
+  }
+
+  /**
+   * An exploded fat jar, protected from the eviction until it's closed
+   */
+  public class ExplodedJar implements Closeable {
+
+    private final String jarSha;
+
+    private final List<URL> urls;
+
+    private boolean closed;
+
+    private ExplodedJar(String jarSha, List<URL> urls) {
+      this.jarSha = jarSha;
+      this.urls = urls;
+    }
+
+    /**
+     * @return the URLs of BOOT-INF/classes and of the BOOT-INF/lib jars, in the cache
+     */
+    public List<URL> getUrls() {
+      return urls;
+    }
+
+    @Override
+    public void close() throws IOException {
+      synchronized (ExplodedJarCache.this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        release(jarSha);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "exploded jar " + jarSha;
+    }
+  }
+
+  /**
+   * @return the cache in the exploded dir of the cache directory
+   */
+  public static ExplodedJarCache get() {
+    return of(CacheUtils.getCacheDirectory()
+        .resolve("exploded"));
+  }
+
+  /**
+   * @param root
+   *          the cache directory
+   * @return the cache shared by this JVM for this directory
+   */
+  public static ExplodedJarCache of(Path root) {
+    return CACHES.computeIfAbsent(root.toAbsolutePath()
+        .normalize(), ExplodedJarCache::new);
+  }
+
+  /**
+   * Explode the fat jar in the cache if it's not already there.
+   *
+   * @param fatJar
+   *          a spring-boot fat jar
+   * @return the exploded fat jar, to close when the app using it stops
+   * @throws IOException
+   *           if the fat jar can't be read or the cache written
+   */
+  public synchronized ExplodedJar explode(File fatJar) throws IOException {
+    Files.createDirectories(root);
+    // the other JVMs using the same cache wait for the extraction or the eviction
+    try (FileChannel lockChannel = FileChannel.open(root.resolve(".lock"), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE)) {
+      FileLock lock = lockChannel.lock();
+      try {
+        return explodeLocked(fatJar);
+      } finally {
+        lock.release();
+      }
+    }
+  }
+
+  private ExplodedJar explodeLocked(File fatJar) throws IOException {
+    File canonicalFile = fatJar.getCanonicalFile();
+    Path keyFile = root.resolve("keys")
+        .resolve(CacheUtils.sha256(canonicalFile.getPath() + "|" + canonicalFile.length() + "|" + canonicalFile
+            .lastModified()));
+    String jarSha = Files.isRegularFile(keyFile) ? new String(Files.readAllBytes(keyFile), StandardCharsets.UTF_8)
+        : null;
+    if (jarSha == null || !isExploded(jarSha)) {
+      jarSha = CacheUtils.sha256(canonicalFile.toPath());
+      if (!isExploded(jarSha)) {
+        log.info("exploding {} in {}", canonicalFile, root);
+        extract(canonicalFile, jarSha);
+      }
+      Files.createDirectories(keyFile.getParent());
+      Files.write(keyFile, jarSha.getBytes(StandardCharsets.UTF_8));
+    }
+    Path libsList = getAppDir(jarSha).resolve(LIBS_LIST);
+    // the last access time of an app is the last modified time of its libs list
+    libsList.toFile()
+        .setLastModified(System.currentTimeMillis());
+    List<URL> urls = getUrls(jarSha);
+    acquire(jarSha);
+    ExplodedJar explodedJar = new ExplodedJar(jarSha, urls);
+    try {
+      evict();
+    } catch (IOException | RuntimeException e) {
+      explodedJar.close();
+      throw e;
+    }
+    return explodedJar;
+  }
+
+  /**
+   * Protect the app from the eviction by the other JVMs, with a shared lock held until its last user in this JVM is
+   * closed
+   */
+  private void acquire(String jarSha) throws IOException {
+    InUse appInUse = inUse.get(jarSha);
+    if (appInUse == null) {
+      FileChannel lockChannel = FileChannel.open(getLockFile(jarSha), StandardOpenOption.CREATE,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+      try {
+        // never blocks: the other JVMs only lock it exclusively while holding the cache lock, held here
+        appInUse = new InUse(lockChannel, lockChannel.lock(0, Long.MAX_VALUE, true));
+      } catch (IOException | RuntimeException e) {
+        lockChannel.close();
+        throw e;
+      }
+      inUse.put(jarSha, appInUse);
+    }
+    appInUse.count++;
+  }
+
+  private void release(String jarSha) throws IOException {
+    InUse appInUse = inUse.get(jarSha);
+    if (appInUse != null && --appInUse.count == 0) {
+      inUse.remove(jarSha);
+      try {
+        appInUse.lock.release();
+      } finally {
+        appInUse.lockChannel.close();
+      }
+    }
+  }
+
+  private Path getLockFile(String jarSha) {
+    return root.resolve("apps")
+        .resolve(jarSha + LOCK_SUFFIX);
+  }
+
+  private boolean isExploded(String jarSha) {
+    return Files.isRegularFile(getAppDir(jarSha).resolve(LIBS_LIST));
+  }
+
+  private Path getAppDir(String jarSha) {
+    return root.resolve("apps")
+        .resolve(jarSha);
+  }
+
+  private List<URL> getUrls(String jarSha) throws IOException {
+    List<URL> urls = new ArrayList<>();
+    Path classesDir = getAppDir(jarSha).resolve("classes");
+    if (Files.isDirectory(classesDir)) {
+      urls.add(classesDir.toUri()
+          .toURL());
+    }
+    for (String lib : Files.readAllLines(getAppDir(jarSha).resolve(LIBS_LIST), StandardCharsets.UTF_8)) {
+      urls.add(getLibPath(lib).toUri()
+          .toURL());
+    }
+    return urls;
+  }
+
+  /**
+   * @param lib
+   *          a line of a libs list: the sha256 of the nested jar and its file name
+   */
+  private Path getLibPath(String lib) {
+    int separator = lib.indexOf(' ');
+    return root.resolve("libs")
+        .resolve(lib.substring(0, separator))
+        .resolve(lib.substring(separator + 1));
+  }
+
+  private void extract(File fatJar, String jarSha) throws IOException {
+    Path tmpDir = Files.createTempDirectory(root, "tmp");
+    try {
+      Path classesDir = tmpDir.resolve("classes");
+      List<String> libs = new ArrayList<>();
+      long classesSize = 0;
+      try (JarFile jarFile = new JarFile(fatJar)) {
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+          JarEntry entry = entries.nextElement();
+          String name = entry.getName();
+          if (entry.isDirectory()) {
+            continue;
+          }
+          if (name.startsWith(CLASSES_PREFIX)) {
+            Path target = resolveSafely(classesDir, name.substring(CLASSES_PREFIX.length()));
+            Files.createDirectories(target.getParent());
+            try (InputStream is = jarFile.getInputStream(entry)) {
+              classesSize += Files.copy(is, target);
+            }
+          } else if (name.startsWith(LIB_PREFIX) && name.endsWith(".jar")) {
+            libs.add(extractLib(jarFile, entry, tmpDir));
+          }
+        }
+      }
+      Files.write(tmpDir.resolve(SIZE_FILE), String.valueOf(classesSize)
+          .getBytes(StandardCharsets.UTF_8));
+      Files.write(tmpDir.resolve(LIBS_LIST), libs, StandardCharsets.UTF_8);
+      Path appDir = getAppDir(jarSha);
+      Files.createDirectories(appDir.getParent());
+      deleteRecursively(appDir);
+      Files.move(tmpDir, appDir, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      deleteRecursively(tmpDir);
+    }
+  }
+
+  /**
+   * @return the libs list line of the nested jar, stored once in the cache whatever the number of fat jars containing
+   *         it
+   */
+  private String extractLib(JarFile jarFile, JarEntry entry, Path tmpDir) throws IOException {
+    String fileName = entry.getName()
+        .substring(entry.getName()
+            .lastIndexOf('/') + 1);
+    Path tmpLib = tmpDir.resolve(fileName);
+    MessageDigest digest = CacheUtils.newSha256();
+    try (InputStream is = new DigestInputStream(jarFile.getInputStream(entry), digest)) {
+      Files.copy(is, tmpLib, StandardCopyOption.REPLACE_EXISTING);
+    }
+    String lib = CacheUtils.toHex(digest.digest()) + " " + fileName;
+    Path libPath = getLibPath(lib);
+    if (!Files.isRegularFile(libPath)) {
+      Files.createDirectories(libPath.getParent());
+      try {
+        Files.move(tmpLib, libPath, StandardCopyOption.ATOMIC_MOVE);
+      } catch (FileAlreadyExistsException e) {
+        // the same jar nested twice in the fat jar
+      }
+    }
+    Files.deleteIfExists(tmpLib);
+    return lib;
+  }
+
+  private static Path resolveSafely(Path dir, String relativePath) throws IOException {
+    Path target = dir.resolve(relativePath)
+        .normalize();
+    if (!target.startsWith(dir)) {
+      throw new IOException("Entry outside of the archive: " + relativePath);
+    }
+    return target;
+  }
+
+  /**
+   * Evict the least recently used apps until the cache fits in its maximum size, then the nested jars no more used. The
+   * apps used by this JVM or by another one are never evicted.
+   */
+  private void evict() throws IOException {
+    long maxSize = Long.getLong(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE_MB) * 1024 * 1024;
+    List<Path> appDirs = listDirs(root.resolve("apps"));
+    if (getSize(appDirs) <= maxSize) {
+      return;
+    }
+    appDirs.sort(Comparator.comparingLong(appDir -> appDir.resolve(LIBS_LIST)
+        .toFile()
+        .lastModified()));
+    for (Path appDir : new ArrayList<>(appDirs)) {
+      if (getSize(appDirs) <= maxSize) {
+        break;
+      }
+      String jarSha = appDir.getFileName()
+          .toString();
+      if (!inUse.containsKey(jarSha) && evictUnused(jarSha)) {
+        appDirs.remove(appDir);
+        deleteUnusedLibs(appDirs);
+      }
+    }
+  }
+
+  /**
+   * @return true if the app was evicted, false if another JVM uses it
+   */
+  private boolean evictUnused(String jarSha) throws IOException {
+    Path lockFile = getLockFile(jarSha);
+    try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      FileLock lock = lockChannel.tryLock();
+      if (lock == null) {
+        log.debug("{} is used by another JVM, not evicted", jarSha);
+        return false;
+      }
+      try {
+        log.info("evicting {} from the exploded jars cache", jarSha);
+        deleteRecursively(getAppDir(jarSha));
+      } finally {
+        lock.release();
+      }
+    }
+    Files.deleteIfExists(lockFile);
+    return true;
+  }
+
+  /**
+   * @return the size of the apps classes and of the nested jars they use
+   */
+  private long getSize(List<Path> appDirs) throws IOException {
+    long size = 0;
+    Set<Path> libs = new HashSet<>();
+    for (Path appDir : appDirs) {
+      Path sizeFile = appDir.resolve(SIZE_FILE);
+      if (Files.isRegularFile(sizeFile)) {
+        size += Long.parseLong(new String(Files.readAllBytes(sizeFile), StandardCharsets.UTF_8).trim());
+      }
+      libs.addAll(getLibs(appDir));
+    }
+    for (Path lib : libs) {
+      size += lib.toFile()
+          .length();
+    }
+    return size;
+  }
+
+  private Set<Path> getLibs(Path appDir) throws IOException {
+    Path libsList = appDir.resolve(LIBS_LIST);
+    if (!Files.isRegularFile(libsList)) {
+      return new HashSet<>();
+    }
+    return Files.readAllLines(libsList, StandardCharsets.UTF_8)
+        .stream()
+        .map(this::getLibPath)
+        .collect(Collectors.toSet());
+  }
+
+  private void deleteUnusedLibs(List<Path> appDirs) throws IOException {
+    Set<Path> usedLibDirs = new HashSet<>();
+    for (Path appDir : appDirs) {
+      getLibs(appDir).forEach(lib -> usedLibDirs.add(lib.getParent()));
+    }
+    for (Path libDir : listDirs(root.resolve("libs"))) {
+      if (!usedLibDirs.contains(libDir)) {
+        deleteRecursively(libDir);
+      }
+    }
+  }
+
+  private static List<Path> listDirs(Path dir) throws IOException {
+    if (!Files.isDirectory(dir)) {
+      return new ArrayList<>();
+    }
+    try (Stream<Path> dirs = Files.list(dir)) {
+      return dirs.filter(Files::isDirectory)
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static void deleteRecursively(Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(path)) {
+      for (Path toDelete : paths.sorted(Comparator.reverseOrder())
+          .collect(Collectors.toList())) {
+        Files.deleteIfExists(toDelete);
+      }
+    }
+  }
+
+}
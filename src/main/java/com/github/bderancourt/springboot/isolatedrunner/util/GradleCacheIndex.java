@@ -0,0 +1,197 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index of the gradle modules cache, caches/modules-2/files-2.1 in the gradle user home. The cache layout is
+ * group/artifact/version/sha1/file: only the group and artifact levels are listed to index the artifact directories by
+ * artifactId, a lookup then only lists the versions of the candidate artifacts and their sha1 directories. The
+ * artifacts downloaded after the indexing are found by a single refresh of the index per JVM, on the first miss.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class GradleCacheIndex {
+
+  /**
+   * System property of the gradle user home, as for gradle itself
+   */
+  public static final String GRADLE_USER_HOME_PROPERTY = "gradle.user.home";
+
+  private static final String GRADLE_USER_HOME_ENV = "GRADLE_USER_HOME";
+
+  private static final Map<Path, GradleCacheIndex> INDEXES = new ConcurrentHashMap<>();
+
+  private final Path cache;
+
+  private Map<String, List<Path>> artifactDirectories;
+
+  private boolean refreshed;
+
+  private GradleCacheIndex(Path cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * @return the modules cache of the gradle user home: the gradle.user.home system property, the GRADLE_USER_HOME
+   *         environment variable or ~/.gradle
+   */
+  public static Path getDefaultCache() {
+    String gradleUserHome = System.getProperty(GRADLE_USER_HOME_PROPERTY, System.getenv(GRADLE_USER_HOME_ENV));
+    Path home = gradleUserHome != null ? Paths.get(gradleUserHome)
+        : Paths.get(System.getProperty("user.home"), ".gradle");
+    return home.resolve("caches")
+        .resolve("modules-2")
+        .resolve("files-2.1");
+  }
+
+  /**
+   * @param cache
+   *          the gradle modules cache path
+   * @return the index shared by all the runners of this JVM for this cache
+   */
+  public static GradleCacheIndex of(Path cache) {
+    return INDEXES.computeIfAbsent(cache.toAbsolutePath()
+        .normalize(), GradleCacheIndex::new);
+  }
+
+  /**
+   * Find a jar in the cache by its coordinates, without any scan.
+   *
+   * @param groupId
+   *          the artifact groupId
+   * @param artifactId
+   *          the artifactId
+   * @param version
+   *          the artifact version
+   * @param fileName
+   *          the artifact file name
+   * @return the jar path if it exists in the cache
+   */
+  public Optional<Path> find(String groupId, String artifactId, String version, String fileName) {
+    return findInVersion(cache.resolve(groupId)
+        .resolve(artifactId)
+        .resolve(version), fileName);
+  }
+
+  /**
+   * Find a jar in the cache by its file name, artifactId-version[-classifier].jar.
+   *
+   * @param jar
+   *          the jar file name, e.g. jsr305-3.0.2.jar
+   * @return the jar path if it exists in the cache
+   */
+  public Optional<Path> find(String jar) {
+    if (!jar.endsWith(".jar")) {
+      return Optional.empty();
+    }
+    Optional<Path> path = find(jar, getArtifactDirectories());
+    if (!path.isPresent()) {
+      Optional<Map<String, List<Path>>> refreshedIndex = refresh();
+      if (refreshedIndex.isPresent()) {
+        path = find(jar, refreshedIndex.get());
+      }
+    }
+    return path;
+  }
+
+  private Optional<Path> find(String jar, Map<String, List<Path>> index) {
+    // the artifactId is the part before one of the "-digit", the version starts the rest
+    for (int i = jar.indexOf('-'); i > 0; i = jar.indexOf('-', i + 1)) {
+      if (!Character.isDigit(jar.charAt(i + 1))) {
+        continue;
+      }
+      String versionAndClassifier = jar.substring(i + 1, jar.length() - ".jar".length());
+      for (Path artifactDirectory : index.getOrDefault(jar.substring(0, i), Collections.emptyList())) {
+        // exact version first, then the versions followed by a classifier
+        Optional<Path> path = findInVersion(artifactDirectory.resolve(versionAndClassifier), jar);
+        if (path.isPresent()) {
+          return path;
+        }
+        for (Path versionDirectory : list(artifactDirectory)) {
+          String version = versionDirectory.getFileName()
+              .toString();
+          if (versionAndClassifier.startsWith(version + "-")) {
+            path = findInVersion(versionDirectory, jar);
+            if (path.isPresent()) {
+              return path;
+            }
+          }
+        }
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * @return the index listed again, empty if it was already refreshed by this JVM
+   */
+  private synchronized Optional<Map<String, List<Path>>> refresh() {
+    if (refreshed) {
+      return Optional.empty();
+    }
+    refreshed = true;
+    log.debug("refreshing the index of gradle cache {}", cache);
+    artifactDirectories = null;
+    return Optional.of(getArtifactDirectories());
+  }
+
+  private synchronized Map<String, List<Path>> getArtifactDirectories() {
+    if (artifactDirectories == null) {
+      long start = System.currentTimeMillis();
+      Map<String, List<Path>> index = new HashMap<>();
+      int count = 0;
+      for (Path groupDirectory : list(cache)) {
+        for (Path artifactDirectory : list(groupDirectory)) {
+          index.computeIfAbsent(artifactDirectory.getFileName()
+              .toString(), key -> new ArrayList<>())
+              .add(artifactDirectory);
+          count++;
+        }
+      }
+      log.debug("gradle cache {} indexed in {} ms, {} artifacts", cache, System.currentTimeMillis() - start, count);
+      artifactDirectories = index;
+    }
+    return artifactDirectories;
+  }
+
+  private static Optional<Path> findInVersion(Path versionDirectory, String fileName) {
+    if (!Files.isDirectory(versionDirectory)) {
+      return Optional.empty();
+    }
+    for (Path hashDirectory : list(versionDirectory)) {
+      Path path = hashDirectory.resolve(fileName);
+      if (Files.isRegularFile(path)) {
+        return Optional.of(path);
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static List<Path> list(Path directory) {
+    List<Path> directories = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, Files::isDirectory)) {
+      stream.forEach(directories::add);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    // the listing order depends on the file system
+    Collections.sort(directories);
+    return directories;
+  }
+
+}
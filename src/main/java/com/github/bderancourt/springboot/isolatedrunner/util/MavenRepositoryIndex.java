@@ -0,0 +1,190 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index of the jars of a maven local repository, by file name. The repository is scanned only once per JVM and the
+ * index is persisted in the cache directory, keyed by the repository last modified time, so next runs don't need to
+ * scan it again. A jar missing from the persisted index triggers a single rescan per JVM, the next misses are final.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class MavenRepositoryIndex {
+
+  private static final Map<Path, MavenRepositoryIndex> INDEXES = new ConcurrentHashMap<>();
+
+  private static final String MTIME_HEADER = "#mtime=";
+
+  private final Path repository;
+
+  private Map<String, Path> index;
+
+  // true once the repository has been scanned by this JVM, the index is then up to date
+  private boolean scanned;
+
+  // Visible for benchmarks, use of(Path) to share the index
+  MavenRepositoryIndex(Path repository) {
+    this.repository = repository;
+  }
+
+  /**
+   * @param repository
+   *          the maven local repository path
+   * @return the index shared by all the runners of this JVM for this repository
+   */
+  public static MavenRepositoryIndex of(Path repository) {
+    return INDEXES.computeIfAbsent(repository.toAbsolutePath()
+        .normalize(), MavenRepositoryIndex::new);
+  }
+
+  /**
+   * Find a jar in the repository by its coordinates, without any scan.
+   *
+   * @param groupId
+   *          the artifact groupId
+   * @param artifactId
+   *          the artifactId
+   * @param version
+   *          the artifact version
+   * @param fileName
+   *          the artifact file name
+   * @return the jar path if it exists in the repository
+   */
+  public Optional<Path> find(String groupId, String artifactId, String version, String fileName) {
+    Path path = repository.resolve(groupId.replace('.', '/'))
+        .resolve(artifactId)
+        .resolve(version)
+        .resolve(fileName);
+    return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+  }
+
+  /**
+   * Find a jar in the repository by its file name.
+   *
+   * @param jar
+   *          the jar file name, e.g. jsr305-3.0.2.jar
+   * @return the jar path if it exists in the repository
+   */
+  public synchronized Optional<Path> find(String jar) {
+    if (index == null) {
+      load();
+    }
+    Path path = index.get(jar);
+    if (!scanned && (path == null || !Files.isRegularFile(path))) {
+      // the persisted index may be outdated, a single rescan is done to be sure
+      log.debug("{} not found in cached index of {}, rescanning", jar, repository);
+      scan();
+      path = index.get(jar);
+    }
+    return Optional.ofNullable(path);
+  }
+
+  private void load() {
+    long mtime = repositoryLastModified();
+    Path cacheFile = getCacheFile();
+    if (Files.isRegularFile(cacheFile)) {
+      try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+        String header = reader.readLine();
+        if ((MTIME_HEADER + mtime).equals(header)) {
+          Map<String, Path> cachedIndex = new HashMap<>();
+          String line;
+          while ((line = reader.readLine()) != null) {
+            int separator = line.indexOf('=');
+            if (separator > 0) {
+              cachedIndex.put(line.substring(0, separator), repository.resolve(line.substring(separator + 1)));
+            }
+          }
+          log.debug("maven repository index of {} loaded from {}", repository, cacheFile);
+          index = cachedIndex;
+          return;
+        }
+      } catch (IOException e) {
+        log.warn("Unable to read maven repository index {}", cacheFile, e);
+      }
+    }
+    scan();
+  }
+
+  private void scan() {
+    long start = System.currentTimeMillis();
+    long mtime = repositoryLastModified();
+    Map<String, Path> scannedIndex = new HashMap<>();
+    try {
+      Files.walkFileTree(repository, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+          String fileName = file.getFileName()
+              .toString();
+          if (attrs.isRegularFile() && fileName.endsWith(".jar")) {
+            scannedIndex.putIfAbsent(fileName, file);
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    log.debug("maven repository {} scanned in {} ms, {} jars indexed", repository,
+        System.currentTimeMillis() - start, scannedIndex.size());
+    index = scannedIndex;
+    scanned = true;
+    store(mtime);
+  }
+
+  private void store(long mtime) {
+    Path cacheFile = getCacheFile();
+    try {
+      Files.createDirectories(cacheFile.getParent());
+      Path tmpFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName()
+          .toString(), ".tmp");
+      try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+        writer.write(MTIME_HEADER + mtime);
+        writer.newLine();
+        for (Map.Entry<String, Path> entry : index.entrySet()) {
+          writer.write(entry.getKey() + "=" + repository.relativize(entry.getValue()));
+          writer.newLine();
+        }
+      }
+      Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      log.warn("Unable to store maven repository index {}", cacheFile, e);
+    }
+  }
+
+  private long repositoryLastModified() {
+    try {
+      return Files.getLastModifiedTime(repository)
+          .toMillis();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Path getCacheFile() {
+    return CacheUtils.getCacheDirectory()
+        .resolve("maven-index-" + CacheUtils.sha256(repository.toString()) + ".idx");
+  }
+
+}
@@ -0,0 +1,250 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Locates the maven local repository without forking a maven process, the same way maven does:
+ * <ol>
+ * <li>maven.repo.local system property</li>
+ * <li>-Dmaven.repo.local in the MAVEN_OPTS environment variable</li>
+ * <li>localRepository in ~/.m2/settings.xml</li>
+ * <li>localRepository in $M2_HOME/conf/settings.xml or $MAVEN_HOME/conf/settings.xml</li>
+ * <li>~/.m2/repository if it exists</li>
+ * <li>mvn help:evaluate as a last resort, only by {@link #getMavenRepository()} and if enabled with the
+ * isolatedrunner.maven.fork=true system property</li>
+ * </ol>
+ * The results are computed once per JVM, the failures too.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class MavenRepositoryLocator {
+
+  /**
+   * System property to ask a maven process for the local repository when it can't be located otherwise, disabled by
+   * default
+   */
+  public static final String FORK_PROPERTY = "isolatedrunner.maven.fork";
+
+  private static final String REPO_LOCAL_PROPERTY = "maven.repo.local";
+
+  private static final Pattern MAVEN_OPTS_REPO_LOCAL_PATTERN = Pattern
+      .compile("-D" + Pattern.quote(REPO_LOCAL_PROPERTY) + "=(\"[^\"]*\"|\\S+)");
+
+  private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\$\\{([^}]+)\\}");
+
+  private static volatile String mavenRepository;
+
+  // located without forking maven, empty if not found
+  private static volatile Optional<String> locatedRepository;
+
+  private static volatile IOException mavenProcessFailure;
+
+  private MavenRepositoryLocator() {
+  };
+
+  /**
+   * @return true if maven can be forked with the isolatedrunner.maven.fork=true system property
+   */
+  public static boolean isForkEnabled() {
+    return Boolean.getBoolean(FORK_PROPERTY);
+  }
+
+  /**
+   * @return the maven local repository path, asking maven if it can't be located otherwise
+   * @throws IOException
+   *           if the maven local repository can't be located
+   * @throws InterruptedException
+   *           if interrupted while waiting for maven
+   */
+  public static String getMavenRepository() throws IOException, InterruptedException {
+    String repository = mavenRepository;
+    if (repository == null) {
+      synchronized (MavenRepositoryLocator.class) {
+        repository = mavenRepository;
+        if (repository == null) {
+          Optional<String> located = findMavenRepository();
+          if (located.isPresent()) {
+            repository = located.get();
+          } else {
+            if (mavenProcessFailure != null) {
+              throw new IOException(mavenProcessFailure.getMessage(), mavenProcessFailure);
+            }
+            try {
+              repository = fromMavenProcess();
+            } catch (IOException e) {
+              mavenProcessFailure = e;
+              throw e;
+            }
+          }
+          log.info("maven local repository: {}", repository);
+          mavenRepository = repository;
+        }
+      }
+    }
+    return repository;
+  }
+
+  /**
+   * @return the maven local repository path if it can be located without forking maven
+   */
+  public static Optional<String> findMavenRepository() {
+    Optional<String> repository = locatedRepository;
+    if (repository == null) {
+      synchronized (MavenRepositoryLocator.class) {
+        repository = locatedRepository;
+        if (repository == null) {
+          repository = locate();
+          if (!repository.isPresent()) {
+            log.debug("maven local repository not found in the settings nor in ~/.m2");
+          }
+          locatedRepository = repository;
+        }
+      }
+    }
+    return repository;
+  }
+
+  private static Optional<String> locate() {
+    Map<String, String> env = System.getenv();
+    Path userHome = Paths.get(System.getProperty("user.home"));
+
+    Optional<String> repository = Optional.ofNullable(System.getProperty(REPO_LOCAL_PROPERTY))
+        .filter(value -> !value.trim()
+            .isEmpty());
+    if (!repository.isPresent()) {
+      repository = fromMavenOpts(env.get("MAVEN_OPTS"));
+    }
+    if (!repository.isPresent()) {
+      repository = fromSettings(userHome.resolve(".m2")
+          .resolve("settings.xml"), env::get);
+    }
+    for (String mavenHome : Arrays.asList("M2_HOME", "MAVEN_HOME")) {
+      if (!repository.isPresent() && env.get(mavenHome) != null) {
+        repository = fromSettings(Paths.get(env.get(mavenHome), "conf", "settings.xml"), env::get);
+      }
+    }
+    if (repository.isPresent()) {
+      return repository;
+    }
+
+    Path defaultRepository = userHome.resolve(".m2")
+        .resolve("repository");
+    if (Files.isDirectory(defaultRepository)) {
+      return Optional.of(defaultRepository.toString());
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Visible for testing
+   *
+   * @param mavenOpts
+   *          the MAVEN_OPTS environment variable value
+   * @return the maven.repo.local value defined in it
+   */
+  protected static Optional<String> fromMavenOpts(String mavenOpts) {
+    if (mavenOpts != null) {
+      Matcher matcher = MAVEN_OPTS_REPO_LOCAL_PATTERN.matcher(mavenOpts);
+      if (matcher.find()) {
+        return Optional.of(matcher.group(1)
+            .replace("\"", ""));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Visible for testing
+   *
+   * @param settings
+   *          the settings.xml path
+   * @param env
+   *          the environment variables to interpolate ${env.XXX} placeholders
+   * @return the interpolated localRepository defined in the settings if any
+   */
+  protected static Optional<String> fromSettings(Path settings, Function<String, String> env) {
+    if (!Files.isRegularFile(settings)) {
+      return Optional.empty();
+    }
+    try {
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setNamespaceAware(true);
+      factory.setExpandEntityReferences(false);
+      DocumentBuilder builder = factory.newDocumentBuilder();
+      Document document = builder.parse(settings.toFile());
+      NodeList localRepositories = document.getDocumentElement()
+          .getElementsByTagNameNS("*", "localRepository");
+      if (localRepositories.getLength() > 0) {
+        String localRepository = localRepositories.item(0)
+            .getTextContent()
+            .trim();
+        if (!localRepository.isEmpty()) {
+          log.debug("localRepository {} found in {}", localRepository, settings);
+          return Optional.of(interpolate(localRepository, env));
+        }
+      }
+    } catch (Exception e) {
+      log.warn("Unable to read maven settings {}", settings, e);
+    }
+    return Optional.empty();
+  }
+
+  private static String interpolate(String value, Function<String, String> env) {
+    Matcher matcher = PLACEHOLDER_PATTERN.matcher(value);
+    StringBuffer sb = new StringBuffer();
+    while (matcher.find()) {
+      String key = matcher.group(1);
+      String replacement = key.startsWith("env.") ? env.apply(key.substring(4)) : System.getProperty(key);
+      matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement != null ? replacement : matcher.group()));
+    }
+    matcher.appendTail(sb);
+    return sb.toString();
+  }
+
+  private static String fromMavenProcess() throws IOException, InterruptedException {
+    log.info("maven local repository not found in settings, asking maven");
+    List<String> command = new ArrayList<>();
+    if (System.getProperty("os.name")
+        .toLowerCase()
+        .startsWith("windows")) {
+      command.addAll(Arrays.asList("cmd.exe", "/c"));
+    } else {
+      command.addAll(Arrays.asList("sh", "-c"));
+    }
+    // the shell expects the whole command line as a single argument
+    command.add(String.join(" ", "mvn", "help:evaluate", "-Dexpression=settings.localRepository", "-q",
+        "-DforceStdout"));
+
+    ProcessBuilder pb = new ProcessBuilder(command);
+    Process p = pb.start();
+    if (p.waitFor(30, TimeUnit.SECONDS) && p.exitValue() == 0) {
+      return IOUtils.toString(p.getInputStream(), Charset.defaultCharset())
+          .trim();
+    }
+    throw new IOException("Unable to find maven local repository path. Is maven installed in your system ?");
+  }
+
+}
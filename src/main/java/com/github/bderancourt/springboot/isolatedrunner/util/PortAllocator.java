@@ -0,0 +1,131 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reserves free ports for the apps, so that the apps of this JVM and of the other JVMs of the host can start in
+ * parallel without bind collisions. A port is chosen by the system among the free ephemeral ones, then reserved by a
+ * lock on the byte at its offset in the ports.lock file of the cache directory, shared by all the JVMs of the user. The
+ * ports reserved by the other JVMs are skipped, the lock is released when the app stops or when its JVM exits.
+ *
+ * @author bderancourt
+ */
+@Slf4j
+public class PortAllocator {
+
+  private static final String LOCK_FILE = "ports.lock";
+
+  private static final int MAX_ATTEMPTS = 100;
+
+  // the file locks are held by the whole JVM, the ports of this JVM are reserved here first
+  private static final Set<Integer> RESERVED_PORTS = ConcurrentHashMap.newKeySet();
+
+  private static volatile FileChannel lockChannel;
+
+  private static boolean lockFileUnavailable;
+
+  private PortAllocator() {
+  };
+
+  /**
+   * A port reserved until it's closed
+   */
+  public static class Reservation implements Closeable {
+
+    private final int port;
+
+    private final FileLock lock;
+
+    private Reservation(int port, FileLock lock) {
+      this.port = port;
+      this.lock = lock;
+    }
+
+    public int getPort() {
+      return port;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        if (lock != null) {
+          lock.release();
+        }
+      } finally {
+        RESERVED_PORTS.remove(port);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "port " + port;
+    }
+  }
+
+  /**
+   * @return a free port, reserved until the reservation is closed
+   * @throws IOException
+   *           if no free port can be reserved
+   */
+  public static Reservation reserve() throws IOException {
+    for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+      int port;
+      try (ServerSocket socket = new ServerSocket(0)) {
+        port = socket.getLocalPort();
+      }
+      if (!RESERVED_PORTS.add(port)) {
+        continue;
+      }
+      FileLock lock;
+      try {
+        lock = lock(port);
+      } catch (IOException | RuntimeException e) {
+        RESERVED_PORTS.remove(port);
+        throw e;
+      }
+      if (lock != null || lockChannel == null) {
+        log.debug("port {} reserved", port);
+        return new Reservation(port, lock);
+      }
+      // reserved by another JVM
+      RESERVED_PORTS.remove(port);
+    }
+    throw new IOException("No free port reserved after " + MAX_ATTEMPTS + " attempts");
+  }
+
+  /**
+   * @return the lock of the port, null if another JVM holds it or if the lock file can't be opened
+   */
+  private static synchronized FileLock lock(int port) throws IOException {
+    // the channel is closed when a thread locking a port is interrupted
+    if (lockChannel == null || !lockChannel.isOpen()) {
+      if (lockFileUnavailable) {
+        return null;
+      }
+      Path lockFile = CacheUtils.getCacheDirectory()
+          .resolve(LOCK_FILE);
+      try {
+        Files.createDirectories(lockFile.getParent());
+        lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      } catch (IOException e) {
+        log.warn("Unable to open {}, the ports are only reserved in this JVM", lockFile, e);
+        lockFileUnavailable = true;
+        lockChannel = null;
+        return null;
+      }
+    }
+    return lockChannel.tryLock(port, 1, false);
+  }
+
+}
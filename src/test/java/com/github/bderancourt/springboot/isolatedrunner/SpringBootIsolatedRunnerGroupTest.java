@@ -0,0 +1,168 @@
+package com.github.bderancourt.springboot.isolatedrunner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.bderancourt.springboot.isolatedrunner.launcher.Dependency;
+import com.github.bderancourt.springboot.isolatedrunner.launcher.IsolatedAppHandle;
+import com.github.bderancourt.springboot.isolatedrunner.launcher.TestDependency;
+
+public class SpringBootIsolatedRunnerGroupTest {
+
+  /**
+   * A runner whose app fails to start, recording its start attempts
+   */
+  private static class FailingRunner extends SpringBootIsolatedRunner {
+
+    private final Set<String> started;
+
+    private FailingRunner(String name, Set<String> started) {
+      super("demo.App", name);
+      this.started = started;
+    }
+
+    @Override
+    Dependency createDependency(RunnerClassPath runnerClassPath) {
+      return null;
+    }
+
+    @Override
+    IsolatedAppHandle start(Dependency dependency, String[] args, Executor executor) {
+      started.add(getName());
+      throw new IllegalStateException(getName() + " failed");
+    }
+  }
+
+  /**
+   * A runner starting an empty app of the test classes
+   */
+  private static class AppRunner extends SpringBootIsolatedRunner {
+
+    private final List<IsolatedAppHandle> handles = new CopyOnWriteArrayList<>();
+
+    private AppRunner(String name) {
+      super("demo.App", name);
+    }
+
+    @Override
+    Dependency createDependency(RunnerClassPath runnerClassPath) {
+      return TestDependency.app(getName());
+    }
+
+    @Override
+    IsolatedAppHandle start(Dependency dependency, String[] args, Executor executor) throws Exception {
+      IsolatedAppHandle handle = super.start(dependency, args, executor);
+      handles.add(handle);
+      return handle;
+    }
+  }
+
+  private static SpringBootIsolatedRunner runner(String name) {
+    return new SpringBootIsolatedRunner("demo.App", name);
+  }
+
+  @Test
+  public void sortAppsAfterTheirPreviousApps() {
+    SpringBootIsolatedRunnerGroup group = new SpringBootIsolatedRunnerGroup()
+        .add("gateway", runner("gateway"), new String[0], "config", "registry")
+        .add("registry", runner("registry"), new String[0], "config")
+        .add("batch", runner("batch"), new String[0])
+        .add("config", runner("config"), new String[0]);
+
+    assertEquals(Arrays.asList("config", "registry", "gateway", "batch"), group.sortApps());
+  }
+
+  @Test
+  public void rejectCyclicStartOrder() {
+    SpringBootIsolatedRunnerGroup group = new SpringBootIsolatedRunnerGroup()
+        .add("a", runner("a"), new String[0], "c")
+        .add("b", runner("b"), new String[0], "a")
+        .add("c", runner("c"), new String[0], "b");
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, group::start);
+    assertEquals("Cyclic start order between apps [a, c, b]", e.getMessage());
+  }
+
+  @Test
+  public void rejectUnknownPreviousApp() {
+    SpringBootIsolatedRunnerGroup group = new SpringBootIsolatedRunnerGroup()
+        .add("a", runner("a"), new String[0])
+        .add("b", runner("b"), new String[0], "a", "missing");
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, group::start);
+    assertEquals("b starts after the unknown app missing", e.getMessage());
+  }
+
+  @Test
+  public void rejectDuplicateId() {
+    SpringBootIsolatedRunnerGroup group = new SpringBootIsolatedRunnerGroup()
+        .add("a", runner("a"), new String[0]);
+
+    assertThrows(IllegalArgumentException.class, () -> group.add("a", runner("a"), new String[0]));
+  }
+
+  @Test
+  public void failedAppIsNotFollowedByItsNextApps() throws Exception {
+    Set<String> started = ConcurrentHashMap.newKeySet();
+    CompletableFuture<?> future = new SpringBootIsolatedRunnerGroup()
+        .add("config", new FailingRunner("config", started), new String[0])
+        .add("gateway", new FailingRunner("gateway", started), new String[0], "config")
+        .add("front", new FailingRunner("front", started), new String[0], "gateway")
+        .add("batch", new FailingRunner("batch", started), new String[0])
+        .start();
+
+    ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+    assertEquals("config failed", e.getCause()
+        .getMessage());
+    // the independent apps are still started
+    assertEquals(new HashSet<>(Arrays.asList("config", "batch")), started);
+  }
+
+  @Test
+  public void restartAnAppOnceTheGroupIsStarted() throws Exception {
+    Map<String, IsolatedAppHandle> handles = new SpringBootIsolatedRunnerGroup()
+        .add("config", new AppRunner("config"), new String[0])
+        .start()
+        .get(30, TimeUnit.SECONDS);
+    IsolatedAppHandle handle = handles.get("config");
+    try {
+      // the group executor is shut down, the restart runs anyway
+      handle.restart(new String[0]);
+      assertNotNull(handle.getApplicationContext()
+          .getNow(null));
+    } finally {
+      handle.stop();
+    }
+  }
+
+  @Test
+  public void stopTheStartedAppsWhenAnAppFails() throws Exception {
+    AppRunner config = new AppRunner("config");
+    CompletableFuture<?> future = new SpringBootIsolatedRunnerGroup()
+        .add("config", config, new String[0])
+        .add("gateway", new FailingRunner("gateway", ConcurrentHashMap.newKeySet()), new String[0], "config")
+        .start();
+
+    ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(30, TimeUnit.SECONDS));
+    assertEquals("gateway failed", e.getCause()
+        .getMessage());
+    assertEquals(1, config.handles.size());
+    // stopped, the caller has no handle to stop it
+    assertNull(config.handles.get(0)
+        .getClassLoader());
+  }
+
+}
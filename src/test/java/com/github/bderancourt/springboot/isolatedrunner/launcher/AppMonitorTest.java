@@ -0,0 +1,62 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+public class AppMonitorTest {
+
+  @Test
+  void sampleTheThreadsOfTheApp() throws Exception {
+    try (URLClassLoader classLoader = new URLClassLoader(new URL[0], null)) {
+      AppMonitor monitor = new AppMonitor("app", classLoader);
+      CountDownLatch worked = new CountDownLatch(1);
+      CountDownLatch end = new CountDownLatch(1);
+      Thread thread = new Thread(() -> {
+        List<byte[]> garbage = new ArrayList<>();
+        long deadline = System.nanoTime() + 50_000_000;
+        while (System.nanoTime() < deadline) {
+          garbage.add(new byte[1024]);
+          if (garbage.size() > 1000) {
+            garbage.clear();
+          }
+        }
+        worked.countDown();
+        try {
+          end.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread()
+              .interrupt();
+        }
+      });
+      thread.setContextClassLoader(classLoader);
+      thread.start();
+      worked.await();
+
+      ResourceSnapshot running = monitor.sample();
+      assertEquals(1, running.getThreadCount());
+      assertEquals(-1, running.getCpuLoad());
+      assertEquals(-1, running.getLoadedClassCount());
+
+      end.countDown();
+      thread.join();
+      ResourceSnapshot ended = monitor.sample();
+      assertEquals(0, ended.getThreadCount());
+      // the usage of the ended thread is kept
+      assertTrue(ended.getCpuTime()
+          .compareTo(running.getCpuTime()) >= 0);
+      assertTrue(ended.getAllocatedBytes() >= running.getAllocatedBytes());
+      assertTrue(ended.getAllocatedBytes() == -1 || ended.getAllocatedBytes() > 1024 * 1024);
+
+      monitor.close();
+      assertSame(monitor.sample(), monitor.getSnapshot());
+    }
+  }
+
+}
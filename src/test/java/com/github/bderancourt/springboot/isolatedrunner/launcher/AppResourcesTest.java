@@ -0,0 +1,90 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.bderancourt.springboot.isolatedrunner.util.CacheUtils;
+
+public class AppResourcesTest {
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeEach
+  void setCacheDir() {
+    System.setProperty(CacheUtils.CACHE_DIR_PROPERTY, tempDir.resolve("cache")
+        .toString());
+  }
+
+  @AfterEach
+  void clearCacheDir() {
+    System.clearProperty(CacheUtils.CACHE_DIR_PROPERTY);
+  }
+
+  @Test
+  void allocatePortsAndTempDirs() throws Exception {
+    String[] args = new String[] { "--spring.main.banner-mode=off", "--management.server.port=9000" };
+    AppResources resources = AppResources.allocate("smoke/app", args, Arrays.asList("server.port",
+        "management.server.port"), Collections.singletonList("server.tomcat.basedir"));
+
+    int port = resources.getPort("server.port");
+    Path baseDir = Paths.get(resources.getProperties()
+        .get("server.tomcat.basedir"));
+    assertTrue(Files.isDirectory(baseDir));
+    assertEquals(Arrays.asList("--spring.main.banner-mode=off", "--management.server.port=9000", "--server.port="
+        + port, "--server.tomcat.basedir=" + baseDir), Arrays.asList(resources.apply(args)));
+    // the port set by the args is not allocated
+    assertThrows(IllegalArgumentException.class, () -> resources.getPort("management.server.port"));
+    // nor applied again when the args of a restart set it
+    assertEquals(Arrays.asList("--server.port=8081", "--server.tomcat.basedir=" + baseDir), Arrays.asList(resources
+        .apply(new String[] { "--server.port=8081" })));
+    try (ServerSocket socket = new ServerSocket(port)) {
+      assertEquals(port, socket.getLocalPort());
+    }
+
+    resources.close();
+    resources.close();
+    assertFalse(Files.exists(baseDir));
+    assertEquals(port, resources.getPort("server.port"));
+  }
+
+  @Test
+  void allocateDistinctPortsConcurrently() {
+    Set<AppResources> allocated = ConcurrentHashMap.newKeySet();
+    List<Integer> ports = IntStream.range(0, 50)
+        .parallel()
+        .mapToObj(i -> {
+          try {
+            AppResources resources = AppResources.allocate("app" + i, new String[0], Collections.singletonList(
+                "server.port"), Collections.emptyList());
+            allocated.add(resources);
+            return resources.getPort("server.port");
+          } catch (Exception e) {
+            throw new IllegalStateException(e);
+          }
+        })
+        .collect(Collectors.toList());
+    allocated.forEach(AppResources::close);
+
+    assertEquals(50, ports.stream()
+        .distinct()
+        .count());
+  }
+
+}
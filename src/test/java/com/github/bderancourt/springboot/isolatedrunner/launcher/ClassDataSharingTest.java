@@ -0,0 +1,123 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Closeable;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.bderancourt.springboot.isolatedrunner.util.CacheUtils;
+
+public class ClassDataSharingTest {
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeEach
+  void setCacheDir() {
+    System.setProperty(CacheUtils.CACHE_DIR_PROPERTY, tempDir.toString());
+  }
+
+  @AfterEach
+  void clearProperties() {
+    System.clearProperty(CacheUtils.CACHE_DIR_PROPERTY);
+    System.clearProperty(ClassDataSharing.TRAINING_PROPERTY);
+  }
+
+  @Test
+  void dumpTheArchiveUntilItExists() throws Exception {
+    assertEquals(Collections.emptyList(), ClassDataSharing.getJvmOptions("app", 17));
+
+    Files.createDirectories(ClassDataSharing.getDirectory());
+    Files.write(ClassDataSharing.getClassListFile("app"), Arrays.asList("demo/App"), StandardCharsets.UTF_8);
+    Path archive = ClassDataSharing.getArchiveFile("app");
+    assertEquals(Arrays.asList("-XX:ArchiveClassesAtExit=" + archive), ClassDataSharing.getJvmOptions("app", 17));
+    // the classes of the custom classloaders can't be shared
+    assertEquals(Collections.emptyList(), ClassDataSharing.getJvmOptions("app", 11));
+
+    Files.write(archive, new byte[] { 0 });
+    assertEquals(Arrays.asList("-XX:SharedArchiveFile=" + archive, "-Xshare:auto"), ClassDataSharing.getJvmOptions(
+        "app", 17));
+  }
+
+  @Test
+  void writeTheClassListOfTheTraining() throws Exception {
+    System.setProperty(ClassDataSharing.TRAINING_PROPERTY, "true");
+    Files.createDirectories(ClassDataSharing.getDirectory());
+    Files.write(ClassDataSharing.getArchiveFile("app"), new byte[] { 0 });
+    URL runnerClasses = IsolatedProcessMain.class.getProtectionDomain()
+        .getCodeSource()
+        .getLocation();
+
+    try (CountingClassLoader classLoader = new CountingClassLoader(new URL[] { runnerClasses }, null)) {
+      classLoader.loadClass(IsolatedProcessMain.class.getName());
+      StartupReport report = new StartupReport("app");
+      report.setLoadedClassCount(classLoader.getLoadedClassCount());
+      report.setClassLoadingDuration(classLoader.getClassLoadingDuration());
+      ClassDataSharing.onReady("app", classLoader, report);
+    }
+
+    List<String> classList = Files.readAllLines(ClassDataSharing.getClassListFile("app"), StandardCharsets.UTF_8);
+    assertEquals(Arrays.asList(IsolatedProcessMain.class.getName()
+        .replace('.', '/')), classList);
+    assertEquals("1", ClassDataSharing.getTraining("app")
+        .get()
+        .getProperty("classCount"));
+    // the archive of the previous training is obsolete
+    assertFalse(Files.exists(ClassDataSharing.getArchiveFile("app")));
+  }
+
+  @Test
+  void compareTheMappingJvmWithTheDumpingOne() throws Exception {
+    StartupReport dumpingReport = new StartupReport("app");
+    dumpingReport.setLoadedClassCount(5000);
+    dumpingReport.setClassLoadingDuration(Duration.ofMillis(900));
+    ClassDataSharing.onProcessReady("app", Arrays.asList("-Xmx256m", "-XX:ArchiveClassesAtExit=app.jsa"),
+        dumpingReport);
+    assertEquals("900", ClassDataSharing.getBaseline("app")
+        .get()
+        .getProperty("classLoadingMillis"));
+
+    StartupReport mappingReport = new StartupReport("app");
+    mappingReport.setLoadedClassCount(5000);
+    mappingReport.setClassLoadingDuration(Duration.ofMillis(300));
+    ClassDataSharing.onProcessReady("app", Arrays.asList("-XX:SharedArchiveFile=app.jsa", "-Xshare:auto"),
+        mappingReport);
+    assertEquals(Optional.of(Duration.ofMillis(600)), ClassDataSharing.getClassLoadingSaving(mappingReport));
+    // the baseline is only recorded by the dumping JVM
+    assertEquals("900", ClassDataSharing.getBaseline("app")
+        .get()
+        .getProperty("classLoadingMillis"));
+  }
+
+  @Test
+  void lockTheArchiveDumpForASingleJvm() throws Exception {
+    assertTrue(ClassDataSharing.isArchiveDump(Arrays.asList("-Xmx256m", "-XX:ArchiveClassesAtExit=app.jsa")));
+    assertFalse(ClassDataSharing.isArchiveDump(Arrays.asList("-XX:SharedArchiveFile=app.jsa", "-Xshare:auto")));
+
+    Closeable dumpLock = ClassDataSharing.lockArchiveDump("app");
+    assertNotNull(dumpLock);
+    assertNull(ClassDataSharing.lockArchiveDump("app"));
+    try (Closeable otherAppLock = ClassDataSharing.lockArchiveDump("other")) {
+      assertNotNull(otherAppLock);
+    }
+
+    dumpLock.close();
+    try (Closeable nextDumpLock = ClassDataSharing.lockArchiveDump("app")) {
+      assertNotNull(nextDumpLock);
+    }
+  }
+
+}
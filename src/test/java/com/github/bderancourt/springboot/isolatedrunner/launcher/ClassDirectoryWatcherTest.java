@@ -0,0 +1,71 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ClassDirectoryWatcherTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void notifyTheChangesOnceTheyStop() throws Exception {
+    Path classes = Files.createDirectories(tempDir.resolve("target/classes/com/example"));
+    Semaphore reloads = new Semaphore(0);
+    System.setProperty(ClassDirectoryWatcher.DEBOUNCE_PROPERTY, "200");
+    try (ClassDirectoryWatcher watcher = new ClassDirectoryWatcher("app", Collections.singletonList(tempDir.resolve(
+        "target/classes")), reloads::release)) {
+      watcher.start();
+
+      for (int i = 0; i < 10; i++) {
+        Files.write(classes.resolve("Class" + i + ".class"), new byte[] { (byte) i });
+      }
+      assertTrue(reloads.tryAcquire(10, TimeUnit.SECONDS));
+      assertFalse(reloads.tryAcquire(500, TimeUnit.MILLISECONDS));
+
+      // the packages created after the start are watched too
+      Path newPackage = Files.createDirectories(classes.resolve("web"));
+      assertTrue(reloads.tryAcquire(10, TimeUnit.SECONDS));
+      Files.write(newPackage.resolve("Controller.class"), new byte[] { 1 });
+      assertTrue(reloads.tryAcquire(10, TimeUnit.SECONDS));
+    } finally {
+      System.clearProperty(ClassDirectoryWatcher.DEBOUNCE_PROPERTY);
+    }
+  }
+
+  @Test
+  void watchTheClassDirectoryCreatedAgain() throws Exception {
+    Path classes = Files.createDirectories(tempDir.resolve("target/classes/com/example"));
+    Semaphore reloads = new Semaphore(0);
+    System.setProperty(ClassDirectoryWatcher.DEBOUNCE_PROPERTY, "200");
+    try (ClassDirectoryWatcher watcher = new ClassDirectoryWatcher("app", Collections.singletonList(tempDir.resolve(
+        "target/classes")), reloads::release)) {
+      watcher.start();
+
+      // mvn clean compile
+      FileUtils.deleteDirectory(tempDir.resolve("target")
+          .toFile());
+      assertTrue(reloads.tryAcquire(10, TimeUnit.SECONDS));
+      Files.createDirectories(classes);
+      Files.write(classes.resolve("App.class"), new byte[] { 1 });
+      assertTrue(reloads.tryAcquire(10, TimeUnit.SECONDS));
+      reloads.drainPermits();
+
+      // the classes written after the build are still watched
+      Files.write(classes.resolve("App.class"), new byte[] { 2 });
+      assertTrue(reloads.tryAcquire(10, TimeUnit.SECONDS));
+    } finally {
+      System.clearProperty(ClassDirectoryWatcher.DEBOUNCE_PROPERTY);
+    }
+  }
+
+}
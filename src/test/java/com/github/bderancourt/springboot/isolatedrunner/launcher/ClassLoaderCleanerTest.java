@@ -0,0 +1,68 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+public class ClassLoaderCleanerTest {
+
+  @Test
+  void interruptTheThreadsOfTheReleasedClassLoader() throws Exception {
+    URLClassLoader classLoader = new URLClassLoader(new URL[] { JvmProcessTest.class.getProtectionDomain()
+        .getCodeSource()
+        .getLocation() }, null);
+    CountDownLatch never = new CountDownLatch(1);
+    boolean[] interrupted = new boolean[1];
+    Thread owned = new Thread(() -> {
+      try {
+        never.await();
+      } catch (InterruptedException e) {
+        interrupted[0] = true;
+      }
+    });
+    owned.setContextClassLoader(classLoader);
+    Thread other = new Thread(() -> {
+      try {
+        never.await();
+      } catch (InterruptedException e) {
+      }
+    });
+    owned.start();
+    other.start();
+    try {
+      assertTrue(ClassLoaderCleaner.isOwnedBy(owned, classLoader));
+      assertFalse(ClassLoaderCleaner.isOwnedBy(other, classLoader));
+
+      ClassLoaderCleaner.release(classLoader, "app");
+      owned.join(5000);
+      assertFalse(owned.isAlive());
+      assertTrue(interrupted[0]);
+      assertTrue(other.isAlive());
+      // closed
+      assertNull(classLoader.findResource(JvmProcessTest.class.getName()
+          .replace('.', '/') + ".class"));
+    } finally {
+      never.countDown();
+      other.join();
+    }
+  }
+
+  @Test
+  void listTheTrackedLaunchThreads() {
+    Thread launchThread = new Thread(() -> {
+    });
+    ClassLoaderCleaner.trackLaunchThread(launchThread);
+    Thread listed = Thread.currentThread();
+
+    Set<Thread> threads = ClassLoaderCleaner.withLaunchThreads(Collections.singletonList(listed));
+    assertTrue(threads.contains(launchThread));
+    assertTrue(threads.contains(listed));
+  }
+
+}
@@ -0,0 +1,94 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+public class ClassLoaderLeakReportTest {
+
+  @Test
+  void collectTheClassLoaderOfAStoppedApp() throws Exception {
+    IsolatedAppHandle handle = IsolatedAppHandle.launch("app", new CountingClassLoader(JvmProcessTest.getClassPath(),
+        null), JvmProcessTest.App.class.getName(), new String[0], IsolatedAppHandle.newThreadExecutor("app"), null,
+        System.nanoTime(), new StartupReport("app"));
+    handle.awaitReady();
+    assertThrows(IllegalStateException.class, () -> handle.checkLeak(Duration.ZERO));
+
+    handle.stop();
+    ClassLoaderLeakReport report = handle.checkLeak(Duration.ofSeconds(30));
+    assertFalse(report.isLeaked(), report.toString());
+    assertEquals(Collections.emptyList(), report.getSuspects());
+    assertEquals("classloader of app collected", report.toString());
+  }
+
+  @Test
+  void reportTheThreadPinningTheClassLoader() throws Exception {
+    ClassLoader classLoader = new URLClassLoader(new URL[0], null);
+    CountDownLatch stopped = new CountDownLatch(1);
+    Thread thread = new Thread(() -> {
+      try {
+        stopped.await();
+      } catch (InterruptedException e) {
+      }
+    }, "leaking-thread");
+    thread.setContextClassLoader(classLoader);
+    thread.start();
+    try {
+      ClassLoaderLeakReport report = ClassLoaderLeakReport.check("app", new WeakReference<>(classLoader), Duration
+          .ofMillis(200));
+      assertTrue(report.isLeaked());
+      assertEquals(Arrays.asList("live thread leaking-thread (java.lang.Thread)"), report.getSuspects());
+      assertEquals("classloader of app leaked, suspects: live thread leaking-thread (java.lang.Thread)", report
+          .toString());
+    } finally {
+      stopped.countDown();
+      thread.join();
+    }
+  }
+
+  @Test
+  void reportTheShutdownHookPinningTheClassLoaderOfAStoppedApp() throws Exception {
+    IsolatedAppHandle handle = IsolatedAppHandle.launch("app", new CountingClassLoader(JvmProcessTest.getClassPath(),
+        null), JvmProcessTest.App.class.getName(), new String[0], IsolatedAppHandle.newThreadExecutor("app"), null,
+        System.nanoTime(), new StartupReport("app"));
+    handle.awaitReady();
+    // left by the app, not released by the stop
+    Thread hook = new Thread(() -> {
+    }, "leaking-hook");
+    hook.setContextClassLoader(handle.getClassLoader());
+    Runtime.getRuntime()
+        .addShutdownHook(hook);
+    try {
+      handle.stop();
+      ClassLoaderLeakReport report = handle.checkLeak(Duration.ofMillis(500));
+      assertTrue(report.isLeaked());
+      assertEquals(Arrays.asList("shutdown hook leaking-hook (java.lang.Thread)"), report.getSuspects());
+    } finally {
+      Runtime.getRuntime()
+          .removeShutdownHook(hook);
+    }
+  }
+
+  @Test
+  void reportTheOtherReferences() throws Exception {
+    ClassLoader classLoader = new URLClassLoader(new URL[0], null);
+
+    ClassLoaderLeakReport report = ClassLoaderLeakReport.check("app", new WeakReference<>(classLoader), Duration
+        .ofMillis(200));
+    assertTrue(report.isLeaked());
+    assertEquals(Arrays.asList(
+        "no thread nor shutdown hook, check the static fields and caches of the parent classloaders"), report
+            .getSuspects());
+    // the strong reference held by the test
+    assertNotNull(classLoader);
+  }
+
+}
@@ -0,0 +1,47 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ClassPathMatcherTest {
+
+  @Test
+  void matchAllPhases() throws Exception {
+    List<URL> classPathUrls = Arrays.asList(
+        new URL("file:/C:/m2repo/com/google/code/findbugs/jsr305/3.0.2/jsr305-3.0.2.jar"),
+        new URL("file:/C:/m2repo/org/apache/logging/log4j/log4j-to-slf4j/2.12.1/log4j-to-slf4j-2.12.1.jar"),
+        new URL("file:/C:/git/commons/web/target/classes/"));
+    List<String> manifestJars = Arrays.asList("log4j-to-slf4j-7.3.8.jar", "jsr305-3.0.2.jar",
+        "commons-web-1.0-SNAPSHOT.jar", "log4j-1.2.17.jar");
+
+    ClassPathMatcher matcher = new ClassPathMatcher(classPathUrls, manifestJars);
+
+    assertEquals(Collections.singletonMap("jsr305-3.0.2.jar", classPathUrls.get(0)), matcher.exactMatch());
+    assertEquals(Collections.singletonMap("log4j-to-slf4j-7.3.8.jar",
+        new URL("file:/C:/m2repo/org/apache/logging/log4j/log4j-to-slf4j/7.3.8/log4j-to-slf4j-7.3.8.jar")),
+        matcher.matchesButNotTheVersion());
+    assertEquals(Collections.singletonMap("commons-web-1.0-SNAPSHOT.jar", classPathUrls.get(2)), matcher
+        .matchesEclipseRelatedProject());
+    assertEquals(Arrays.asList("log4j-1.2.17.jar"), matcher.getRemainingJars());
+  }
+
+  @Test
+  void exactMatchTakesPrecedenceOverVersion() throws Exception {
+    List<URL> classPathUrls = Arrays.asList(
+        new URL("file:/C:/m2repo/org/apache/logging/log4j/log4j-to-slf4j/2.12.0/log4j-to-slf4j-2.12.0.jar"),
+        new URL("file:/C:/m2repo/org/apache/logging/log4j/log4j-to-slf4j/2.12.1/log4j-to-slf4j-2.12.1.jar"));
+
+    ClassPathMatcher matcher = new ClassPathMatcher(classPathUrls, Arrays.asList("log4j-to-slf4j-2.12.1.jar"));
+
+    assertEquals(Collections.singletonMap("log4j-to-slf4j-2.12.1.jar", classPathUrls.get(1)), matcher.exactMatch());
+    assertEquals(Collections.emptyMap(), matcher.matchesButNotTheVersion());
+    assertEquals(Collections.emptyList(), matcher.getRemainingJars());
+  }
+
+}
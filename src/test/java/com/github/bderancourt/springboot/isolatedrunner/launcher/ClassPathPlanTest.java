@@ -0,0 +1,92 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.bderancourt.springboot.isolatedrunner.util.CacheUtils;
+
+public class ClassPathPlanTest {
+
+  @TempDir
+  Path tempDir;
+
+  @AfterEach
+  void clearVerify() {
+    System.clearProperty(ClassPathPlan.VERIFY_PROPERTY);
+  }
+
+  @Test
+  void loadPlan() throws Exception {
+    Path jar = Files.write(tempDir.resolve("jsr305-3.0.2.jar"), new byte[] { 1, 2, 3 });
+    Path module = Files.createDirectories(tempDir.resolve("module/target/classes"));
+    File classes = writePlan("# plan", CacheUtils.sha256(jar) + " 3 com.google.code.findbugs:jsr305:jar:3.0.2 " + jar,
+        "- - com.example:module:jar:1.0 " + module);
+
+    ClassPathPlan plan = ClassPathPlan.load(classes)
+        .get();
+    assertEquals("com.google.code.findbugs:jsr305:jar:3.0.2", plan.getEntries()
+        .get(0)
+        .getCoordinates());
+    assertEquals(Arrays.asList(jar.toUri()
+        .toURL(), module.toUri()
+            .toURL()), plan.getUrls());
+  }
+
+  @Test
+  void stalePlan() throws Exception {
+    Path jar = Files.write(tempDir.resolve("jsr305-3.0.2.jar"), new byte[] { 1, 2, 3 });
+    File classes = writePlan(CacheUtils.sha256(jar) + " 3 com.google.code.findbugs:jsr305:jar:3.0.2 " + jar);
+    assertTrue(ClassPathPlan.load(classes)
+        .isPresent());
+
+    // same size, other content: only seen when the checksums are verified
+    Files.write(jar, new byte[] { 3, 2, 1 });
+    assertTrue(ClassPathPlan.load(classes)
+        .isPresent());
+    System.setProperty(ClassPathPlan.VERIFY_PROPERTY, "true");
+    assertEquals(Optional.empty(), ClassPathPlan.load(classes));
+
+    Files.delete(jar);
+    assertEquals(Optional.empty(), ClassPathPlan.load(classes));
+    assertEquals(Optional.empty(), ClassPathPlan.load(tempDir.resolve("absent")
+        .toFile()));
+  }
+
+  @Test
+  void stalePlanOnceThePomChanged() throws Exception {
+    Path jar = Files.write(tempDir.resolve("jsr305-3.0.2.jar"), new byte[] { 1, 2, 3 });
+    Path pom = Files.write(tempDir.resolve("pom.xml"), new byte[] { 1 });
+    FileTime pomTime = FileTime.fromMillis(1_500_000_000_000L);
+    Files.setLastModifiedTime(pom, pomTime);
+    File classes = writePlan("# classpath plan of com.example:app:jar:1.0", "# pom " + pomTime.toMillis() + " " + pom,
+        "# pom 1400000000000 " + tempDir.resolve("moved/parent/pom.xml"), CacheUtils.sha256(jar)
+            + " 3 com.google.code.findbugs:jsr305:jar:3.0.2 " + jar);
+    // a pom which doesn't exist anymore is ignored
+    assertTrue(ClassPathPlan.load(classes)
+        .isPresent());
+
+    // a dependency may have been added
+    Files.setLastModifiedTime(pom, FileTime.fromMillis(pomTime.toMillis() + 1000));
+    assertEquals(Optional.empty(), ClassPathPlan.load(classes));
+  }
+
+  private File writePlan(String... lines) throws Exception {
+    Path classes = tempDir.resolve("target/classes");
+    Path planFile = classes.resolve(ClassPathPlan.LOCATION);
+    Files.createDirectories(planFile.getParent());
+    Files.write(planFile, Arrays.asList(lines), StandardCharsets.UTF_8);
+    return classes.toFile();
+  }
+
+}
@@ -0,0 +1,98 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class DependencyResolversTest {
+
+  private static class FixedResolver implements DependencyResolver {
+
+    private final String name;
+
+    private final boolean concurrent;
+
+    private final Map<String, URL> urls;
+
+    private List<String> requestedJars;
+
+    private FixedResolver(String name, boolean concurrent, Map<String, URL> urls) {
+      this.name = name;
+      this.concurrent = concurrent;
+      this.urls = urls;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public boolean isConcurrent() {
+      return concurrent;
+    }
+
+    @Override
+    public Map<String, URL> resolve(Request request) throws Exception {
+      requestedJars = request.getJars();
+      if (urls == null) {
+        throw new IllegalStateException(name + " failure");
+      }
+      return urls;
+    }
+  }
+
+  @Test
+  void resolveByOrderAndKeepTheFirstResolution() throws Exception {
+    URL jsr305 = new URL("file:/C:/m2repo/com/google/code/findbugs/jsr305/3.0.2/jsr305-3.0.2.jar");
+    URL gradleJsr305 = new URL("file:/home/.gradle/caches/modules-2/files-2.1/jsr305-3.0.2.jar");
+    URL log4j = new URL("file:/home/.gradle/caches/modules-2/files-2.1/log4j-1.2.17.jar");
+    Map<String, URL> secondUrls = new LinkedHashMap<>();
+    secondUrls.put("jsr305-3.0.2.jar", gradleJsr305);
+    secondUrls.put("log4j-1.2.17.jar", log4j);
+    secondUrls.put("unknown-1.0.jar", log4j);
+    FixedResolver exact = new FixedResolver("exact", false, Collections.emptyMap());
+    FixedResolver first = new FixedResolver("first", true, Collections.singletonMap("jsr305-3.0.2.jar", jsr305));
+    FixedResolver failing = new FixedResolver("failing", true, null);
+    FixedResolver second = new FixedResolver("second", true, secondUrls);
+    FixedResolver last = new FixedResolver("last", false, Collections.emptyMap());
+    StartupReport report = new StartupReport("app");
+
+    Map<String, URL> resolved = DependencyResolvers.resolve(Arrays.asList(exact, first, failing, second, last), Arrays
+        .asList("log4j-1.2.17.jar", "jsr305-3.0.2.jar"), Collections.emptyList(), report);
+
+    Map<String, URL> expected = new LinkedHashMap<>();
+    expected.put("jsr305-3.0.2.jar", jsr305);
+    expected.put("log4j-1.2.17.jar", log4j);
+    assertEquals(expected, resolved);
+    // the concurrent resolvers get the same jars, the resolution stops once all the jars are resolved
+    assertEquals(Arrays.asList("log4j-1.2.17.jar", "jsr305-3.0.2.jar"), second.requestedJars);
+    assertNull(last.requestedJars);
+    // the concurrent phases are recorded as they end
+    assertEquals(Arrays.asList("exact", "failing", "first", "second"), report.getPhases()
+        .stream()
+        .map(StartupReport.Phase::getName)
+        .sorted()
+        .collect(Collectors.toList()));
+  }
+
+  @Test
+  void builtInResolversByOrder() {
+    assertEquals(Arrays.asList(StartupReport.EXACT_MATCH, StartupReport.VERSION_MISMATCH_MATCH,
+        StartupReport.ECLIPSE_PROJECTS_MATCH, StartupReport.MAVEN_REPOSITORY_LOOKUP, StartupReport.GRADLE_CACHE_LOOKUP),
+        DependencyResolvers.of(Optional::empty)
+            .stream()
+            .map(DependencyResolver::getName)
+            .collect(Collectors.toList()));
+  }
+
+}
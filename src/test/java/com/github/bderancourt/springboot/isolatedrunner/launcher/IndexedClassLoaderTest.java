@@ -0,0 +1,132 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.bderancourt.springboot.isolatedrunner.util.CacheUtils;
+
+public class IndexedClassLoaderTest {
+
+  private static final String CLASS_NAME = ArchiveMode.class.getName();
+
+  private static final String CLASS_ENTRY = CLASS_NAME.replace('.', '/') + ".class";
+
+  @TempDir
+  File tempDir;
+
+  @Test
+  void loadClassFromTheOwningJar() throws Exception {
+    URL[] urls = new URL[] { createJar("other.jar", "other/Other.txt"), createJar("app.jar", CLASS_ENTRY) };
+    PackageIndex index = PackageIndex.build(urls);
+    assertArrayEquals(new int[] { 1 }, index.getJars(ArchiveMode.class.getPackage()
+        .getName()
+        .replace('.', '/')));
+
+    try (IndexedClassLoader classLoader = new IndexedClassLoader(urls, index, null)) {
+      Class<?> loadedClass = classLoader.loadClass(CLASS_NAME);
+      assertSame(classLoader, loadedClass.getClassLoader());
+      assertNotSame(ArchiveMode.class, loadedClass);
+      assertEquals("test-app", loadedClass.getPackage()
+          .getImplementationTitle());
+      assertEquals(urls[1], loadedClass.getProtectionDomain()
+          .getCodeSource()
+          .getLocation());
+      assertEquals(1, classLoader.getLoadedClassCount());
+      assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass("absent.Absent"));
+    }
+  }
+
+  @Test
+  void loadClassOfASplitPackageInTheClassPathOrder() throws Exception {
+    URL[] urls = new URL[] { createJar("split.jar", CLASS_ENTRY.replace("ArchiveMode", "Other")), createJar("app.jar",
+        CLASS_ENTRY) };
+    PackageIndex index = PackageIndex.build(urls);
+    assertEquals(2, index.getJars(ArchiveMode.class.getPackage()
+        .getName()
+        .replace('.', '/')).length);
+
+    try (IndexedClassLoader classLoader = new IndexedClassLoader(urls, index, null)) {
+      assertEquals(urls[1], classLoader.loadClass(CLASS_NAME)
+          .getProtectionDomain()
+          .getCodeSource()
+          .getLocation());
+    }
+  }
+
+  @Test
+  void findResourceInTheOwningJar() throws Exception {
+    URL[] urls = new URL[] { createJar("other.jar", "META-INF/other.txt"), createJar("app.jar", "app/app.txt") };
+
+    try (IndexedClassLoader classLoader = new IndexedClassLoader(urls, PackageIndex.build(urls), null)) {
+      URL resource = classLoader.findResource("app/app.txt");
+      assertEquals("jar:" + urls[1] + "!/app/app.txt", resource.toString());
+      try (InputStream is = resource.openStream()) {
+        assertTrue(IOUtils.toByteArray(is).length > 0);
+      }
+      assertNull(classLoader.findResource("app/absent.txt"));
+      // split package, searched in all the jars
+      assertEquals(2, Collections.list(classLoader.findResources("META-INF/MANIFEST.MF"))
+          .size());
+    }
+  }
+
+  @Test
+  void loadPersistedIndex() throws Exception {
+    System.setProperty(CacheUtils.CACHE_DIR_PROPERTY, new File(tempDir, "cache").getPath());
+    try {
+      File classes = new File(tempDir, "classes");
+      assertTrue(classes.mkdir());
+      URL[] urls = new URL[] { createJar("app.jar", CLASS_ENTRY), classes.toURI()
+          .toURL() };
+      PackageIndex.load(urls);
+      assertEquals(1, new File(tempDir, "cache/classpath").list((dir, name) -> name.endsWith(".idx")).length);
+
+      // the directories are read again, not the jars
+      assertTrue(new File(classes, "dir").mkdirs());
+      assertTrue(new File(classes, "dir/dir.txt").createNewFile());
+      PackageIndex index = PackageIndex.load(urls);
+      assertArrayEquals(new int[] { 0 }, index.getJars(ArchiveMode.class.getPackage()
+          .getName()
+          .replace('.', '/')));
+      assertArrayEquals(new int[] { 1 }, index.getJars("dir"));
+    } finally {
+      System.clearProperty(CacheUtils.CACHE_DIR_PROPERTY);
+    }
+  }
+
+  /**
+   * @return a jar with the entry, containing the bytes of ArchiveMode
+   */
+  private URL createJar(String name, String entryName) throws IOException {
+    File jar = new File(tempDir, name);
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes()
+        .put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes()
+        .put(Attributes.Name.IMPLEMENTATION_TITLE, "test-app");
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest);
+        InputStream classBytes = ArchiveMode.class.getClassLoader()
+            .getResourceAsStream(CLASS_ENTRY)) {
+      out.putNextEntry(new ZipEntry(entryName));
+      IOUtils.copy(classBytes, out);
+      out.closeEntry();
+    }
+    return jar.toURI()
+        .toURL();
+  }
+
+}
@@ -0,0 +1,212 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+public class IsolatedAppHandleTest {
+
+  @Configuration
+  static class SlowApp {
+
+    static final String CONTEXT_PROPERTY = "isolatedrunner.test.slowapp";
+
+    @Bean
+    String slowBean(ApplicationContext context) {
+      // the interruption of the stop is ignored, the startup goes on after the timeout
+      long deadline = System.currentTimeMillis() + 3000;
+      while (System.currentTimeMillis() < deadline) {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+        }
+      }
+      System.getProperties()
+          .put(CONTEXT_PROPERTY, context);
+      return "slow";
+    }
+  }
+
+  @Test
+  void rejectTheRestartDuringTheStartup() throws Exception {
+    // the startup only runs when the test runs it
+    List<Runnable> startups = new ArrayList<>();
+    Executor executor = startups::add;
+    IsolatedAppHandle handle = IsolatedAppHandle.launch("app", new CountingClassLoader(JvmProcessTest.getClassPath(),
+        null), JvmProcessTest.App.class.getName(), new String[0], executor, null, System.nanoTime(),
+        new StartupReport("app"));
+    try {
+      IllegalStateException rejected = assertThrows(IllegalStateException.class, () -> handle.restartAsync(
+          new String[0], executor));
+      assertEquals("app is starting, it can't be restarted before it's ready", rejected.getMessage());
+      assertEquals(1, startups.size());
+
+      startups.get(0)
+          .run();
+      handle.awaitReady();
+      handle.restartAsync(new String[0], executor);
+      assertEquals(2, startups.size());
+      startups.get(1)
+          .run();
+      handle.awaitReady();
+    } finally {
+      handle.stop();
+    }
+  }
+
+  @Test
+  void reloadOnceTheStartupEnds() throws Exception {
+    List<Runnable> startups = new ArrayList<>();
+    Executor executor = startups::add;
+    ClassLoader classLoader = new CountingClassLoader(JvmProcessTest.getClassPath(), null);
+    IsolatedAppHandle handle = IsolatedAppHandle.launch("app", classLoader, JvmProcessTest.App.class.getName(),
+        new String[0], executor, null, System.nanoTime(), new StartupReport("app"));
+    try {
+      Supplier<ClassLoader> classLoaderFactory = () -> new CountingClassLoader(JvmProcessTest.getClassPath(), null);
+      handle.reloadAsync(classLoaderFactory, JvmProcessTest.App.class.getName(), executor);
+      handle.reloadAsync(classLoaderFactory, JvmProcessTest.App.class.getName(), executor);
+      assertSame(classLoader, handle.getClassLoader());
+      assertEquals(1, startups.size());
+
+      startups.get(0)
+          .run();
+      handle.awaitReady();
+      // the two reloads requested during the startup are merged
+      assertEquals(2, startups.size());
+      startups.get(1)
+          .run();
+      assertNotSame(classLoader, handle.getClassLoader());
+      assertEquals(3, startups.size());
+      startups.get(2)
+          .run();
+      handle.awaitReady();
+    } finally {
+      handle.stop();
+    }
+  }
+
+  @Test
+  void restartInTheExecutorOfTheStart() throws Exception {
+    AtomicInteger startups = new AtomicInteger();
+    Executor executor = runnable -> {
+      startups.incrementAndGet();
+      IsolatedAppHandle.newThreadExecutor("app")
+          .execute(runnable);
+    };
+    IsolatedAppHandle handle = IsolatedAppHandle.launch("app", new CountingClassLoader(JvmProcessTest.getClassPath(),
+        null), JvmProcessTest.App.class.getName(), new String[0], executor, null, System.nanoTime(),
+        new StartupReport("app"));
+    try {
+      handle.awaitReady();
+      handle.restart(new String[0]);
+      assertEquals(2, startups.get());
+    } finally {
+      handle.stop();
+    }
+  }
+
+  @Test
+  void restartAgainAfterARejectedRestart() throws Exception {
+    IsolatedAppHandle handle = IsolatedAppHandle.launch("app", new CountingClassLoader(JvmProcessTest.getClassPath(),
+        null), JvmProcessTest.App.class.getName(), new String[0], IsolatedAppHandle.newThreadExecutor("app"), null,
+        System.nanoTime(), new StartupReport("app"));
+    try {
+      handle.awaitReady();
+      Executor rejecting = runnable -> {
+        throw new RejectedExecutionException("shut down");
+      };
+      InvocationTargetException rejected = assertThrows(InvocationTargetException.class, () -> handle.restartAsync(
+          new String[0], rejecting));
+      assertTrue(rejected.getCause() instanceof RejectedExecutionException);
+
+      handle.restartAsync(new String[0], IsolatedAppHandle.newThreadExecutor("app"))
+          .awaitReady();
+    } finally {
+      handle.stop();
+    }
+  }
+
+  @Test
+  void restartWithTheAllocatedResources() throws Exception {
+    IsolatedAppHandle handle = IsolatedAppHandle.launch("app", new CountingClassLoader(JvmProcessTest.getClassPath(),
+        null), JvmProcessTest.App.class.getName(), new String[0], IsolatedAppHandle.newThreadExecutor("app"), null,
+        System.nanoTime(), new StartupReport("app"));
+    try {
+      AppResources resources = AppResources.allocate("app", new String[0], Arrays.asList("server.port",
+          "management.server.port"), Collections.emptyList());
+      resources.attach(handle);
+
+      handle.awaitReady()
+          .restart(new String[] { "--management.server.port=0", "--app.mode=restarted" });
+      assertEquals(String.valueOf(resources.getPort("server.port")), getProperty(handle, "server.port"));
+      // the property set by the new args wins
+      assertEquals("0", getProperty(handle, "management.server.port"));
+      assertEquals("restarted", getProperty(handle, "app.mode"));
+    } finally {
+      handle.stop();
+    }
+  }
+
+  @Test
+  void stopTheAppNotReadyInTime() throws Exception {
+    List<Thread> threads = new ArrayList<>();
+    Executor executor = runnable -> {
+      Thread thread = new Thread(runnable);
+      threads.add(thread);
+      thread.start();
+    };
+    // kept open by the stop, so that the context is still refreshed after the timeout
+    ClassLoader classLoader = new CountingClassLoader(JvmProcessTest.getClassPath(), null) {
+
+      @Override
+      public void close() {
+      }
+    };
+    IsolatedAppHandle handle = IsolatedAppHandle.launch("slow", classLoader, SlowApp.class.getName(), new String[0],
+        executor, Duration.ofMillis(500), System.nanoTime(), new StartupReport("slow"));
+    try {
+      assertThrows(TimeoutException.class, handle::awaitReady);
+      assertNull(handle.getClassLoader());
+      threads.get(0)
+          .join(30000);
+
+      // the context refreshed after the stop is closed
+      Object context = System.getProperties()
+          .get(SlowApp.CONTEXT_PROPERTY);
+      assertNotNull(context);
+      assertEquals(false, context.getClass()
+          .getMethod("isActive")
+          .invoke(context));
+    } finally {
+      System.getProperties()
+          .remove(SlowApp.CONTEXT_PROPERTY);
+    }
+  }
+
+  private static String getProperty(IsolatedAppHandle handle, String property) throws Exception {
+    Object context = handle.getApplicationContext()
+        .get();
+    Object environment = context.getClass()
+        .getMethod("getEnvironment")
+        .invoke(context);
+    return (String) environment.getClass()
+        .getMethod("getProperty", String.class)
+        .invoke(environment, property);
+  }
+
+}
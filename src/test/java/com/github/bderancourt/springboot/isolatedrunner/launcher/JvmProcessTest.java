@@ -0,0 +1,100 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.LogFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.Advisor;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.SpringVersion;
+import org.springframework.expression.ExpressionParser;
+
+public class JvmProcessTest {
+
+  @Configuration
+  static class App {
+  }
+
+  @Configuration
+  static class FailingApp {
+
+    @Bean
+    String failingBean() {
+      throw new IllegalStateException("failingBean can't be created");
+    }
+  }
+
+  @Test
+  void startAndStopTheAppInTheChildJvm() throws Exception {
+    JvmProcess jvm = JvmProcess.launch(Collections.emptyList(), getClassPath(), Arrays.asList(SpringApplication.class
+        .getName()), null);
+    try {
+      assertEquals(1, jvm.awaitWarm());
+
+      jvm.start("app", App.class.getName(), new String[0]);
+      assertTrue(jvm.getEventNanos()
+          .containsKey("ApplicationReadyEvent"), jvm.getEventNanos()
+              .toString());
+      assertTrue(jvm.getLoadedClassCount() > 0);
+      assertNotNull(jvm.getClassLoadingDuration());
+
+      jvm.stop();
+      assertFalse(jvm.isAlive());
+    } finally {
+      jvm.destroy();
+    }
+  }
+
+  @Test
+  void reportTheFailureOfTheChildJvm() throws Exception {
+    JvmProcess jvm = JvmProcess.launch(Collections.emptyList(), getClassPath(), Collections.emptyList(), null);
+    try {
+      IllegalStateException failure = assertThrows(IllegalStateException.class, () -> jvm.start("failing",
+          FailingApp.class.getName(), new String[0]));
+      assertTrue(failure.getMessage()
+          .contains("failingBean can't be created"), failure.getMessage());
+      // the JVM of a failed app is destroyed
+      assertTrue(jvm.getProcess()
+          .waitFor(30, TimeUnit.SECONDS));
+    } finally {
+      jvm.destroy();
+    }
+  }
+
+  @Test
+  void releaseTheExitLockOnceTheJvmExits() throws Exception {
+    boolean[] released = new boolean[1];
+    JvmProcess jvm = JvmProcess.launch(Collections.emptyList(), getClassPath(), Collections.emptyList(),
+        () -> released[0] = true);
+    jvm.start("app", App.class.getName(), new String[0]);
+    assertFalse(released[0]);
+
+    jvm.stop();
+    assertFalse(jvm.isAlive());
+    assertTrue(released[0]);
+  }
+
+  /**
+   * @return the runner and test classes with the spring jars, the smallest classpath of a spring-boot app
+   */
+  static URL[] getClassPath() {
+    return Arrays.stream(new Class<?>[] { IsolatedProcessMain.class, JvmProcessTest.class, SpringApplication.class,
+        ApplicationContext.class, BeanFactory.class, SpringVersion.class, Advisor.class, ExpressionParser.class,
+        LogFactory.class })
+        .map(type -> type.getProtectionDomain()
+            .getCodeSource()
+            .getLocation())
+        .distinct()
+        .toArray(URL[]::new);
+  }
+
+}
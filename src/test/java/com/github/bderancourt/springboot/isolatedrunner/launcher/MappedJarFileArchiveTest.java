@@ -0,0 +1,153 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Scanner;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.loader.archive.Archive;
+
+public class MappedJarFileArchiveTest {
+
+  @TempDir
+  File tempDir;
+
+  @Test
+  void readNestedJarsFromTheMapping() throws Exception {
+    File fatJar = createFatJar("from the nested jar");
+    MappedJarFileArchive archive = MappedJarFileArchive.open(fatJar);
+    List<Archive> nestedArchives = archive.getNestedArchives(entry -> entry.getName()
+        .equals("BOOT-INF/classes/")
+        || entry.getName()
+            .startsWith("BOOT-INF/lib/"));
+    assertEquals(1, nestedArchives.size());
+    assertTrue(nestedArchives.get(0)
+        .getUrl()
+        .toString()
+        .endsWith("app.jar!/BOOT-INF/lib/lib-1.0.jar!/"));
+
+    // the same fat jar opened by another app shares the nested jars
+    Archive otherNestedArchive = MappedJarFileArchive.open(fatJar)
+        .getNestedArchives(entry -> entry.getName()
+            .startsWith("BOOT-INF/lib/"))
+        .get(0);
+    assertEquals(nestedArchives.get(0)
+        .getUrl(), otherNestedArchive.getUrl());
+
+    try (CountingClassLoader classLoader = new CountingClassLoader(new URL[] { nestedArchives.get(0)
+        .getUrl() }, null)) {
+      assertEquals("from the nested jar", read(classLoader.getResource("lib/lib.txt")));
+    }
+    assertEquals("from the app", read(new URL(archive.getUrl(), "BOOT-INF/classes/app.txt")));
+  }
+
+  @Test
+  void closeTheMappingWithTheLastArchive() throws Exception {
+    File fatJar = createFatJar("from the nested jar");
+    MappedJarFileArchive archive = MappedJarFileArchive.open(fatJar);
+    MappedJarFileArchive otherArchive = MappedJarFileArchive.open(fatJar);
+    Archive nestedArchive = getNestedLib(archive);
+
+    archive.close();
+    // closing twice doesn't release the reference of the other archive
+    archive.close();
+    assertEquals("from the nested jar", readLib(otherArchive));
+
+    otherArchive.close();
+    assertThrows(IOException.class, () -> otherArchive.getNestedArchives(entry -> true));
+    assertThrows(IOException.class, () -> nestedArchive.getNestedArchives(entry -> true));
+
+    // mapped again once closed
+    MappedJarFileArchive reopenedArchive = MappedJarFileArchive.open(fatJar);
+    assertEquals("from the nested jar", readLib(reopenedArchive));
+    reopenedArchive.close();
+  }
+
+  @Test
+  void closeTheReplacedMapping() throws Exception {
+    File fatJar = createFatJar("from the nested jar");
+    MappedJarFileArchive archive = MappedJarFileArchive.open(fatJar);
+
+    // rebuilt while the app runs
+    File rebuiltJar = createFatJar("rebuilt.jar", "from the rebuilt nested jar");
+    rebuiltJar.setLastModified(fatJar.lastModified() + 2000);
+    Files.move(rebuiltJar.toPath(), fatJar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    MappedJarFileArchive rebuiltArchive = MappedJarFileArchive.open(fatJar);
+    assertThrows(IOException.class, () -> archive.getNestedArchives(entry -> true));
+
+    // the previous archive doesn't release the rebuilt mapping
+    archive.close();
+    assertEquals("from the rebuilt nested jar", readLib(rebuiltArchive));
+    rebuiltArchive.close();
+  }
+
+  private File createFatJar(String nestedContent) throws IOException {
+    return createFatJar("app.jar", nestedContent);
+  }
+
+  private File createFatJar(String fileName, String nestedContent) throws IOException {
+    File fatJar = new File(tempDir, fileName);
+    try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(fatJar))) {
+      jar.putNextEntry(new ZipEntry("BOOT-INF/classes/app.txt"));
+      jar.write("from the app".getBytes(StandardCharsets.UTF_8));
+      jar.closeEntry();
+
+      byte[] nestedJar = createJar("lib/lib.txt", nestedContent);
+      ZipEntry nestedEntry = new ZipEntry("BOOT-INF/lib/lib-1.0.jar");
+      nestedEntry.setMethod(ZipEntry.STORED);
+      nestedEntry.setSize(nestedJar.length);
+      CRC32 crc = new CRC32();
+      crc.update(nestedJar);
+      nestedEntry.setCrc(crc.getValue());
+      jar.putNextEntry(nestedEntry);
+      jar.write(nestedJar);
+      jar.closeEntry();
+    }
+    return fatJar;
+  }
+
+  private static Archive getNestedLib(Archive archive) throws IOException {
+    return archive.getNestedArchives(entry -> entry.getName()
+        .startsWith("BOOT-INF/lib/"))
+        .get(0);
+  }
+
+  private static String readLib(Archive archive) throws IOException {
+    try (CountingClassLoader classLoader = new CountingClassLoader(new URL[] { getNestedLib(archive).getUrl() },
+        null)) {
+      return read(classLoader.getResource("lib/lib.txt"));
+    }
+  }
+
+  private static byte[] createJar(String entryName, String content) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (JarOutputStream jar = new JarOutputStream(bytes)) {
+      jar.putNextEntry(new ZipEntry(entryName));
+      jar.write(content.getBytes(StandardCharsets.UTF_8));
+      jar.closeEntry();
+    }
+    return bytes.toByteArray();
+  }
+
+  private static String read(URL url) throws IOException {
+    try (InputStream is = url.openStream(); Scanner scanner = new Scanner(is, "UTF-8")) {
+      return scanner.useDelimiter("\\A")
+          .next();
+    }
+  }
+
+}
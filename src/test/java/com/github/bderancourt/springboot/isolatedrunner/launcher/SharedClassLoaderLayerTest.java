@@ -0,0 +1,57 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SharedClassLoaderLayerTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void shareIdenticalJars() throws Exception {
+    URL app1Jackson = createJar("app1/jackson-core-2.10.0.jar", "com/fasterxml/jackson/core/JsonParser.class");
+    URL app2Jackson = createJar("app2/jackson-core-2.10.0.jar", "com/fasterxml/jackson/core/JsonParser.class");
+    URL app1Logback = createJar("app1/logback-classic-1.2.3.jar", "ch/qos/logback/classic/Logger.class");
+    URL app2Logback = createJar("app2/logback-classic-1.2.3.jar", "ch/qos/logback/classic/Logger.class");
+    URL app1Guava = createJar("app1/guava-28.1.jar", "com/google/common/base/Strings.class");
+    URL app2Guava = createJar("app2/guava-28.1.jar", "com/google/common/base/Objects.class");
+
+    SharedClassLoaderLayer layer = SharedClassLoaderLayer.create(
+        Arrays.asList(new URL[] { app1Jackson, app1Logback, app1Guava },
+            new URL[] { app2Jackson, app2Logback, app2Guava }),
+        Collections.emptyList(), SharedClassLoaderLayer.DEFAULT_ISOLATED_PACKAGES);
+
+    assertEquals(Arrays.asList(app1Jackson), layer.getSharedUrls());
+    assertEquals(Arrays.asList(app2Logback, app2Guava),
+        Arrays.asList(((URLClassLoader) layer.createClassLoader(new URL[] { app2Jackson, app2Logback, app2Guava }))
+            .getURLs()));
+  }
+
+  private URL createJar(String name, String entry) throws Exception {
+    Path jar = tempDir.resolve(name);
+    Files.createDirectories(jar.getParent());
+    try (OutputStream os = Files.newOutputStream(jar); JarOutputStream jos = new JarOutputStream(os)) {
+      JarEntry jarEntry = new JarEntry(entry);
+      jarEntry.setTime(0);
+      jos.putNextEntry(jarEntry);
+      jos.write(new byte[] { (byte) 0xCA, (byte) 0xFE });
+      jos.closeEntry();
+    }
+    return jar.toUri()
+        .toURL();
+  }
+
+}
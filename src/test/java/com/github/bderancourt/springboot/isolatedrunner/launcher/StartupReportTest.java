@@ -0,0 +1,36 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+public class StartupReportTest {
+
+  @Test
+  void recordPhases() {
+    StartupReport report = new StartupReport("app");
+    report.record(StartupReport.EXACT_MATCH, Duration.ofMillis(10), 40);
+    report.record(StartupReport.MAVEN_REPOSITORY_LOOKUP, Duration.ofMillis(30), 2);
+    report.record(StartupReport.EXACT_MATCH, Duration.ofMillis(5), 1);
+    report.record(StartupReport.CONTEXT_REFRESH, Duration.ofMillis(100), -1);
+    report.setLoadedClassCount(1200);
+
+    assertEquals(4, report.getPhases()
+        .size());
+    assertEquals(Optional.of(Duration.ofMillis(15)), report.getDuration(StartupReport.EXACT_MATCH));
+    assertEquals(Optional.empty(), report.getDuration(StartupReport.NESTED_ARCHIVES));
+    assertEquals(145, report.getTotalMillis());
+    assertEquals(Long.valueOf(15), report.getPhaseMillis()
+        .get(StartupReport.EXACT_MATCH));
+    assertEquals(Integer.valueOf(41), report.getPhaseCounts()
+        .get(StartupReport.EXACT_MATCH));
+    assertEquals(Integer.valueOf(-1), report.getPhaseCounts()
+        .get(StartupReport.CONTEXT_REFRESH));
+    assertEquals("app startup 145 ms: exact match 10 ms (40), maven repository lookup 30 ms (2), exact match 5 ms (1), "
+        + "context refresh 100 ms, 1200 classes loaded", report.toString());
+  }
+
+}
@@ -0,0 +1,66 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * A dependency starting a configuration of the test classes in an isolated classloader, for the tests of the runners
+ */
+public class TestDependency implements Dependency {
+
+  private final String name;
+
+  private final String mainClass;
+
+  private final StartupReport startupReport;
+
+  private TestDependency(String name, String mainClass) {
+    this.name = name;
+    this.mainClass = mainClass;
+    this.startupReport = new StartupReport(name);
+  }
+
+  /**
+   * @param name
+   *          the app name
+   * @return a dependency starting an empty app
+   */
+  public static TestDependency app(String name) {
+    return new TestDependency(name, JvmProcessTest.App.class.getName());
+  }
+
+  /**
+   * @param name
+   *          the app name
+   * @return a dependency starting an app whose context fails to refresh
+   */
+  public static TestDependency failingApp(String name) {
+    return new TestDependency(name, JvmProcessTest.FailingApp.class.getName());
+  }
+
+  @Override
+  public URL[] getClassPath() {
+    return JvmProcessTest.getClassPath();
+  }
+
+  @Override
+  public void setSharedLayer(SharedClassLoaderLayer sharedLayer) {
+  }
+
+  @Override
+  public IsolatedAppHandle start(String[] args, Executor executor, Duration timeout) throws Exception {
+    return IsolatedAppHandle.launch(name, new CountingClassLoader(getClassPath(), null), mainClass, args, executor,
+        timeout, System.nanoTime(), startupReport);
+  }
+
+  @Override
+  public StartupReport getStartupReport() {
+    return startupReport;
+  }
+
+  @Override
+  public void stop() {
+  }
+
+}
@@ -0,0 +1,72 @@
+package com.github.bderancourt.springboot.isolatedrunner.launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ThreadFactoriesTest {
+
+  @AfterEach
+  void clearProperty() {
+    System.clearProperty(ThreadFactories.PROPERTY);
+  }
+
+  @Test
+  void createPlatformThreads() throws Exception {
+    Thread thread = ThreadFactories.platform()
+        .newThread(() -> {
+        });
+
+    assertFalse(isVirtual(thread));
+    assertEquals(Thread.currentThread()
+        .isDaemon(), thread.isDaemon());
+  }
+
+  @Test
+  void createVirtualThreadsOrPlatformThreadsBeforeJdk21() throws Exception {
+    AtomicBoolean ran = new AtomicBoolean();
+    Thread thread = ThreadFactories.virtual()
+        .newThread(() -> ran.set(true));
+    thread.start();
+    thread.join();
+
+    assertTrue(ran.get());
+    // on JDK 8, the fallback to platform threads
+    assertEquals(isVirtualSupported(), isVirtual(thread));
+    assertSame(ThreadFactories.virtual(), ThreadFactories.virtual());
+  }
+
+  @Test
+  void selectTheFactoryOfTheProperty() throws Exception {
+    assertFalse(isVirtual(ThreadFactories.current()
+        .newThread(() -> {
+        })));
+
+    System.setProperty(ThreadFactories.PROPERTY, " Platform ");
+    assertFalse(isVirtual(ThreadFactories.current()
+        .newThread(() -> {
+        })));
+
+    System.setProperty(ThreadFactories.PROPERTY, "virtual");
+    assertSame(ThreadFactories.virtual(), ThreadFactories.current());
+
+    System.setProperty(ThreadFactories.PROPERTY, "green");
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, ThreadFactories::current);
+    assertEquals("Unknown isolatedrunner.threads green", e.getMessage());
+  }
+
+  private static boolean isVirtualSupported() {
+    return Arrays.stream(Thread.class.getMethods())
+        .anyMatch(method -> "ofVirtual".equals(method.getName()));
+  }
+
+  private static boolean isVirtual(Thread thread) throws Exception {
+    return isVirtualSupported() && (Boolean) Thread.class.getMethod("isVirtual")
+        .invoke(thread);
+  }
+
+}
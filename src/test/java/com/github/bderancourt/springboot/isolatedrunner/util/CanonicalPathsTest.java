@@ -0,0 +1,46 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CanonicalPathsTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void canonicalizeManifestClassPathInOrder() throws Exception {
+    Path surefireDir = Files.createDirectories(tempDir.resolve("target/surefire"));
+    List<URL> expected = new ArrayList<>();
+    StringJoiner manifestClassPath = new StringJoiner(" ");
+    for (int i = 0; i < 200; i++) {
+      File jar = Files.createFile(tempDir.resolve("lib-" + i + ".jar"))
+          .toFile();
+      expected.add(jar.getCanonicalFile()
+          .toURI()
+          .toURL());
+      manifestClassPath.add("../../lib-" + i + ".jar");
+    }
+    Path classes = Files.createDirectories(tempDir.resolve("target/classes"));
+    expected.add(classes.toFile()
+        .getCanonicalFile()
+        .toURI()
+        .toURL());
+    manifestClassPath.add("../classes/");
+
+    assertEquals(expected, CanonicalPaths.toCanonicalURLs(surefireDir, manifestClassPath.toString() + " "));
+    assertSame(CanonicalPaths.toCanonicalURL(surefireDir.resolve("../classes/")), CanonicalPaths.toCanonicalURL(
+        surefireDir.resolve("../classes/")));
+  }
+
+}
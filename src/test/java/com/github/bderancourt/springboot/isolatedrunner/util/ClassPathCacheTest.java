@@ -0,0 +1,87 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ClassPathCacheTest {
+
+  @TempDir
+  Path tempDir;
+
+  @BeforeEach
+  void setCacheDir() {
+    System.setProperty(CacheUtils.CACHE_DIR_PROPERTY, tempDir.resolve("cache")
+        .toString());
+  }
+
+  @AfterEach
+  void clearCacheDir() {
+    System.clearProperty(CacheUtils.CACHE_DIR_PROPERTY);
+    System.clearProperty(ClassPathCache.ENABLED_PROPERTY);
+  }
+
+  @Test
+  void getCachedClassPath() throws Exception {
+    Path jar = Files.createFile(tempDir.resolve("jsr305-3.0.2.jar"));
+    URL[] urls = new URL[] { jar.toUri()
+        .toURL(), new URL("jar:" + jar.toUri() + "!/BOOT-INF/lib/nested-1.0.jar!/") };
+
+    assertEquals(Optional.empty(), ClassPathCache.get("key"));
+    ClassPathCache.put("key", urls);
+
+    assertArrayEquals(urls, ClassPathCache.get("key")
+        .get());
+    assertEquals(Optional.empty(), ClassPathCache.get("other key"));
+  }
+
+  @Test
+  void outdatedWhenAJarChanges() throws Exception {
+    Path jar = Files.createFile(tempDir.resolve("jsr305-3.0.2.jar"));
+    ClassPathCache.put("key", new URL[] { jar.toUri()
+        .toURL() });
+
+    jar.toFile()
+        .setLastModified(jar.toFile()
+            .lastModified() - 10000);
+
+    assertEquals(Optional.empty(), ClassPathCache.get("key"));
+  }
+
+  @Test
+  void getCachedIndexUntilAJarChanges() throws Exception {
+    Path jar = Files.createFile(tempDir.resolve("jsr305-3.0.2.jar"));
+    URL[] urls = new URL[] { jar.toUri()
+        .toURL() };
+    ClassPathCache.putIndex(urls, Arrays.asList("0 javax/annotation"));
+
+    assertEquals(Arrays.asList("0 javax/annotation"), ClassPathCache.getIndex(urls)
+        .get());
+
+    jar.toFile()
+        .setLastModified(jar.toFile()
+            .lastModified() - 10000);
+
+    assertEquals(Optional.empty(), ClassPathCache.getIndex(urls));
+  }
+
+  @Test
+  void disabled() throws Exception {
+    System.setProperty(ClassPathCache.ENABLED_PROPERTY, "false");
+    ClassPathCache.put("key", new URL[] { tempDir.toUri()
+        .toURL() });
+
+    assertEquals(Optional.empty(), ClassPathCache.get("key"));
+    assertFalse(Files.exists(tempDir.resolve("cache")));
+  }
+
+}
@@ -0,0 +1,87 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ClassPathIndexTest {
+
+  private static final String ENGINE = "file:/C:/m2repo/org/junit/platform/junit-platform-engine/1.4.0/junit-platform-engine-1.4.0.jar";
+
+  private static final String COMMONS = "file:/C:/m2repo/org/junit/platform/junit-platform-commons/1.4.0/junit-platform-commons-1.4.0.jar";
+
+  private static final String APP = "file:/C:/workspace/my-app/target/classes/";
+
+  @Test
+  void findDependencyURL() throws Exception {
+    ClassPathIndex index = ClassPathIndex.of(urls(ENGINE, COMMONS, ENGINE, APP));
+
+    assertEquals(APP, index.findDependencyURL("my-app")
+        .toString());
+    assertEquals(COMMONS, index.findDependencyURL("junit", "commons")
+        .toString());
+    // the best score wins, duplicates ignored
+    assertEquals(ENGINE, index.findDependencyURL("junit", "platform", "engine", "jar")
+        .toString());
+    // infos shorter than a trigram
+    assertEquals(APP, index.findDependencyURL("my", "s/")
+        .toString());
+    assertSame(index, ClassPathIndex.of(urls(ENGINE, COMMONS, ENGINE, APP)));
+  }
+
+  @Test
+  void notFoundOrAmbiguous() throws Exception {
+    ClassPathIndex index = ClassPathIndex.of(urls(ENGINE, ENGINE.replace("1.4.0", "1.4.1"), APP));
+
+    IllegalArgumentException notFound = assertThrows(IllegalArgumentException.class, () -> index.findDependencyURL(
+        "my-app", "junit"));
+    assertTrue(notFound.getMessage()
+        .startsWith("Dependency not found my-app-junit\n"));
+    assertTrue(notFound.getMessage()
+        .contains(APP));
+    assertThrows(IllegalArgumentException.class, () -> index.findDependencyURL("absent"));
+
+    IllegalArgumentException ambiguous = assertThrows(IllegalArgumentException.class, () -> index.findDependencyURL(
+        "junit-platform-engine"));
+    assertTrue(ambiguous.getMessage()
+        .startsWith("2 dependencies found, refine your search\n"));
+  }
+
+  @Test
+  void findMaxScore() throws Exception {
+    ClassPathIndex index = ClassPathIndex.of(urls(ENGINE, ENGINE, COMMONS));
+
+    assertEquals(ENGINE, index.findDependencyURL("junit", "platform", "engine", "jar")
+        .toString());
+  }
+
+  @Test
+  void findMaxScoreNotSameVersion() throws Exception {
+    ClassPathIndex index = ClassPathIndex.of(urls(ENGINE, ENGINE.replace("1.4.0", "1.4.1")));
+
+    assertThrows(IllegalArgumentException.class, () -> index.findDependencyURL("junit", "platform", "engine",
+        "jar"));
+  }
+
+  @Test
+  void findMaxScoreDuplicates() throws Exception {
+    ClassPathIndex index = ClassPathIndex.of(urls(ENGINE, ENGINE));
+
+    assertEquals(ENGINE, index.findDependencyURL("junit", "platform", "engine", "jar")
+        .toString());
+  }
+
+  private static List<URL> urls(String... urls) throws Exception {
+    List<URL> list = new ArrayList<>();
+    for (String url : Arrays.asList(urls)) {
+      list.add(new URL(url));
+    }
+    return list;
+  }
+
+}
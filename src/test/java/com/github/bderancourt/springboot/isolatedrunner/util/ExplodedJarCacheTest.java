@@ -0,0 +1,136 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ExplodedJarCacheTest {
+
+  @TempDir
+  Path tempDir;
+
+  @AfterEach
+  void clearMaxSize() {
+    System.clearProperty(ExplodedJarCache.MAX_SIZE_PROPERTY);
+  }
+
+  @Test
+  void explodeAndShareIdenticalNestedJars() throws Exception {
+    ExplodedJarCache cache = ExplodedJarCache.of(tempDir.resolve("cache"));
+    File firstJar = createFatJar("first.jar", "first app");
+    File secondJar = createFatJar("second.jar", "second app");
+
+    List<URL> firstUrls = cache.explode(firstJar)
+        .getUrls();
+    assertEquals(2, firstUrls.size());
+    assertEquals("first app", read(new URL(firstUrls.get(0), "app.txt")));
+    assertTrue(firstUrls.get(1)
+        .getFile()
+        .endsWith("/lib-1.0.jar"));
+
+    // exploded once: the same URLs, found with the quick key
+    assertEquals(firstUrls, cache.explode(firstJar)
+        .getUrls());
+
+    List<URL> secondUrls = cache.explode(secondJar)
+        .getUrls();
+    assertNotEquals(firstUrls.get(0), secondUrls.get(0));
+    assertEquals(firstUrls.get(1), secondUrls.get(1));
+  }
+
+  @Test
+  void evictLeastRecentlyUsedApps() throws Exception {
+    ExplodedJarCache cache = ExplodedJarCache.of(tempDir.resolve("cache"));
+    ExplodedJarCache.ExplodedJar firstJar = cache.explode(createFatJar("first.jar", "first app"));
+    List<URL> firstUrls = firstJar.getUrls();
+    firstJar.close();
+
+    System.setProperty(ExplodedJarCache.MAX_SIZE_PROPERTY, "0");
+    List<URL> secondUrls = cache.explode(createFatJar("second.jar", "second app"))
+        .getUrls();
+
+    assertFalse(Files.exists(Paths.get(firstUrls.get(0)
+        .toURI())));
+    // the nested jar is still used by the second app
+    assertTrue(Files.exists(Paths.get(secondUrls.get(1)
+        .toURI())));
+    assertTrue(Files.exists(Paths.get(secondUrls.get(0)
+        .toURI())));
+  }
+
+  @Test
+  void keepAppsInUse() throws Exception {
+    ExplodedJarCache cache = ExplodedJarCache.of(tempDir.resolve("cache"));
+    File fatJar = createFatJar("first.jar", "first app");
+    ExplodedJarCache.ExplodedJar firstJar = cache.explode(fatJar);
+    // the same fat jar launched twice
+    ExplodedJarCache.ExplodedJar otherFirstJar = cache.explode(fatJar);
+    Path firstClasses = Paths.get(firstJar.getUrls()
+        .get(0)
+        .toURI());
+
+    System.setProperty(ExplodedJarCache.MAX_SIZE_PROPERTY, "0");
+    ExplodedJarCache.ExplodedJar secondJar = cache.explode(createFatJar("second.jar", "second app"));
+    assertTrue(Files.exists(firstClasses));
+
+    firstJar.close();
+    // closing twice doesn't release the other app
+    firstJar.close();
+    cache.explode(createFatJar("third.jar", "third app"));
+    assertTrue(Files.exists(firstClasses));
+
+    otherFirstJar.close();
+    cache.explode(createFatJar("fourth.jar", "fourth app"));
+    assertFalse(Files.exists(firstClasses));
+    assertTrue(Files.exists(Paths.get(secondJar.getUrls()
+        .get(0)
+        .toURI())));
+  }
+
+  private File createFatJar(String name, String content) throws IOException {
+    File fatJar = tempDir.resolve(name)
+        .toFile();
+    try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(fatJar))) {
+      jar.putNextEntry(new ZipEntry("BOOT-INF/classes/app.txt"));
+      jar.write(content.getBytes(StandardCharsets.UTF_8));
+      jar.closeEntry();
+      jar.putNextEntry(new ZipEntry("BOOT-INF/lib/lib-1.0.jar"));
+      jar.write(createJar("lib/lib.txt", "from the nested jar"));
+      jar.closeEntry();
+    }
+    return fatJar;
+  }
+
+  private static byte[] createJar(String entryName, String content) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (JarOutputStream jar = new JarOutputStream(bytes)) {
+      ZipEntry entry = new ZipEntry(entryName);
+      // a constant time so the nested jar bytes are the same in both fat jars
+      entry.setTime(0);
+      jar.putNextEntry(entry);
+      jar.write(content.getBytes(StandardCharsets.UTF_8));
+      jar.closeEntry();
+    }
+    return bytes.toByteArray();
+  }
+
+  private static String read(URL url) throws Exception {
+    return new String(Files.readAllBytes(Paths.get(url.toURI())), StandardCharsets.UTF_8);
+  }
+
+}
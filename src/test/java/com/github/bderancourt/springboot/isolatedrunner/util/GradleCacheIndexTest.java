@@ -0,0 +1,77 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class GradleCacheIndexTest {
+
+  @TempDir
+  Path tempDir;
+
+  private Path createJar(String group, String artifact, String version, String hash, String fileName)
+      throws Exception {
+    Path directory = Files.createDirectories(tempDir.resolve(group)
+        .resolve(artifact)
+        .resolve(version)
+        .resolve(hash));
+    return Files.createFile(directory.resolve(fileName));
+  }
+
+  @Test
+  void findByFileName() throws Exception {
+    Path jsr305 = createJar("com.google.code.findbugs", "jsr305", "3.0.2", "25ea2e8b0c338a877313bd4672d3fe056ea78f0d",
+        "jsr305-3.0.2.jar");
+    Path epoll = createJar("io.netty", "netty-transport-native-epoll", "4.1.100.Final", "a1b2",
+        "netty-transport-native-epoll-4.1.100.Final-linux-x86_64.jar");
+    createJar("io.netty", "netty-transport-native-epoll", "4.1.100.Final", "c3d4",
+        "netty-transport-native-epoll-4.1.100.Final-sources.jar");
+    GradleCacheIndex index = GradleCacheIndex.of(tempDir);
+
+    assertEquals(Optional.of(jsr305), index.find("jsr305-3.0.2.jar"));
+    assertEquals(Optional.of(epoll), index.find("netty-transport-native-epoll-4.1.100.Final-linux-x86_64.jar"));
+    assertEquals(Optional.empty(), index.find("jsr305-3.0.1.jar"));
+    assertEquals(Optional.empty(), index.find("guava-28.1-jre.jar"));
+    assertSame(index, GradleCacheIndex.of(tempDir.resolve("../" + tempDir.getFileName())));
+  }
+
+  @Test
+  void refreshTheIndexOnceOnAMiss() throws Exception {
+    createJar("com.google.code.findbugs", "jsr305", "3.0.2", "25ea", "jsr305-3.0.2.jar");
+    GradleCacheIndex index = GradleCacheIndex.of(tempDir);
+    assertTrue(index.find("jsr305-3.0.2.jar")
+        .isPresent());
+
+    // downloaded after the indexing
+    Path guava = createJar("com.google.guava", "guava", "28.1-jre", "b0e9", "guava-28.1-jre.jar");
+    assertEquals(Optional.of(guava), index.find("guava-28.1-jre.jar"));
+
+    createJar("org.slf4j", "slf4j-api", "1.7.29", "e56b", "slf4j-api-1.7.29.jar");
+    assertEquals(Optional.empty(), index.find("slf4j-api-1.7.29.jar"));
+  }
+
+  @Test
+  void findByCoordinates() throws Exception {
+    Path jsr305 = createJar("com.google.code.findbugs", "jsr305", "3.0.2", "25ea", "jsr305-3.0.2.jar");
+    GradleCacheIndex index = GradleCacheIndex.of(tempDir);
+
+    assertEquals(Optional.of(jsr305), index.find("com.google.code.findbugs", "jsr305", "3.0.2", "jsr305-3.0.2.jar"));
+    assertEquals(Optional.empty(), index.find("com.google.code.findbugs", "jsr305", "3.0.1", "jsr305-3.0.1.jar"));
+  }
+
+  @Test
+  void defaultCacheInGradleUserHome() {
+    System.setProperty(GradleCacheIndex.GRADLE_USER_HOME_PROPERTY, tempDir.toString());
+    try {
+      assertEquals(tempDir.resolve("caches/modules-2/files-2.1"), GradleCacheIndex.getDefaultCache());
+    } finally {
+      System.clearProperty(GradleCacheIndex.GRADLE_USER_HOME_PROPERTY);
+    }
+  }
+
+}
@@ -0,0 +1,67 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MavenRepositoryIndexTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void findByFileName() throws Exception {
+    System.setProperty(CacheUtils.CACHE_DIR_PROPERTY, tempDir.resolve("cache")
+        .toString());
+    try {
+      Path repository = tempDir.resolve("repository");
+      Path jar = repository.resolve("com/google/code/findbugs/jsr305/3.0.2/jsr305-3.0.2.jar");
+      Files.createDirectories(jar.getParent());
+      Files.createFile(jar);
+
+      MavenRepositoryIndex index = MavenRepositoryIndex.of(repository);
+
+      assertEquals(Optional.of(jar), index.find("jsr305-3.0.2.jar"));
+      assertEquals(Optional.empty(), index.find("log4j-1.2.17.jar"));
+      try (Stream<Path> cacheFiles = Files.list(tempDir.resolve("cache"))) {
+        assertEquals(1, cacheFiles.count());
+      }
+      assertEquals(Optional.of(jar), index.find("com.google.code.findbugs", "jsr305", "3.0.2", "jsr305-3.0.2.jar"));
+    } finally {
+      System.clearProperty(CacheUtils.CACHE_DIR_PROPERTY);
+    }
+  }
+
+  @Test
+  void rescanOnceOnAMissOfThePersistedIndex() throws Exception {
+    System.setProperty(CacheUtils.CACHE_DIR_PROPERTY, tempDir.resolve("cache")
+        .toString());
+    try {
+      Path repository = tempDir.resolve("repository");
+      Path jsr305 = createJar(repository.resolve("com/google/code/findbugs/jsr305/3.0.2/jsr305-3.0.2.jar"));
+      assertEquals(Optional.of(jsr305), new MavenRepositoryIndex(repository).find("jsr305-3.0.2.jar"));
+
+      // the index of a next JVM is loaded from the cache, the jars installed since then are deeper than its mtime
+      MavenRepositoryIndex index = new MavenRepositoryIndex(repository);
+      Path guava = createJar(repository.resolve("com/google/guava/guava/28.1-jre/guava-28.1-jre.jar"));
+      assertEquals(Optional.of(guava), index.find("guava-28.1-jre.jar"));
+
+      createJar(repository.resolve("org/slf4j/slf4j-api/1.7.29/slf4j-api-1.7.29.jar"));
+      assertEquals(Optional.empty(), index.find("slf4j-api-1.7.29.jar"));
+    } finally {
+      System.clearProperty(CacheUtils.CACHE_DIR_PROPERTY);
+    }
+  }
+
+  private static Path createJar(Path jar) throws Exception {
+    Files.createDirectories(jar.getParent());
+    return Files.createFile(jar);
+  }
+
+}
@@ -0,0 +1,48 @@
+package com.github.bderancourt.springboot.isolatedrunner.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MavenRepositoryLocatorTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void fromMavenOpts() {
+    assertEquals(Optional.of("/opt/m2repo"),
+        MavenRepositoryLocator.fromMavenOpts("-Xmx1g -Dmaven.repo.local=/opt/m2repo -Dfoo=bar"));
+    assertEquals(Optional.of("C:/my repo"), MavenRepositoryLocator.fromMavenOpts("-Dmaven.repo.local=\"C:/my repo\""));
+    assertEquals(Optional.empty(), MavenRepositoryLocator.fromMavenOpts("-Xmx1g"));
+    assertEquals(Optional.empty(), MavenRepositoryLocator.fromMavenOpts(null));
+  }
+
+  @Test
+  void fromSettings() throws Exception {
+    Path settings = tempDir.resolve("settings.xml");
+    Files.write(settings,
+        ("<settings xmlns=\"http://maven.apache.org/SETTINGS/1.0.0\">\n"
+            + "  <localRepository>${env.M2_REPO}/repository</localRepository>\n" + "</settings>")
+                .getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(Optional.of("/opt/m2/repository"),
+        MavenRepositoryLocator.fromSettings(settings, name -> "M2_REPO".equals(name) ? "/opt/m2" : null));
+  }
+
+  @Test
+  void fromSettingsWithoutLocalRepository() throws Exception {
+    Path settings = tempDir.resolve("settings.xml");
+    Files.write(settings, "<settings><offline>true</offline></settings>".getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(Optional.empty(), MavenRepositoryLocator.fromSettings(settings, name -> null));
+    assertEquals(Optional.empty(), MavenRepositoryLocator.fromSettings(tempDir.resolve("missing.xml"), name -> null));
+  }
+
+}